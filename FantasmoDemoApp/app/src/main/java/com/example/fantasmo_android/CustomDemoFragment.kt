@@ -2,6 +2,7 @@ package com.example.fantasmo_android
 
 import android.annotation.SuppressLint
 import android.app.AlertDialog
+import android.graphics.Rect
 import android.location.Location
 import android.os.Bundle
 import android.os.CountDownTimer
@@ -361,6 +362,11 @@ class CustomDemoFragment : Fragment() {
                 Log.d(TAG, "fmParkingViewDidStopQRScanning")
             }
 
+            override fun fmParkingViewDidScanQRCode(qrCodeString: String, boundingBox: Rect, continueBlock: (Boolean) -> Unit) {
+                // Codes scanned by a decoder other than ML Kit, validated like the manually entered ones
+                fmParkingView(qrCodeString, continueBlock)
+            }
+
             override fun fmParkingView(qrCode: Barcode, continueBlock: (Boolean) -> Unit) {
                 Log.d(TAG, "QR Code Scan Successful From Barcode")
                 // Optional validation of the QR code can be done here
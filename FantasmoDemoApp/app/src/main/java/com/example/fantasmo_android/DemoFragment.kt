@@ -1,6 +1,7 @@
 package com.example.fantasmo_android
 
 import android.annotation.SuppressLint
+import android.graphics.Rect
 import android.location.Location
 import android.os.Bundle
 import android.util.Log
@@ -240,6 +241,11 @@ class DemoFragment : Fragment() {
                 continueBlock(validQRCode)
             }
 
+            override fun fmParkingViewDidScanQRCode(qrCodeString: String, boundingBox: Rect, continueBlock: (Boolean) -> Unit) {
+                // Codes scanned by a decoder other than ML Kit, validated like the manually entered ones
+                fmParkingView(qrCodeString, continueBlock)
+            }
+
             override fun fmParkingView(qrCode: Barcode, continueBlock: (Boolean) -> Unit) {
                 Log.d(TAG, "QR Code Scan Successful From Barcode")
                 val validQRCode = qrCode.rawValue != null
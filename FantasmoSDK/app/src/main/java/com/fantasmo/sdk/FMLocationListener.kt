@@ -6,6 +6,7 @@ import com.fantasmo.sdk.models.FMZone
 import com.fantasmo.sdk.models.Location
 import com.fantasmo.sdk.models.analytics.AccumulatedARCoreInfo
 import com.fantasmo.sdk.models.analytics.FMFrameEvaluationStatistics
+import com.fantasmo.sdk.network.FMUploadStatus
 
 /**
  * Class that describes the confidence level of a Localization Result
@@ -60,7 +61,11 @@ enum class FMBehaviorRequest(val description: String) {
  */
 interface FMLocationListener {
      /**
-     * Tells the listener that a new frame upload is starting.
+     * Tells the listener that a new frame upload is starting. Every upload then ends with
+     * `didUpdateLocation` or `didFailWithError`, an upload cancelled for exceeding the upload
+     * deadline fails with code 408.
+     * Called on the thread that passed the frame to the `FMLocationManager`, or on the main
+     * thread when the frame waited for a previous upload to finish.
      * @param frame `FMFrame` that is getting uploaded
      */
 
@@ -103,4 +108,11 @@ interface FMLocationListener {
      * @param frameEvaluationStatistics `FMFrameEvaluationStatistics` with all the statistics
      */
     fun didUpdateFrameEvaluationStatistics(frameEvaluationStatistics: FMFrameEvaluationStatistics) {}
+
+    /**
+     * Tells the listener that the number of in-flight, queued or dropped uploads changed.
+     * Called on the thread that passed the frame to the `FMLocationManager` or on the main thread.
+     * @param status `FMUploadStatus` with the current upload counters
+     */
+    fun didUpdateUploadStatus(status: FMUploadStatus) {}
 }
@@ -16,8 +16,10 @@ import com.fantasmo.sdk.filters.FMFrameFilter
 import com.fantasmo.sdk.models.*
 import com.fantasmo.sdk.models.analytics.*
 import com.fantasmo.sdk.network.*
+import com.fantasmo.sdk.utilities.ConcurrentRingBuffer
 import com.fantasmo.sdk.utilities.DeviceLocationManager
 import com.fantasmo.sdk.utilities.LocationFuser
+import com.google.ar.core.TrackingState
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
@@ -35,11 +37,13 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
     }
 
     private var coroutineScope: CoroutineScope = CoroutineScope(Dispatchers.IO)
+    private val mainCoroutineScope = CoroutineScope(Dispatchers.Main)
 
     private var locationFuser = LocationFuser()
 
     private var fmApi: FMApi? = null
 
+    @Volatile
     var state = State.STOPPED
 
     var anchorFrame: FMFrame? = null
@@ -54,8 +58,51 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
 
     private var isConnected = false
 
-    var activeUploads: MutableList<FMFrame> = mutableListOf()
-    private set
+    // Limits concurrent uploads and cancels the ones whose result would be stale
+    private val uploadScheduler = FMUploadScheduler(
+        FMUtility.Constants.MaxConcurrentUploads,
+        FMUtility.Constants.UploadDeadline,
+        object : FMUploadSchedulerListener {
+            override fun startUpload(frame: FMFrame) {
+                upload(frame)
+            }
+
+            override fun cancelUpload(frame: FMFrame) {
+                Log.d(TAG, "Upload of frame ${frame.timestamp} exceeded deadline, cancelling")
+                fmApi?.cancelLocalizeRequest(frame)
+                frame.release()
+                // Volley delivers nothing for a cancelled request, the upload is reported as failed here,
+                // on the main thread like the errors Volley delivers
+                val error = ErrorResponse(
+                    408,
+                    "Request timeout",
+                    "Upload cancelled after ${uploadScheduler.deadline} s"
+                )
+                mainCoroutineScope.launch {
+                    fmLocationListener?.didFailWithError(error, null)
+                    errorBuffer.add(error)
+                    updateStateAfterLocalization()
+                }
+            }
+
+            override fun dropFrame(frame: FMFrame) {
+                frame.release()
+            }
+
+            override fun didUpdateUploadStatus(status: FMUploadStatus) {
+                fmLocationListener?.didUpdateUploadStatus(status)
+            }
+        }
+    )
+
+    val activeUploads: List<FMFrame>
+        get() = uploadScheduler.inFlightFrames
+
+    // Network state and measured upload speed, used to choose the upload policy
+    private val networkMonitor = FMNetworkMonitor.getInstance(context)
+    private val networkEstimator = FMNetworkEstimator()
+    private var networkClass = FMNetworkClass.NONE
+    private var uploadPolicy = FMUploadPolicy.default
 
     // Used to validate frame for sufficient quality before sending to API.
     private lateinit var frameEvaluatorChain: FMFrameEvaluatorChain
@@ -82,8 +129,20 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
     private var startTime = System.currentTimeMillis() // resets on `startUpdatingLocation`
     private var totalFramesUploaded: Int = 0 // total calls to `localize`
 
-    var errors: MutableList<ErrorResponse> = mutableListOf()
-    private set
+    // Last errors of the session, `errorBuffer.totalCount` keeps the count of all of them
+    private val errorBuffer = ConcurrentRingBuffer<ErrorResponse>(FMUtility.Constants.MaxStoredErrors)
+
+    /**
+     * Last errors of the session, oldest first, at most `MaxStoredErrors` of them.
+     */
+    val errors: List<ErrorResponse>
+        get() = errorBuffer.toList()
+
+    /**
+     * Number of errors of the session, including the ones no longer kept in `errors`.
+     */
+    val errorCount: Int
+        get() = errorBuffer.totalCount
 
     /**
      * Connect to the location service.
@@ -100,6 +159,8 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
         this.fmLocationListener = callback
         fmApi = FMApi(context, token)
         rc = RemoteConfig.remoteConfig
+        fmApi?.networkEstimator = networkEstimator
+        fmApi?.retryPolicy = FMRetryPolicy.make(rc.localizeMaxRetries, rc.localizeRetryBaseDelay)
         frameEvaluatorChain = FMFrameEvaluatorChain(rc, context)
         if (rc.isBehaviorRequesterEnabled) {
             behaviorRequester = BehaviorRequester {
@@ -163,7 +224,8 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
 
         startTime = System.currentTimeMillis()
         totalFramesUploaded = 0
-        errors = mutableListOf()
+        errorBuffer.clear()
+        uploadScheduler.reset()
    }
 
     /**
@@ -219,10 +281,12 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
     /**
      * Localize the image frame. It triggers a network request that
      * provides a response via the callback [FMLocationListener].
-     * @param fmFrame an FMFrame to localize
+     * @param fmFrame an FMFrame to localize, retained for the upload and released by this method
+     * or once the upload is done
      */
     private fun localize(fmFrame: FMFrame) {
         if (!isConnected) {
+            fmFrame.release()
             return
         }
         if (!DeviceLocationManager.isValidLatLng(
@@ -233,24 +297,55 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
             val error = ErrorResponse(0, "Invalid Coordinates")
             fmLocationListener?.didFailWithError(error, null)
             Log.e(TAG, "Invalid Coordinates")
+            fmFrame.release()
             return
         }
         Log.d(TAG, "localize: isSimulation $isSimulation")
 
+        updateUploadPolicy()
+        uploadScheduler.submit(fmFrame)
+    }
+
+    /**
+     * Adapts JPEG quality, upload concurrency and window timing to the current network.
+     * Upload measurements are discarded when the device switches to a different kind of network.
+     */
+    private fun updateUploadPolicy() {
+        val currentNetworkClass = networkMonitor.networkClass
+        if (currentNetworkClass != networkClass) {
+            Log.d(TAG, "Network changed from $networkClass to $currentNetworkClass")
+            networkClass = currentNetworkClass
+            networkEstimator.reset()
+        }
+        uploadPolicy = FMUploadPolicy.make(networkClass, networkEstimator)
+        fmApi?.isHedgingEnabled = (rc.isLocalizeHedgingEnabled ?: false) && uploadPolicy.allowsHedging
+        uploadScheduler.maxInFlight = uploadPolicy.maxConcurrentUploads
+        frameEvaluatorChain.windowTimeScale = uploadPolicy.windowTimeScale
+    }
+
+    /**
+     * Sends the localize request of a frame once the `uploadScheduler` gives it an upload slot.
+     * @param fmFrame an FMFrame to localize
+     */
+    private fun upload(fmFrame: FMFrame) {
         fmLocationListener?.didChangeState(state)
         val localizeRequest = createLocalizationRequest(fmFrame)
         fmLocationListener?.didBeginUpload(fmFrame)
-        activeUploads.add(fmFrame)
         totalFramesUploaded++
-        
+
         coroutineScope.launch {
             fmApi?.sendLocalizeRequest(
                 fmFrame,
                 localizeRequest,
                 { localizeResponse, fmZones ->
                     Log.d(TAG, "localize: $localizeResponse, Zones $fmZones")
+                    // a frame no longer in flight was already released when it was cancelled or dropped
+                    if (!uploadScheduler.finish(fmFrame)) {
+                        Log.d(TAG, "localize: discarding stale result")
+                        return@sendLocalizeRequest
+                    }
+                    fmFrame.release()
                     val result = locationFuser.fusedResult(localizeResponse, fmZones)
-                    activeUploads.removeAll { it == fmFrame }
                     fmLocationListener?.didUpdateLocation(
                         result
                     )
@@ -258,9 +353,14 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
                 },
                 { error ->
                     Log.e(TAG, "localize: $error")
-                    activeUploads.removeAll { it == fmFrame }
+                    // a cancelled upload was already reported as failed
+                    if (!uploadScheduler.finish(fmFrame)) {
+                        Log.d(TAG, "localize: discarding stale error")
+                        return@sendLocalizeRequest
+                    }
+                    fmFrame.release()
                     fmLocationListener?.didFailWithError(error, null)
-                    errors.add(error)
+                    errorBuffer.add(error)
                     updateStateAfterLocalization()
                 })
         }
@@ -273,7 +373,7 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
         val legacyFrameEvents = FMLegacyFrameEvents(
             (frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.PITCH_TOO_LOW] ?: 0)
                     + (frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.PITCH_TOO_HIGH] ?: 0),
-            0,
+            frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.IMAGE_TOO_BLURRY] ?: 0,
             (frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.MOVING_TOO_FAST] ?: 0)
                     + (frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.TRACKING_STATE_EXCESSIVE_MOTION] ?: 0),
             frameEvaluationStatistics.rejectionReasons[FMFrameRejectionReason.TRACKING_STATE_INSUFFICIENT_FEATURES] ?: 0,
@@ -317,7 +417,8 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
             FMZone.ZoneType.PARKING,
             currentLocation,
             openCVRelativeAnchorPose,
-            frameAnalytics
+            frameAnalytics,
+            uploadPolicy.jpegQuality
         )
     }
 
@@ -357,7 +458,7 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
             frameEvaluations = frameEvaluations,
             frameRejections = frameRejections,
             locationResultCount = locationFuser.locationCount,
-            errorResultCount = errors.size,
+            errorResultCount = errorBuffer.totalCount,
             totalTranslation = accumulatedARCoreInfo.translationAccumulator.totalTranslation,
             rotationSpread = FMRotationSpread(
                 pitch = accumulatedARCoreInfo.rotationAccumulator.pitch.spread,
@@ -382,6 +483,19 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
         }
     }
 
+    /**
+     * What the next frame passed to `session` will be used for, cheap enough to be called on the GL
+     * thread for every ARCore frame. Every frame updates the session statistics, but its camera image
+     * is only needed while the evaluator is idle and the camera is tracking.
+     */
+    internal fun frameDemand(trackingState: TrackingState): FMFrameDemand {
+        return when {
+            state == State.STOPPED -> FMFrameDemand.NONE
+            trackingState == TrackingState.TRACKING && !frameEvaluatorChain.isEvaluating -> FMFrameDemand.IMAGE
+            else -> FMFrameDemand.POSE
+        }
+    }
+
     /**
      * Method to check whether the SDK is ready to localize a frame or not.
      */
@@ -389,9 +503,13 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
         if (state != State.STOPPED) {
             // run the frame through the configured filters
             frameEvaluatorChain.evaluateAsync(fmFrame)
-            val frameToLocalize = frameEvaluatorChain.dequeueBestFrame()
-            if (frameToLocalize != null)  {
-                localize(frameToLocalize)
+            uploadScheduler.expireStaleUploads()
+            // dequeuing starts a new window, while offline the best frame stays in the current one
+            if (networkMonitor.isConnected) {
+                val frameToLocalize = frameEvaluatorChain.dequeueBestFrame()
+                if (frameToLocalize != null)  {
+                    localize(frameToLocalize)
+                }
             }
 
             fmLocationListener?.didUpdateFrame(fmFrame, accumulatedARCoreInfo)
@@ -412,6 +530,8 @@ class FMLocationManager(private val context: Context) : FMFrameEvaluatorChainLis
 
     override fun didStartWindow(frameEvaluatorChain: FMFrameEvaluatorChain, startTime: Double) {
         frameEvaluationStatistics.startWindow(startTime)
+        // the filter statistics are copied once per window, not on every filtered frame
+        frameEvaluationStatistics.updateFilterStatistics(frameEvaluatorChain.filterStatistics)
         fmLocationListener?.didUpdateFrameEvaluationStatistics(frameEvaluationStatistics)
     }
 
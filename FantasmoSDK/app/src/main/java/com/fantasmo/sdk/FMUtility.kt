@@ -22,7 +22,7 @@ internal class FMUtility {
          * Utility method to get the correct Pose for each of the device orientations.
          */
         fun getPoseOfOpenCVVirtualCameraBasedOnDeviceOrientation(fmFrame: FMFrame): FMPose {
-            return FMPose(fmFrame.camera.displayOrientedPose)
+            return FMPose(fmFrame.capture.displayOrientedPose)
         }
 
         /**
@@ -32,10 +32,10 @@ internal class FMUtility {
         fun anchorDeltaPoseForFrame(fmFrame: FMFrame, anchorFrame: FMFrame): FMPose {
             // Pose of frame must be taken for "virtual" device as we send to server orientation of
             // "virtual" device for "localization" frame
-            val poseARVirtualFrame = fmFrame.camera.displayOrientedPose
-            val poseAnchor = anchorFrame.cameraPose
+            val poseARVirtualFrame = fmFrame.capture.displayOrientedPose
+            val poseAnchor = anchorFrame.capture.cameraPose
 
-            return if (poseAnchor != null && poseARVirtualFrame != null) {
+            return if (poseAnchor != null) {
                 FMPose.diffPose(poseAnchor, poseARVirtualFrame)
             } else {
                 FMPose()
@@ -56,14 +56,43 @@ internal class FMUtility {
          * @param rotationQuaternion: rotation quaternion correspondent to rotation of the device
          * */
         fun convertQuaternionToEuler(rotationQuaternion: FloatArray): FloatArray {
-            var qw = rotationQuaternion[3]
-            var qx = rotationQuaternion[0]
-            var qy = rotationQuaternion[1]
-            var qz = rotationQuaternion[2]
-
-            val yaw: Float
-            val pitch: Float
-            val roll: Float
+            return convertQuaternionToEuler(rotationQuaternion, FloatArray(3))
+        }
+
+        /**
+         * Converts Quaternion to Euler Angles without allocating, see `convertQuaternionToEuler(FloatArray)`.
+         * @param rotationQuaternion: rotation quaternion correspondent to rotation of the device
+         * @param eulerAngles: array of at least 3 values receiving pitch, roll and yaw in radians
+         * @return `eulerAngles`
+         * */
+        fun convertQuaternionToEuler(rotationQuaternion: FloatArray, eulerAngles: FloatArray): FloatArray {
+            return convertQuaternionToEuler(
+                rotationQuaternion[0],
+                rotationQuaternion[1],
+                rotationQuaternion[2],
+                rotationQuaternion[3],
+                eulerAngles
+            )
+        }
+
+        /**
+         * Converts Quaternion to Euler Angles without allocating, from the quaternion components,
+         * e.g. `Pose.qx()`, so the pose doesn't have to copy its rotation into a new array.
+         * @param eulerAngles: array of at least 3 values receiving pitch, roll and yaw in radians
+         * @return `eulerAngles`
+         * */
+        fun convertQuaternionToEuler(
+            x: Float,
+            y: Float,
+            z: Float,
+            w: Float,
+            eulerAngles: FloatArray
+        ): FloatArray {
+            var qw = w
+            var qx = x
+            var qy = y
+            var qz = z
+
             val sqw = qw * qw
             val sqx = qx * qx
             val sqy = qy * qy
@@ -78,25 +107,29 @@ internal class FMUtility {
 
             val test: Float = qx * qw - qy * qz
             if (test > 0.499 * unit) { // singularity at north pole
-                roll = (2 * atan2(qx, qw))
-                pitch = (Math.PI / 2).toFloat()
-                yaw = 0f
-                return floatArrayOf(pitch, roll, yaw)
+                eulerAngles[0] = (Math.PI / 2).toFloat()
+                eulerAngles[1] = (2 * atan2(qx, qw))
+                eulerAngles[2] = 0f
+                return eulerAngles
             }
             if (test < -0.499 * unit) { // singularity at south pole
-                roll = (-2 * atan2(qx, qw))
-                pitch = (-Math.PI / 2).toFloat()
-                yaw = 0f
-                return floatArrayOf(pitch, roll, yaw)
+                eulerAngles[0] = (-Math.PI / 2).toFloat()
+                eulerAngles[1] = (-2 * atan2(qx, qw))
+                eulerAngles[2] = 0f
+                return eulerAngles
             }
             // order yxz, psi=yaw, theta=pitch, phi=roll
-            roll=atan2(2f*(qx*qz+qy*qw),sqw-sqx-sqy+sqz)
-            pitch=asin(2f*(qx*qw-qy*qz))
-            yaw=atan2(2f*(qx*qy+qz*qw),(sqw-sqx+sqy-sqz))
+            eulerAngles[0] = asin(2f*(qx*qw-qy*qz))
+            eulerAngles[1] = atan2(2f*(qx*qz+qy*qw),sqw-sqx-sqy+sqz)
+            eulerAngles[2] = atan2(2f*(qx*qy+qz*qw),(sqw-sqx+sqy-sqz))
 
-            return floatArrayOf(pitch, roll, yaw)
+            return eulerAngles
         }
 
+        /**
+         * Converts the first three angles of `eulerAngles` from radians to degrees, in place.
+         * @return `eulerAngles`
+         */
         fun convertToDegrees(eulerAngles: FloatArray): FloatArray {
             eulerAngles[0] = Math.toDegrees(eulerAngles[0].toDouble()).toFloat()
             eulerAngles[1] = Math.toDegrees(eulerAngles[1].toDouble()).toFloat()
@@ -127,6 +160,104 @@ internal class FMUtility {
         const val PixelBufferHeight: Int = 1440
         const val PixelBufferPlaneCount: Int = 2
 
+        // Maximum number of localize requests uploading at the same time.
+        const val MaxConcurrentUploads: Int = 2
+
+        // Seconds after which an upload is cancelled, its location would be stale by then.
+        const val UploadDeadline: Double = 5.0
+
+        // Number of localization errors kept in memory for debugging.
+        const val MaxStoredErrors: Int = 32
+
+        // Requests that could not be sent while offline are kept in this file, up to the given size.
+        const val OfflineQueueFileName = "offline_queue.jsonl"
+        const val OfflineQueueMaxBytes: Long = 512 * 1024L
+
+        // Number of queued requests sent between two writes of the offline queue file.
+        const val OfflineQueueBatchSize: Int = 10
+
+        // Seconds to wait for the response of a queued request before trying again later.
+        const val OfflineRequestTimeout: Long = 10
+
+        // Retries of a failed localize request and wait before the first one (milliseconds),
+        // doubled on every retry up to the max delay. Overridable through the remote config.
+        const val LocalizeMaxRetries: Int = 2
+        const val LocalizeRetryBaseDelay: Long = 250
+        const val LocalizeRetryMaxDelay: Long = 2000
+
+        // Timeout of a localize upload attempt (milliseconds), at least Volley's default and at least
+        // the factor times the upload time expected from the measured throughput, multiplied by the
+        // attempt number so retries wait longer, up to the max.
+        const val LocalizeUploadTimeoutFactor: Double = 2.0
+        const val LocalizeUploadMaxTimeout: Int = 30_000
+
+        // Latency percentile after which a hedged localize request is sent, when hedging is enabled.
+        const val LocalizeHedgePercentile: Double = 0.95
+
+        // Retries and hedged requests allowed per request sent, and the initial and maximum allowance.
+        const val RetryBudgetRatio: Double = 0.2
+        const val RetryBudgetReserve: Double = 3.0
+        const val RetryBudgetCapacity: Double = 10.0
+
+        // Fraction of the camera image, around its center, scanned for QR codes,
+        // and maximum size of the scanned image, larger regions are downscaled.
+        // The height fits a 960 pixel wide crop of a 4:3 image, the tallest camera aspect ratio.
+        const val QRScanCropFraction: Float = 0.75f
+        const val QRScanMaxWidth: Int = 960
+        const val QRScanMaxHeight: Int = 720
+
+        // Frames are not scanned for QR codes while the camera moves faster than these speeds,
+        // in meters and degrees per second, or when their average luminance is below the minimum.
+        const val QRScanMaxSpeed: Float = 0.5f
+        const val QRScanMaxAngularSpeed: Float = 90f
+        const val QRScanMinBrightness: Float = 0.08f
+
+        // Margin scanned around a found QR code, as a fraction of its size and at least in pixels,
+        // and scans without a code before scanning the center of the image again.
+        const val QRTrackingPadding: Float = 0.5f
+        const val QRTrackingMinPadding: Int = 48
+        const val QRTrackingMaxMisses: Int = 5
+
+        // Distance between two pixels sampled for the luminance statistics of a frame, in both directions.
+        const val LuminanceSampleStep: Int = 4
+
+        // Frames darker than this average brightness are rejected when the darkness filter is enabled
+        // and the remote config doesn't set a threshold.
+        const val DarknessFilterMinBrightness: Float = 0.03f
+
+        // Whether only the uploaded frame is enhanced, evaluated frames getting a cheap gamma correction
+        // of the model input instead, when the remote config doesn't say.
+        const val IsImageEnhancementDeferred: Boolean = true
+
+        // Blur filter defaults when the remote config doesn't set them: minimum variance of the Laplacian,
+        // fraction of the average variance lost in a sudden drop, and minimum fraction of accepted frames.
+        // The variance is measured on the first luminance pyramid level at most this wide.
+        const val BlurFilterVarianceThreshold: Float = 250f
+        const val BlurFilterSuddenDropThreshold: Float = 0.4f
+        const val BlurFilterAverageThroughputThreshold: Float = 0.25f
+        const val BlurFilterMaxWidth: Int = 320
+
+        // Rotation in degrees since the last accepted frame above which the movement filter accepts a frame,
+        // when the remote config doesn't set one. About what the former pose matrix comparison detected.
+        const val MovementFilterRotationThreshold: Float = 0.06f
+
+        // Frames between two reorderings of the frame filters by cost per rejection.
+        const val FilterReorderInterval: Int = 30
+
+        // Camera poses kept in the trajectory history, about 10 seconds at 30 frames per second.
+        const val TrajectoryCapacity: Int = 300
+
+        // Free camera image buffers kept for reuse, frames in flight are evaluated, scanned or uploaded.
+        const val ImageBufferPoolCapacity: Int = 4
+
+        // Frames handed from the GL thread to the frame consumer and not consumed yet, newer frames are
+        // dropped beyond that.
+        const val FrameHandoffCapacity: Int = 4
+
+        // Maximum width of the camera image read by the frame evaluation and the QR scanner, larger
+        // images are downsampled, the upload keeps the full resolution.
+        const val EvaluationImageMaxWidth: Int = 960
+
         const val defaultConfigId = "default-android_17.01.22"
         const val fileName = "remote_config.json"
     }
@@ -47,13 +47,45 @@ class RemoteConfig {
         @SerializedName("min_frame_evaluation_score")
         var minFrameEvaluationScore: Float,
         @SerializedName("min_frame_evaluation_high_quality_score")
-        var minFrameEvaluationHighQualityScore: Float
+        var minFrameEvaluationHighQualityScore: Float,
+        @SerializedName("localize_max_retries")
+        var localizeMaxRetries: Int? = null,
+        @SerializedName("localize_retry_base_delay")
+        var localizeRetryBaseDelay: Float? = null,
+        @SerializedName("is_localize_hedging_enabled")
+        var isLocalizeHedgingEnabled: Boolean? = null,
+        @SerializedName("qr_decoder")
+        var qrDecoder: String? = null,
+        @SerializedName("is_darkness_filter_enabled")
+        var isDarknessFilterEnabled: Boolean? = null,
+        @SerializedName("darkness_filter_min_brightness")
+        var darknessFilterMinBrightness: Float? = null,
+        @SerializedName("is_image_enhancement_deferred")
+        var isImageEnhancementDeferred: Boolean? = null,
+        @SerializedName("is_blur_filter_enabled")
+        var isBlurFilterEnabled: Boolean? = null,
+        @SerializedName("blur_filter_variance_threshold")
+        var blurFilterVarianceThreshold: Float? = null,
+        @SerializedName("blur_filter_sudden_drop_threshold")
+        var blurFilterSuddenDropThreshold: Float? = null,
+        @SerializedName("blur_filter_average_throughput_threshold")
+        var blurFilterAverageThroughputThreshold: Float? = null,
+        @SerializedName("movement_filter_rotation_threshold")
+        var movementFilterRotationThreshold: Float? = null,
+        @SerializedName("camera_config_policy")
+        var cameraConfigPolicy: String? = null
     )
 
     companion object {
         private val TAG = RemoteConfig::class.java.simpleName
         lateinit var remoteConfig: Config
 
+        /**
+         * Whether a `Config` was loaded, `remoteConfig` can't be read before.
+         */
+        val isLoaded: Boolean
+            get() = this::remoteConfig.isInitialized
+
         /**
          * Updates current `Config`
          * @param context Application context
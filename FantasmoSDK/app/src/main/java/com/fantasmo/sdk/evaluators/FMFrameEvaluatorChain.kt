@@ -3,10 +3,12 @@ package com.fantasmo.sdk.evaluators
 import android.content.Context
 import android.os.Build
 import android.util.Log
+import com.fantasmo.sdk.FMUtility
 import com.fantasmo.sdk.config.RemoteConfig
 import com.fantasmo.sdk.filters.*
 import com.fantasmo.sdk.models.FMFrame
 import com.fantasmo.sdk.models.FMFrameRejectionReason
+import com.fantasmo.sdk.models.analytics.FMFrameFilterStatistics
 import kotlinx.coroutines.*
 
 interface FMFrameEvaluatorChainListener {
@@ -22,17 +24,27 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
 
     val frameEvaluator: FMFrameEvaluator
 
-    private val filters : MutableList<FMFrameFilter> = mutableListOf()
+    private val filters = FMFrameFilterChain()
     private val defaultCoroutineScope = CoroutineScope(Dispatchers.Default)
     private val mainCoroutineScope = CoroutineScope(Dispatchers.Main)
 
     /// Image enhancer, applies gamma correction, nil if disabled via remote config
     private val imageEnhancer: FMImageEnhancer?
 
+    /// Whether the enhancer only corrects the frame picked for upload, see `dequeueBestFrame`
+    private val isImageEnhancementDeferred: Boolean
+
+    /// Best frame of the window, retained until it is replaced, dequeued or the window resets
     private var currentBestFrame: FMFrame? = null
 
+    /// Frame being evaluated, retained until its evaluation is processed
+    @Volatile
     private var evaluatingFrame: FMFrame? = null
 
+    /// Whether a frame is being evaluated, frames passed to `evaluateAsync` meanwhile are rejected
+    val isEvaluating: Boolean
+        get() = evaluatingFrame != null
+
     private var windowStart: Double
 
     private var minWindowTime: Float
@@ -43,35 +55,65 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
 
     private var minHighQualityScore: Float
 
+    /// Factor applied to the min and max window times, raised on slow or metered networks to upload less often
+    @Volatile
+    var windowTimeScale: Float = 1.0f
+
     var listener: FMFrameEvaluatorChainListener? = null
 
+    /// Latency and rejection rate of each filter, in the order they currently run, a new snapshot on each access
+    val filterStatistics: List<FMFrameFilterStatistics>
+        get() = filters.statistics
+
     private val n2s = 1_000_000_000.0
 
     init {
+        // first and never moved, frames that aren't tracking are rejected with the tracking reason
+        // the behavior requester turns into guidance, not with the error of a filter needing a pose
         if (remoteConfig.isTrackingStateFilterEnabled) {
             filters.add(FMTrackingStateFilter())
         }
+        // stateless filters, reordered among themselves by cost per rejection
         if (remoteConfig.isCameraPitchFilterEnabled) {
             val cameraPitchFilter = FMCameraPitchFilter(
                 remoteConfig.cameraPitchFilterMaxDownwardTilt,
                 remoteConfig.cameraPitchFilterMaxUpwardTilt,
                 context
             )
-            filters.add(cameraPitchFilter)
+            filters.add(cameraPitchFilter, isReorderable = true)
         }
+        if (remoteConfig.isDarknessFilterEnabled == true) {
+            val darknessFilter = FMDarknessFilter(
+                remoteConfig.darknessFilterMinBrightness ?: FMUtility.Constants.DarknessFilterMinBrightness
+            )
+            filters.add(darknessFilter, isReorderable = true)
+        }
+        // last and in a fixed order, these filters keep state about the frames they accept, so
+        // they must see the same frames whatever the order of the filters above
         if (remoteConfig.isMovementFilterEnabled) {
             val movementFilter = FMMovementFilter(
-                remoteConfig.movementFilterThreshold
+                remoteConfig.movementFilterThreshold,
+                remoteConfig.movementFilterRotationThreshold ?: FMUtility.Constants.MovementFilterRotationThreshold
             )
             filters.add(movementFilter)
         }
+        if (remoteConfig.isBlurFilterEnabled == true) {
+            val blurFilter = FMBlurFilter(
+                remoteConfig.blurFilterVarianceThreshold ?: FMUtility.Constants.BlurFilterVarianceThreshold,
+                remoteConfig.blurFilterSuddenDropThreshold ?: FMUtility.Constants.BlurFilterSuddenDropThreshold,
+                remoteConfig.blurFilterAverageThroughputThreshold ?: FMUtility.Constants.BlurFilterAverageThroughputThreshold
+            )
+            filters.add(blurFilter)
+        }
 
         // configure the image enhancer, if enabled
         imageEnhancer = if (Build.VERSION.SDK_INT > Build.VERSION_CODES.KITKAT_WATCH && remoteConfig.isImageEnhancerEnabled) {
-            FMImageEnhancer(remoteConfig.imageEnhancerTargetBrightness, context)
+            FMImageEnhancer(remoteConfig.imageEnhancerTargetBrightness)
         } else {
             null
         }
+        isImageEnhancementDeferred = remoteConfig.isImageEnhancementDeferred
+            ?: FMUtility.Constants.IsImageEnhancementDeferred
 
         frameEvaluator = FMImageQualityEvaluator.makeEvaluator(context)
 
@@ -91,24 +133,38 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
             return
         }
 
-        // run frame through filters
-        var filterResult: FMFrameFilterResult = FMFrameFilterResult.Accepted
-        for (filter in filters) {
-            filterResult = filter.accepts(fmFrame)
-            if (filterResult != FMFrameFilterResult.Accepted) {
-                filterResult.getRejectedReason()
-                    ?.let { listener?.didRejectFrameWithFilter(this, fmFrame, filter, it) }
-                return
-            }
+        // frames admitted while another one was evaluated carry no image, they can be neither
+        // evaluated nor uploaded, so they are skipped rather than reported as rejected
+        if (fmFrame.yuvImage == null) {
+            Log.d(TAG, "No camera image, skipping frame ${fmFrame.timestamp}")
+            return
+        }
+
+        // run frame through filters, cheapest and most selective first
+        val accepted = filters.accepts(fmFrame) { filter, filterResult ->
+            filterResult.getRejectedReason()
+                ?.let { listener?.didRejectFrameWithFilter(this, fmFrame, filter, it) }
+        }
+        if (!accepted) {
+            return
         }
 
-        // set a flag so we can only process one frame at a time
+        // set a flag so we can only process one frame at a time, the evaluation keeps the image
+        fmFrame.retain()
         evaluatingFrame = fmFrame
         // begin async stuff
         defaultCoroutineScope.launch {
+            // computed once here, read by the enhancer and the session statistics
+            fmFrame.luminanceStatistics
+
             // enhance image, apply gamma correction if too dark
             if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                imageEnhancer?.enhance(fmFrame)
+                if (isImageEnhancementDeferred) {
+                    // the evaluator corrects its downscaled input, the full image is only corrected if uploaded
+                    fmFrame.pendingImageGamma = imageEnhancer?.solveGamma(fmFrame)
+                } else {
+                    imageEnhancer?.enhance(fmFrame)
+                }
             }
 
             // evaluate the frame using the configured evaluator
@@ -123,6 +179,7 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
         }
     }
 
+    @Synchronized
     private fun processEvaluation(evaluation: FMFrameEvaluation) {
         val fmFrame = evaluatingFrame
         if (fmFrame == null) {
@@ -137,16 +194,20 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
         if (evaluation.score < minScoreThreshold) {
             Log.d(TAG, "Frame ${fmFrame.timestamp} score ${evaluation.score} below threshold")
             listener?.didRejectFrame(this, fmFrame, FMFrameRejectionReason.SCORE_BELOW_MIN_THRESHOLD)
+            fmFrame.release()
         }
         // check if the new frame score is better than our current best frame score, otherwise return
 
         else if(currentBestScore != null && currentBestScore > evaluation.score) {
             Log.d(TAG, "Frame ${fmFrame.timestamp} score ${evaluation.score} below current best score")
             listener?.didRejectFrame(this, fmFrame, FMFrameRejectionReason.SCORE_BELOW_CURRENT_BEST)
+            fmFrame.release()
         }
         else {
             // frame is the new best, update our saved reference and notify the delegate
             Log.d(TAG, "Frame ${fmFrame.timestamp} score ${evaluation.score} new best")
+            // the reference taken for the evaluation now keeps the best frame
+            currentBestFrame?.release()
             currentBestFrame = fmFrame
             listener?.didEvaluateNewBestFrame(this, fmFrame)
         }
@@ -155,6 +216,11 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
         listener?.didFinishEvaluatingFrame(this, fmFrame)
     }
 
+    /**
+     * Returns the best frame of the window once it is good enough or the window is over, and starts a new window.
+     * The frame stays retained for the caller, which must release it once its upload is done.
+     */
+    @Synchronized
     fun dequeueBestFrame() : FMFrame? {
         val evaluation = currentBestFrame?.evaluation
         if (currentBestFrame == null || evaluation == null) {
@@ -162,14 +228,20 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
         }
         val currentTime = System.nanoTime() / n2s
         val timeElapsed = currentTime - windowStart
-        if (timeElapsed < minWindowTime) {
+        if (timeElapsed < minWindowTime * windowTimeScale) {
             return null
         }
 
+        val maxWindowTime = maxWindowTime * windowTimeScale
         if (evaluation.score >= minHighQualityScore || timeElapsed >= maxWindowTime) {
             Log.d(TAG, "Time elapsed $timeElapsed, max window time $maxWindowTime\nscore ${evaluation.score}, min high quality score $minHighQualityScore, dequeuing frame")
             val returnFrame = currentBestFrame
+            // the reference that kept the best frame is handed to the caller
+            currentBestFrame = null
             resetWindow()
+            if (returnFrame != null && isImageEnhancementDeferred && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                imageEnhancer?.enhance(returnFrame)
+            }
             return returnFrame
         }
         return null
@@ -180,8 +252,10 @@ class FMFrameEvaluatorChain (remoteConfig: RemoteConfig.Config, context: Context
             defaultCoroutineScope.cancel()
     }
 
+    @Synchronized
     fun resetWindow() {
         windowStart = System.nanoTime() / n2s
+        currentBestFrame?.release()
         currentBestFrame = null
         listener?.didStartWindow(this, windowStart)
     }
@@ -64,6 +64,9 @@ internal class FMImageQualityEvaluatorTFLite(val context: Context) :
 
     private val yuvToRgbConverter = YuvToRgbConverter(context)
 
+    // Corrects the model input of frames whose enhancement is deferred to upload
+    private val tensorGammaCorrection = FMTensorGammaCorrection()
+
     /**
      * ImageQualityEstimatorModel initializer.
      */
@@ -85,13 +88,14 @@ internal class FMImageQualityEvaluatorTFLite(val context: Context) :
             return makeEvaluation(Error.FAILED_TO_CREATE_MODEL)
         }
 
-        val yuvImage = fmFrame.yuvImage
+        val yuvImage = fmFrame.evaluationImage
         if (yuvImage == null) {
             // The frame being null means it's no longer available to send in the request
             Log.e(TAG, "Failed to create Input Array")
             return makeEvaluation(Error.FAILED_TO_CREATE_INPUT_ARRAY)
         } else {
             val rgbImage : FloatArray = yuvToRgbConverter.toTensor(yuvImage, imageWidth, imageHeight)
+            fmFrame.pendingImageGamma?.let { tensorGammaCorrection.apply(rgbImage, it) }
 
             val score = processImage(rgbImage)
 
@@ -0,0 +1,59 @@
+package com.fantasmo.sdk.evaluators
+
+import kotlin.math.pow
+
+/**
+ * Applies a gamma correction to the normalized RGB tensor given to the image quality model,
+ * so a dark frame is scored as it will look once enhanced without correcting the full image.
+ * The tensor is planar, one channel after the other, each value being `(v - mean) / std` with `v`
+ * between 0 and 1, as made by the `make_tf_tensor` RenderScript kernel.
+ * Corrected values are read from a table of `Levels` entries per channel, rebuilt when the gamma changes.
+ */
+internal class FMTensorGammaCorrection {
+
+    private val tables = Array(3) { FloatArray(Levels) }
+    private var tableGamma: Float? = null
+
+    /**
+     * Corrects the tensor in place.
+     * @param tensor planar RGB tensor
+     * @param gamma gamma to apply, below 1 to brighten
+     */
+    fun apply(tensor: FloatArray, gamma: Float) {
+        if (tableGamma != gamma) {
+            buildTables(gamma)
+        }
+        val channelSize = tensor.size / 3
+        for (channel in 0..2) {
+            val table = tables[channel]
+            val mean = Mean[channel]
+            val std = Std[channel]
+            val scale = std * (Levels - 1)
+            val offset = mean * (Levels - 1) + 0.5f
+            val end = (channel + 1) * channelSize
+            for (i in channel * channelSize until end) {
+                val level = (tensor[i] * scale + offset).toInt().coerceIn(0, Levels - 1)
+                tensor[i] = table[level]
+            }
+        }
+    }
+
+    private fun buildTables(gamma: Float) {
+        for (channel in 0..2) {
+            val table = tables[channel]
+            for (level in 0 until Levels) {
+                val value = (level.toDouble() / (Levels - 1)).pow(gamma.toDouble()).toFloat()
+                table[level] = (value - Mean[channel]) / Std[channel]
+            }
+        }
+        tableGamma = gamma
+    }
+
+    companion object {
+        private const val Levels = 1024
+
+        // Normalization of the model input, same as `translate` and `scale` in the RenderScript kernel
+        private val Mean = floatArrayOf(0.485f, 0.456f, 0.406f)
+        private val Std = floatArrayOf(0.229f, 0.224f, 0.225f)
+    }
+}
@@ -0,0 +1,149 @@
+package com.fantasmo.sdk.filters
+
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameRejectionReason
+import com.fantasmo.sdk.models.FMLuminancePyramid
+import com.fantasmo.sdk.utilities.MovingAverage
+
+/**
+ * Class responsible for filtering blurry frames before they reach the image quality evaluator.
+ * Sharpness is measured as the variance of the Laplacian of the luminance downsampled to at most
+ * `BlurFilterMaxWidth` pixels wide, the width the threshold was tuned at, starting from the smallest
+ * level of the frame's luminance pyramid that still gives that width.
+ * A frame is blurry when its variance is below the threshold, or drops suddenly compared to the previous frames.
+ * Initializes with the variance threshold, the fraction of the average variance a sudden drop loses,
+ * and the fraction of frames that must get through, below which blurry frames are accepted anyway
+ * so localization doesn't stall in a poorly textured place.
+ */
+internal class FMBlurFilter(
+    private val varianceThreshold: Float,
+    private val suddenDropThreshold: Float,
+    private val averageThroughputThreshold: Float
+) : FMFrameFilter {
+    override val TAG = FMBlurFilter::class.java.simpleName
+
+    private val varianceAverager = MovingAverage(AveragePeriod)
+    private val throughputAverager = MovingAverage(AveragePeriod)
+
+    // Downsampled luminance, reused between frames
+    private var downsampled = IntArray(0)
+
+    /**
+     * Check frame acceptance.
+     * @param fmFrame Frame to be evaluated
+     * @return Accepts frame or Rejects frame with ImageTooBlurry failure
+     */
+    override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
+        val pyramid = fmFrame.luminancePyramid ?: return FMFrameFilterResult.Accepted
+        val level = sampledLevel(pyramid)
+        val variance = calculateVariance(pyramid.data(level), pyramid.width(level), pyramid.height(level))
+
+        val averageVariance = varianceAverager.average
+        varianceAverager.addSample(variance.toFloat())
+        val isLowVariance = variance < varianceThreshold
+        val isSuddenDrop = averageVariance > 0f && variance < averageVariance * (1f - suddenDropThreshold)
+        val isBlurry = isLowVariance || isSuddenDrop
+        throughputAverager.addSample(if (isBlurry) 0f else 1f)
+
+        // if not enough frames are getting through, let blurry ones pass rather than never localizing
+        return if (isBlurry && throughputAverager.average >= averageThroughputThreshold) {
+            FMFrameFilterResult.Rejected(FMFrameRejectionReason.IMAGE_TOO_BLURRY)
+        } else {
+            FMFrameFilterResult.Accepted
+        }
+    }
+
+    /**
+     * Smallest pyramid level downsampled to the same width as the largest one, e.g. the 960 pixels
+     * wide level of a 1920 pixels image (step 3) rather than the 240 pixels one, both give 320 pixels.
+     */
+    fun sampledLevel(pyramid: FMLuminancePyramid): Int {
+        var bestLevel = 0
+        var bestWidth = 0
+        for (level in 0 until FMLuminancePyramid.LevelCount) {
+            val width = pyramid.width(level)
+            val sampledWidth = width / step(width)
+            if (sampledWidth >= bestWidth) {
+                bestLevel = level
+                bestWidth = sampledWidth
+            }
+        }
+        return bestLevel
+    }
+
+    /**
+     * Variance of the Laplacian of the downsampled luminance, higher is sharper.
+     * @param luminance image data, starting with the Y plane
+     * @param width width of the image
+     * @param height height of the image
+     */
+    fun calculateVariance(luminance: ByteArray, width: Int, height: Int): Double {
+        val step = step(width)
+        val sampledWidth = width / step
+        val sampledHeight = height / step
+        if (sampledWidth < 3 || sampledHeight < 3) {
+            return 0.0
+        }
+        downsample(luminance, width, step, sampledWidth, sampledHeight)
+
+        // 4-neighbour Laplacian over the interior pixels
+        var sum = 0.0
+        var sumOfSquares = 0.0
+        for (y in 1 until sampledHeight - 1) {
+            var index = y * sampledWidth + 1
+            for (x in 1 until sampledWidth - 1) {
+                val laplacian = 4 * downsampled[index] - downsampled[index - 1] - downsampled[index + 1] -
+                        downsampled[index - sampledWidth] - downsampled[index + sampledWidth]
+                sum += laplacian
+                sumOfSquares += laplacian.toDouble() * laplacian
+                index++
+            }
+        }
+        val count = (sampledWidth - 2) * (sampledHeight - 2)
+        val mean = sum / count
+        return sumOfSquares / count - mean * mean
+    }
+
+    // Block size bringing `width` to at most `BlurFilterMaxWidth`
+    private fun step(width: Int): Int {
+        val maxWidth = FMUtility.Constants.BlurFilterMaxWidth
+        return maxOf(1, (width + maxWidth - 1) / maxWidth)
+    }
+
+    // Averages each step x step block of luminance into `downsampled`
+    private fun downsample(luminance: ByteArray, width: Int, step: Int, sampledWidth: Int, sampledHeight: Int) {
+        val size = sampledWidth * sampledHeight
+        if (downsampled.size != size) {
+            downsampled = IntArray(size)
+        }
+        if (step == 1) {
+            for (y in 0 until sampledHeight) {
+                val row = y * width
+                val out = y * sampledWidth
+                for (x in 0 until sampledWidth) {
+                    downsampled[out + x] = luminance[row + x].toInt() and 0xFF
+                }
+            }
+            return
+        }
+        val area = step * step
+        for (y in 0 until sampledHeight) {
+            for (x in 0 until sampledWidth) {
+                var blockSum = 0
+                var row = y * step * width + x * step
+                for (dy in 0 until step) {
+                    for (dx in 0 until step) {
+                        blockSum += luminance[row + dx].toInt() and 0xFF
+                    }
+                    row += width
+                }
+                downsampled[y * sampledWidth + x] = blockSum / area
+            }
+        }
+    }
+
+    companion object {
+        private const val AveragePeriod = 8
+    }
+}
@@ -1,14 +1,12 @@
 package com.fantasmo.sdk.filters
 
 import android.content.Context
-import android.os.Build
-import android.view.Display
 import android.view.Surface
-import android.view.WindowManager
 import com.fantasmo.sdk.FMUtility.Companion.convertQuaternionToEuler
 import com.fantasmo.sdk.FMUtility.Companion.convertToDegrees
 import com.fantasmo.sdk.models.FMFrame
 import com.fantasmo.sdk.models.FMFrameRejectionReason
+import com.fantasmo.sdk.utilities.DisplayRotationState
 
 /**
  * Class responsible for filtering frames due to critical angles.
@@ -23,47 +21,48 @@ internal class FMCameraPitchFilter(
 ) : FMFrameFilter {
     override val TAG = FMCameraPitchFilter::class.java.simpleName
 
-    private val interval = if(lookDownThreshold < 0){
-        lookDownThreshold..lookUpThreshold
-    }else {
-        (-lookDownThreshold)..lookUpThreshold
-    }
+    // Kept as primitives, a range check would box the pitch
+    private val minPitch = if(lookDownThreshold < 0) lookDownThreshold else -lookDownThreshold
+    private val maxPitch = lookUpThreshold
+
+    // Scratch buffer for the Euler angles of the display oriented pose
+    private val orientedAngles = FloatArray(3)
+
+    private val pitchTooHigh = FMFrameFilterResult.Rejected(FMFrameRejectionReason.PITCH_TOO_HIGH)
+    private val pitchTooLow = FMFrameFilterResult.Rejected(FMFrameRejectionReason.PITCH_TOO_LOW)
+
     /**
      * Check frame acceptance.
      * @param arFrame Frame to be evaluated
      * @return Accepts frame or Rejects frame with PitchTooHigh or PitchTooLow failure
      */
     override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
-        // RotationQuaternion virtual camera pose
-        val orientedQuaternion = fmFrame.camera.displayOrientedPose.rotationQuaternion
-        // RotationQuaternion from device sensor system
-        val sensorQuaternion = fmFrame.androidSensorPose?.rotationQuaternion
+        // Pose from device sensor system, its Euler angles are cached by the frame
+        val sensorPose = fmFrame.androidSensorPose
             ?: return FMFrameFilterResult.Rejected(FMFrameRejectionReason.FRAME_ERROR)
 
-        val rotation: Int = if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            context.display?.rotation!!
-        } else {
-            val wm = context.getSystemService(Context.WINDOW_SERVICE) as WindowManager
-            val display: Display = wm.defaultDisplay
-            display.rotation
-        }
+        val rotation: Int = DisplayRotationState.getRotation(context)
 
         return when (rotation) {
             // SCREEN_ORIENTATION_REVERSE_LANDSCAPE
             Surface.ROTATION_270 -> {
-                return checkTilt(orientedQuaternion, 1)
+                return checkOrientedTilt(fmFrame)
             }
             // SCREEN_ORIENTATION_LANDSCAPE
             Surface.ROTATION_90 -> {
-                return checkTilt(orientedQuaternion, 1)
+                return checkOrientedTilt(fmFrame)
             }
             // SCREEN_ORIENTATION_PORTRAIT
             Surface.ROTATION_0 -> {
-                return checkTilt(sensorQuaternion, -1)
+                val sensorAngles = fmFrame.sensorAngles
+                    ?: return FMFrameFilterResult.Rejected(FMFrameRejectionReason.FRAME_ERROR)
+                return checkTilt(sensorAngles[0], sensorPose.qx(), -1)
             }
             // SCREEN_ORIENTATION_REVERSE_PORTRAIT
             Surface.ROTATION_180 -> {
-                return checkTilt(sensorQuaternion, -1)
+                val sensorAngles = fmFrame.sensorAngles
+                    ?: return FMFrameFilterResult.Rejected(FMFrameRejectionReason.FRAME_ERROR)
+                return checkTilt(sensorAngles[0], sensorPose.qx(), -1)
             }
             else -> {
                 FMFrameFilterResult.Accepted
@@ -71,29 +70,49 @@ internal class FMCameraPitchFilter(
         }
     }
 
+    /**
+     * Verifies the tilt of the virtual camera pose, used in landscape
+     * @param fmFrame frame to be evaluated
+     * @return FMFrameFilterResult
+     */
+    private fun checkOrientedTilt(fmFrame: FMFrame): FMFrameFilterResult {
+        val orientedPose = fmFrame.displayOrientedPose
+        convertToDegrees(
+            convertQuaternionToEuler(
+                orientedPose.qx(),
+                orientedPose.qy(),
+                orientedPose.qz(),
+                orientedPose.qw(),
+                orientedAngles
+            )
+        )
+        return checkTilt(orientedAngles[0], orientedPose.qx(), 1)
+    }
+
     /**
      * Verifies if tilt angle is acceptable, high or low
-     * @param rotationQuaternion rotation quaternion correspondent to rotation of the device
+     * @param pitch pitch of the device in degrees
+     * @param qx x component of the rotation quaternion correspondent to rotation of the device
      * @param orientationSign device orientation
      * @return FMFrameFilterResult
      */
     private fun checkTilt(
-        rotationQuaternion: FloatArray,
+        pitch: Float,
+        qx: Float,
         orientationSign: Int
     ): FMFrameFilterResult {
-        val eulerAngles = convertToDegrees(convertQuaternionToEuler(rotationQuaternion))
         return when {
             // If it's looking Up or Down and it's in threshold
-            (eulerAngles[0] in interval) -> {
+            (pitch >= minPitch && pitch <= maxPitch) -> {
                 FMFrameFilterResult.Accepted
             }
             // If it's looking Up
-            rotationQuaternion[0] * orientationSign < 0 -> {
-                FMFrameFilterResult.Rejected(FMFrameRejectionReason.PITCH_TOO_HIGH)
+            qx * orientationSign < 0 -> {
+                pitchTooHigh
             }
             // Else it's looking Down
             else -> {
-                FMFrameFilterResult.Rejected(FMFrameRejectionReason.PITCH_TOO_LOW)
+                pitchTooLow
             }
         }
     }
@@ -0,0 +1,26 @@
+package com.fantasmo.sdk.filters
+
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameRejectionReason
+
+/**
+ * Class responsible for filtering frames too dark to be localized, even after gamma correction.
+ * Initializes with the minimum average brightness, between 0 and 1
+ */
+internal class FMDarknessFilter(private val minBrightness: Float) : FMFrameFilter {
+    override val TAG = FMDarknessFilter::class.java.simpleName
+
+    /**
+     * Check frame acceptance.
+     * @param fmFrame Frame to be evaluated
+     * @return Accepts frame or Rejects frame with ImageTooDark failure
+     */
+    override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
+        val statistics = fmFrame.luminanceStatistics ?: return FMFrameFilterResult.Accepted
+        return if (statistics.mean < minBrightness) {
+            FMFrameFilterResult.Rejected(FMFrameRejectionReason.IMAGE_TOO_DARK)
+        } else {
+            FMFrameFilterResult.Accepted
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.fantasmo.sdk.filters
+
+import android.util.Log
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.analytics.FMFrameFilterStatistics
+
+/**
+ * Runs frames through the filters until one rejects them, keeping the latency and rejection
+ * rate of each filter.
+ * Every `reorderInterval` frames, reorderable filters are sorted by their expected cost per rejection,
+ * average latency divided by rejection rate, so cheap filters that often reject run first and
+ * the frames they reject never reach the expensive ones. Only filters that keep no state and don't
+ * depend on running after another filter can be reordered, and only within each run of consecutive
+ * reorderable filters, so the other filters keep their position and always see the same frames.
+ * @param reorderInterval frames between two reorderings
+ * @param clock time source in nanoseconds, replaceable for testing
+ */
+internal class FMFrameFilterChain(
+    private val reorderInterval: Int = FMUtility.Constants.FilterReorderInterval,
+    private val clock: () -> Long = { System.nanoTime() }
+) {
+    private val TAG = FMFrameFilterChain::class.java.simpleName
+
+    private class Entry(val filter: FMFrameFilter, val isReorderable: Boolean) {
+        var runs = 0
+        var rejections = 0
+        var totalTime = 0L
+        val latencyHistogram = IntArray(FMFrameFilterStatistics.LatencyBucketBounds.size + 1)
+
+        // Expected time spent per rejected frame, the rejection rate is smoothed so filters
+        // that rarely ran are neither put first nor last for good
+        val costPerRejection: Double
+            get() {
+                val averageLatency = if (runs > 0) totalTime.toDouble() / runs else 0.0
+                val rejectionRate = (rejections + 1.0) / (runs + 2.0)
+                return averageLatency / rejectionRate
+            }
+
+        fun add(latency: Long, rejected: Boolean) {
+            runs++
+            if (rejected) {
+                rejections++
+            }
+            totalTime += latency
+            val micros = latency / 1_000
+            var bucket = 0
+            while (bucket < FMFrameFilterStatistics.LatencyBucketBounds.size &&
+                micros > FMFrameFilterStatistics.LatencyBucketBounds[bucket]) {
+                bucket++
+            }
+            latencyHistogram[bucket]++
+        }
+    }
+
+    private val entries = mutableListOf<Entry>()
+    private var framesSinceReorder = 0
+
+    /**
+     * Filters in the order they currently run.
+     */
+    val filters: List<FMFrameFilter>
+        get() = entries.map { it.filter }
+
+    /**
+     * Appends a filter to the chain.
+     * @param isReorderable whether the filter can be moved around the adjacent reorderable filters
+     */
+    fun add(filter: FMFrameFilter, isReorderable: Boolean = false) {
+        entries.add(Entry(filter, isReorderable))
+    }
+
+    /**
+     * Runs the frame through the filters, stopping at the first rejection.
+     * @param fmFrame frame to filter
+     * @param onRejected called with the filter that rejected the frame and its result
+     * @return `true` if every filter accepted the frame
+     */
+    fun accepts(fmFrame: FMFrame, onRejected: (FMFrameFilter, FMFrameFilterResult) -> Unit): Boolean {
+        var accepted = true
+        for (entry in entries) {
+            val start = clock()
+            val result = entry.filter.accepts(fmFrame)
+            val rejected = result != FMFrameFilterResult.Accepted
+            entry.add(clock() - start, rejected)
+            if (rejected) {
+                onRejected(entry.filter, result)
+                accepted = false
+                break
+            }
+        }
+        if (++framesSinceReorder >= reorderInterval) {
+            framesSinceReorder = 0
+            reorder()
+        }
+        return accepted
+    }
+
+    /**
+     * Statistics of every filter, in the order they currently run.
+     */
+    val statistics: List<FMFrameFilterStatistics>
+        get() = entries.mapIndexed { position, entry ->
+            FMFrameFilterStatistics(
+                entry.filter.TAG,
+                position,
+                entry.runs,
+                entry.rejections,
+                if (entry.runs > 0) entry.totalTime / 1_000_000.0 / entry.runs else 0.0,
+                entry.latencyHistogram.copyOf()
+            )
+        }
+
+    private fun reorder() {
+        val previous = entries.toList()
+        var runStart = 0
+        while (runStart < entries.size) {
+            if (!entries[runStart].isReorderable) {
+                runStart++
+                continue
+            }
+            var runEnd = runStart + 1
+            while (runEnd < entries.size && entries[runEnd].isReorderable) {
+                runEnd++
+            }
+            // stable, filters with the same cost keep their registration order
+            entries.subList(runStart, runEnd).sortBy { it.costPerRejection }
+            runStart = runEnd
+        }
+        if (entries != previous) {
+            Log.d(TAG, "Filter order: ${entries.joinToString { it.filter.TAG }}")
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.fantasmo.sdk.filters
+
+import kotlin.math.ln
+import kotlin.math.pow
+import kotlin.math.roundToInt
+
+/**
+ * Finds the gamma correction bringing the mean brightness of an image to a target, and keeps
+ * the lookup tables of every gamma it can return.
+ * Gammas are quantized by `step` between `minGamma` and 1, so the corrected bin values and the
+ * lookup tables are computed once per gamma and reused for every frame.
+ * @param minGamma strongest correction allowed, gammas below it would wash the image out
+ * @param step distance between two consecutive gammas
+ */
+internal class FMGammaSolver(
+    private val minGamma: Float = 0.1f,
+    private val step: Float = 0.01f
+) {
+    /**
+     * Number of gammas the solver can return, index 0 is `minGamma` and the last one is 1.
+     */
+    val gammaCount = ((1f - minGamma) / step).roundToInt() + 1
+
+    // Corrected brightness of each histogram bin for each gamma, computed on first use
+    private val binValues = arrayOfNulls<FloatArray>(gammaCount)
+
+    // Lookup tables from luminance to corrected luminance for each gamma, computed on first use
+    private val luts = arrayOfNulls<ByteArray>(gammaCount)
+
+    /**
+     * Number of passes over a histogram since creation, one per `brightness` call.
+     */
+    var brightnessEvaluations: Long = 0
+        private set
+
+    fun gamma(index: Int): Float {
+        return if (index == gammaCount - 1) 1f else minGamma + index * step
+    }
+
+    /**
+     * Mean brightness of an image with the given histogram, once the gamma at `index` is applied.
+     */
+    fun brightness(histogram: IntArray, index: Int): Double {
+        brightnessEvaluations++
+        val values = binValues(index)
+        var sum = 0.0
+        var count = 0L
+        for (i in 0..255) {
+            sum += values[i] * histogram[i]
+            count += histogram[i]
+        }
+        return if (count == 0L) 0.0 else sum / count
+    }
+
+    /**
+     * Finds the weakest correction that brings the mean brightness up to the target.
+     * The closed-form gamma of an image whose pixels all have the mean brightness is used as first
+     * guess, then a binary search over the quantized gammas refines it, so the number of steps is
+     * bounded by log2(`gammaCount`) + 1 whatever the histogram.
+     * @param histogram 256-bin luminance histogram
+     * @param targetBrightness target mean brightness, between 0 and 1
+     * @return index of the gamma to apply, `null` if the image is already bright enough
+     */
+    fun solve(histogram: IntArray, targetBrightness: Float): Int? {
+        val last = gammaCount - 1
+        val mean = brightness(histogram, last)
+        if (mean >= targetBrightness) {
+            return null
+        }
+        // a black image can't be corrected, apply the strongest correction
+        if (mean <= 0.0) {
+            return 0
+        }
+        // brightness decreases when gamma increases, find the largest gamma reaching the target
+        val estimate = ln(targetBrightness.toDouble()) / ln(mean)
+        val guess = ((estimate - minGamma) / step).roundToInt().coerceIn(0, last)
+        var low: Int
+        var high: Int
+        if (brightness(histogram, guess) >= targetBrightness) {
+            low = guess
+            high = last
+        } else {
+            low = 0
+            high = guess
+        }
+        // invariant: the target is reached at low (or low is 0), not at high
+        while (high - low > 1) {
+            val middle = (low + high) ushr 1
+            if (brightness(histogram, middle) >= targetBrightness) {
+                low = middle
+            } else {
+                high = middle
+            }
+        }
+        return low
+    }
+
+    /**
+     * Lookup table from luminance to corrected luminance for the gamma at `index`.
+     */
+    fun lut(index: Int): ByteArray {
+        luts[index]?.let { return it }
+        val values = binValues(index)
+        val lut = ByteArray(256)
+        for (i in 0..255) {
+            lut[i] = (values[i] * 256.0).toInt().coerceAtMost(255).toByte()
+        }
+        luts[index] = lut
+        return lut
+    }
+
+    /**
+     * Applies the gamma at `index` in place.
+     * @param luminance image data, starting with the Y plane
+     * @param size number of luminance bytes to correct, the rest of the data (chroma) is left untouched
+     */
+    fun apply(index: Int, luminance: ByteArray, size: Int) {
+        val lut = lut(index)
+        for (i in 0 until size) {
+            luminance[i] = lut[luminance[i].toInt() and 0xFF]
+        }
+    }
+
+    private fun binValues(index: Int): FloatArray {
+        binValues[index]?.let { return it }
+        val gamma = gamma(index).toDouble()
+        val values = FloatArray(256)
+        for (i in 0..255) {
+            values[i] = (i / 256.0).pow(gamma).toFloat()
+        }
+        binValues[index] = values
+        return values
+    }
+}
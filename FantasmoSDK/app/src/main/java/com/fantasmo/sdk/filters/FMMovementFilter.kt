@@ -1,53 +1,90 @@
 package com.fantasmo.sdk.filters
 
+import com.fantasmo.sdk.FMUtility
 import com.fantasmo.sdk.models.FMFrame
 import com.fantasmo.sdk.models.FMFrameRejectionReason
-import kotlin.math.abs
+import com.google.ar.core.Pose
+import kotlin.math.sin
 
 /**
  * Class responsible for filtering frames due to the lack of movement.
  * Prevents from sending repeated values to the backend.
- * Initializes with sideways movement Threshold in meters
+ * Initializes with the sideways movement threshold in meters and the rotation threshold in degrees,
+ * a frame is accepted when the camera moved or turned more than either since the last accepted frame.
+ * Runs on every frame, so it compares poses in preallocated arrays and allocates nothing.
  */
-internal class FMMovementFilter(private val movementFilterThreshold: Float) : FMFrameFilter {
+internal class FMMovementFilter(
+    translationThreshold: Float,
+    rotationThreshold: Float = FMUtility.Constants.MovementFilterRotationThreshold
+) : FMFrameFilter {
     override val TAG = FMMovementFilter::class.java.simpleName
 
-    // Previous frame translation
-    private var lastTransform: FloatArray = floatArrayOf(
-        1f, 0f, 0f, 0f,
-        0f, 1f, 0f, 0f,
-        0f, 0f, 1f, 0f,
-        0f, 0f, 0f, 1f)
+    // Compared squared, the rotation as the squared sine of half the angle between the two rotations
+    private val squaredTranslationThreshold = translationThreshold.toDouble() * translationThreshold
+    private val squaredRotationThreshold = sin(Math.toRadians(rotationThreshold / 2.0)).let { it * it }
+
+    // Last accepted camera pose, starting at the origin of the session
+    private val lastTranslation = floatArrayOf(0f, 0f, 0f)
+    private val lastRotation = floatArrayOf(0f, 0f, 0f, 1f)
+
+    // Pose of the frame being evaluated
+    private val translation = FloatArray(3)
+    private val rotation = FloatArray(4)
+
+    private val rejectedResult = FMFrameFilterResult.Rejected(FMFrameRejectionReason.MOVING_TOO_LITTLE)
 
     /**
      * Check frame acceptance.
-     * @param arFrame Frame to be evaluated
+     * @param fmFrame Frame to be evaluated
      * @return Accepts frame or Rejects frame with MovingTooLittle failure
      */
     override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
+        // not tracking, left to the tracking state filter
+        val pose = fmFrame.cameraPose ?: return FMFrameFilterResult.Accepted
+        return accepts(pose)
+    }
 
-         val newTransform = FloatArray(16)
-        fmFrame.camera.pose.toMatrix(newTransform, 0)
-        
-        return if (exceededThreshold(newTransform)) {
-            lastTransform = newTransform
+    /**
+     * Check the acceptance of a camera pose, updating the last accepted pose if accepted.
+     */
+    fun accepts(pose: Pose): FMFrameFilterResult {
+        pose.getTranslation(translation, 0)
+        pose.getRotationQuaternion(rotation, 0)
+
+        return if (exceededThreshold()) {
+            System.arraycopy(translation, 0, lastTranslation, 0, 3)
+            System.arraycopy(rotation, 0, lastRotation, 0, 4)
             FMFrameFilterResult.Accepted
         } else {
-            FMFrameFilterResult.Rejected(FMFrameRejectionReason.MOVING_TOO_LITTLE)
+            rejectedResult
         }
     }
 
     /**
-     * Check if frame translation has exceeded threshold
-     * @param newTransform Frame translation
-     * @return If frame translation is within (false) or without threshold (true)
+     * Check if the camera moved or turned more than the thresholds since the last accepted pose
+     * @return If frame movement is within (false) or without threshold (true)
      */
-    private fun exceededThreshold(newTransform: FloatArray?): Boolean {
-        newTransform?.forEachIndexed { index, value ->
-            if (abs(value - lastTransform[index]) > movementFilterThreshold) {
-                return true
-            }
+    private fun exceededThreshold(): Boolean {
+        val dx = (translation[0] - lastTranslation[0]).toDouble()
+        val dy = (translation[1] - lastTranslation[1]).toDouble()
+        val dz = (translation[2] - lastTranslation[2]).toDouble()
+        if (dx * dx + dy * dy + dz * dz > squaredTranslationThreshold) {
+            return true
         }
-        return false
+
+        // vector part of the rotation from the last pose to this one, its norm is the sine of half
+        // the angle, precise for the small angles compared here unlike the cosine
+        val aw = lastRotation[3].toDouble()
+        val ax = lastRotation[0].toDouble()
+        val ay = lastRotation[1].toDouble()
+        val az = lastRotation[2].toDouble()
+        val bw = rotation[3].toDouble()
+        val bx = rotation[0].toDouble()
+        val by = rotation[1].toDouble()
+        val bz = rotation[2].toDouble()
+        val x = aw * bx - ax * bw - ay * bz + az * by
+        val y = aw * by + ax * bz - ay * bw - az * bx
+        val z = aw * bz - ax * by + ay * bx - az * bw
+        return x * x + y * y + z * z > squaredRotationThreshold
     }
-}
\ No newline at end of file
+}
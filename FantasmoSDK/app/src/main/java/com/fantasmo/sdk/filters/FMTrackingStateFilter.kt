@@ -13,15 +13,15 @@ internal class FMTrackingStateFilter : FMFrameFilter {
     override val TAG = FMTrackingStateFilter::class.java.simpleName
 
     override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
-        if (fmFrame.camera.trackingState == TrackingState.TRACKING) {
+        if (fmFrame.trackingState == TrackingState.TRACKING) {
             //Normal behavior
             return FMFrameFilterResult.Accepted
-        } else if (fmFrame.camera.trackingState == TrackingState.PAUSED &&
-            fmFrame.camera.trackingFailureReason == TrackingFailureReason.NONE
+        } else if (fmFrame.trackingState == TrackingState.PAUSED &&
+            fmFrame.trackingFailureReason == TrackingFailureReason.NONE
         ) {
             // Initializing
             return FMFrameFilterResult.Rejected(FMFrameRejectionReason.MOVING_TOO_LITTLE)
-        } else return when (fmFrame.camera.trackingFailureReason) {
+        } else return when (fmFrame.trackingFailureReason) {
             TrackingFailureReason.CAMERA_UNAVAILABLE -> {
                 // Motion tracking was paused because the camera
                 // is in use by another application
@@ -5,92 +5,229 @@ import android.graphics.ImageFormat
 import android.graphics.Matrix
 import android.graphics.YuvImage
 import android.os.Build
-import android.util.Log
-import android.view.Display
 import android.view.Surface
-import android.view.WindowManager
 import androidx.annotation.RequiresApi
 import com.fantasmo.sdk.FMUtility
 import com.fantasmo.sdk.evaluators.FMFrameEvaluation
 import com.fantasmo.sdk.FMUtility.Companion.convertQuaternionToEuler
 import com.fantasmo.sdk.FMUtility.Companion.convertToDegrees
+import com.fantasmo.sdk.utilities.CameraImageReader
+import com.fantasmo.sdk.utilities.DisplayRotationState
+import com.fantasmo.sdk.utilities.YuvDownsampler
 import com.fantasmo.sdk.utilities.YuvToRgbConverter
-import com.google.ar.core.Camera
 import com.google.ar.core.Frame
 import com.google.ar.core.Pose
+import com.google.ar.core.TrackingFailureReason
 import com.google.ar.core.TrackingState
-import com.google.ar.core.exceptions.DeadlineExceededException
-import com.google.ar.core.exceptions.NotYetAvailableException
-import com.google.ar.core.exceptions.ResourceExhaustedException
 import java.io.ByteArrayOutputStream
+import java.util.concurrent.atomic.AtomicInteger
 
-class FMFrame (private val frame: Frame,
-               private val context: Context)
+/**
+ * Frame captured by ARCore, with the data the SDK needs copied out of it.
+ * The ARCore `Frame` and its `Camera` are only read while constructing, ARCore reuses them on the
+ * next `Session.update()` and holding them keeps native memory alive.
+ * The camera image and its copies live in pooled buffers and are only available while the SDK retains
+ * the frame: while it is passed to a listener, evaluated, kept as the best frame of the window or
+ * uploaded. Once released they read as `null`, the poses and the cached statistics stay available.
+ * The ARCore `camera` is no longer exposed for that reason, its pose and tracking state are copied
+ * into `cameraPose`, `trackingState` and `trackingFailureReason`.
+ * @param frame frame returned by the last `Session.update()`
+ * @param imageReader reader copying the camera image, `null` for frames that won't be evaluated,
+ * uploaded or scanned
+ */
+class FMFrame internal constructor(frame: Frame,
+                                   private val context: Context,
+                                   private val imageReader: CameraImageReader?)
 {
-    private val TAG = FMFrame::class.java.simpleName
-    val camera: Camera = frame.camera
-    val cameraPose: Pose? =  if(camera.trackingState == TrackingState.TRACKING) camera.pose else null
-    val androidSensorPose: Pose? = if(camera.trackingState == TrackingState.TRACKING) frame.androidSensorPose else null
-    val sensorAngles: FloatArray? = if(androidSensorPose != null) convertToDegrees(convertQuaternionToEuler(androidSensorPose.rotationQuaternion)) else  null
-
-    val timestamp = frame.timestamp
-    private var _yuvImage: YuvImage? = null
+    /**
+     * Frame without camera image, only its poses and tracking state are copied.
+     */
+    constructor(frame: Frame, context: Context) : this(frame, context, null)
+
+    companion object {
+        private val retainedFrames = AtomicInteger(0)
+
+        /**
+         * Number of frames created and not released yet: the one passed to the listeners, the one
+         * being evaluated, the best frame of the window and the uploads. A count that keeps growing
+         * means a frame is never released and its image buffers are never reused.
+         */
+        val retainedFrameCount: Int
+            get() = retainedFrames.get()
+    }
+
+    /// Camera state at capture, read by the upload and anchoring code long after ARCore moved on
+    internal val capture = FMFrameCapture.capture(frame, System.currentTimeMillis() / 1000.0)
+
+    // Holders of the frame, it is created retained by the view that passes it to the listeners
+    private var references = 1
+
+    // Buffers taken from `imageReader`, given back once the frame is released
+    private val buffers = ArrayList<ByteArray>(2 + FMLuminancePyramid.LevelCount)
+
+    @Volatile
+    private var _yuvImage: YuvImage? =
+        if (imageReader != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            imageReader.read(frame)?.also { buffers.add(it.yuvData) }
+        } else null
+
+    init {
+        retainedFrames.incrementAndGet()
+    }
+
+    val cameraPose: Pose? = capture.cameraPose
+    val androidSensorPose: Pose? = capture.androidSensorPose
+    val displayOrientedPose: Pose = capture.displayOrientedPose
+    val trackingState: TrackingState = capture.trackingState
+    val trackingFailureReason: TrackingFailureReason = capture.trackingFailureReason
+
+    /// Euler angles in degrees of `androidSensorPose`, pitch, roll and yaw, computed once and shared by
+    /// the pitch filter and the session statistics, must not be modified
+    val sensorAngles: FloatArray? = androidSensorPose?.let {
+        convertToDegrees(convertQuaternionToEuler(it.qx(), it.qy(), it.qz(), it.qw(), FloatArray(3)))
+    }
+
+    val timestamp = capture.timestamp
     var enhancedImageGamma: Float? = null
 
+    /// Gamma the image enhancer will apply if the frame is uploaded, evaluators apply it to their input instead
+    var pendingImageGamma: Float? = null
+
+    @Volatile
+    private var _luminancePyramid: FMLuminancePyramid? = null
+
+    /**
+     * Luminance of the camera image at full, half, quarter and eighth resolution, for the consumers
+     * that only need a small grayscale view of the frame. Built on first access and cached, which is
+     * before any enhancement since the enhancer reads the luminance statistics computed from it.
+     * `null` if the camera image is not available.
+     */
+    val luminancePyramid: FMLuminancePyramid?
+        @Synchronized get() {
+            _luminancePyramid?.let { return it }
+            val image = yuvImage ?: return null
+            val pyramid = FMLuminancePyramid(image.yuvData, image.width, image.height) { _, size ->
+                acquireBuffer(size)
+            }
+            _luminancePyramid = pyramid
+            return pyramid
+        }
+
+    @Volatile
+    private var _luminanceStatistics: FMLuminanceStatistics? = null
+
+    /**
+     * Brightness of the camera image as captured, before any enhancement, computed on first access and cached.
+     * Every pixel of the pyramid level `LuminanceSampleStep` times smaller is sampled, or the same
+     * number of pixels of a larger level.
+     * `null` if the camera image is not available.
+     */
+    val luminanceStatistics: FMLuminanceStatistics?
+        @Synchronized get() {
+            _luminanceStatistics?.let { return it }
+            val pyramid = luminancePyramid ?: return null
+            val sampleStep = FMUtility.Constants.LuminanceSampleStep
+            val level = pyramid.levelFor(pyramid.width(0) / sampleStep)
+            val statistics = FMLuminanceStatistics.compute(
+                pyramid.data(level),
+                pyramid.width(level),
+                pyramid.height(level),
+                maxOf(1, sampleStep shr level)
+            )
+            _luminanceStatistics = statistics
+            return statistics
+        }
+
     var evaluation: FMFrameEvaluation? = null // nil if no evaluation has been done, or evaluator error
 
+    /**
+     * Camera image copied at capture, `null` if it wasn't copied, wasn't available or the frame was released.
+     * Its data belongs to this frame and must not be used once the frame is released.
+     */
     var yuvImage: YuvImage?
-        get() {
-            if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && _yuvImage == null) {
-                setYuvImageFromFrame()
+        get() = _yuvImage
+        // only the SDK replaces the image, with one whose data is in a buffer acquired for this frame
+        internal set(value) {_yuvImage = value}
+
+    @Volatile
+    private var _evaluationImage: YuvImage? = null
+
+    /**
+     * Camera image downsampled to at most `EvaluationImageMaxWidth` pixels wide, read by the frame
+     * evaluation and the QR scanner instead of `yuvImage`, which keeps the full resolution for the upload.
+     * Built on first access and cached, `null` if the camera image is not available.
+     */
+    val evaluationImage: YuvImage?
+        @Synchronized get() {
+            _evaluationImage?.let { return it }
+            val image = yuvImage ?: return null
+            val factor = YuvDownsampler.factor(image.width, FMUtility.Constants.EvaluationImageMaxWidth)
+            val evaluationImage = if (factor == 1) {
+                image
+            } else {
+                val width = YuvDownsampler.outputWidth(image.width, factor)
+                val height = YuvDownsampler.outputHeight(image.height, factor)
+                val size = width * height * 3 / 2
+                val data = acquireBuffer(size)
+                YuvDownsampler.downsample(image.yuvData, image.width, image.height, factor, data)
+                YuvImage(data, ImageFormat.NV21, width, height, null)
             }
-            return _yuvImage
+            _evaluationImage = evaluationImage
+            return evaluationImage
         }
-    set(value) {_yuvImage = value}
 
-    @RequiresApi(Build.VERSION_CODES.KITKAT)
-    private var yuvToRgbConverter = YuvToRgbConverter(context)
+    /**
+     * Keeps the image data of the frame available until a matching `release()`.
+     * Does nothing if the frame was already released.
+     */
+    @Synchronized
+    internal fun retain() {
+        if (references > 0) {
+            references++
+        }
+    }
 
-    @RequiresApi(Build.VERSION_CODES.KITKAT)
-    private fun setYuvImageFromFrame() {
-        try {
-            val cameraImage = frame.acquireCameraImage()
-            val cameraPlaneY = cameraImage.planes[0].buffer
-            val cameraPlaneU = cameraImage.planes[2].buffer
-            val cameraPlaneV = cameraImage.planes[1].buffer
-            //Use the buffers to create a new byteArray
-            val compositeByteArray =
-                ByteArray(cameraPlaneY.capacity() + cameraPlaneU.capacity() + cameraPlaneV.capacity())
-            cameraPlaneY.get(compositeByteArray, 0, cameraPlaneY.capacity())
-            cameraPlaneU.get(compositeByteArray, cameraPlaneY.capacity(), cameraPlaneU.capacity())
-            cameraPlaneV.get(
-                compositeByteArray,
-                cameraPlaneY.capacity() + cameraPlaneU.capacity(),
-                cameraPlaneV.capacity()
-            )
-            _yuvImage = YuvImage(compositeByteArray,
-                ImageFormat.NV21,
-                cameraImage.width,
-                cameraImage.height,
-                null
-            )
-            // Release the image
-            cameraImage.close()
+    /**
+     * Drops a reference taken with `retain()`, or the one the frame was created with. Once none
+     * is left the image buffers go back to the pool and the images read as `null`.
+     */
+    @Synchronized
+    internal fun release() {
+        if (references == 0) {
+            return
         }
-        catch (e: NotYetAvailableException) {
-            Log.e(TAG, "FrameNotYetAvailable")
-        } catch (e: DeadlineExceededException) {
-            Log.e(TAG, "DeadlineExceededException in acquireFrameImage")
-        } catch (e: ResourceExhaustedException) {
-            Log.e(TAG, "ResourceExhaustedException")
+        references--
+        if (references > 0) {
+            return
         }
+        _yuvImage = null
+        _evaluationImage = null
+        _luminancePyramid = null
+        buffers.forEach { imageReader?.releaseBuffer(it) }
+        buffers.clear()
+        retainedFrames.decrementAndGet()
+    }
+
+    private fun acquireBuffer(size: Int): ByteArray {
+        val buffer = imageReader?.acquireBuffer(size) ?: return ByteArray(size)
+        buffers.add(buffer)
+        return buffer
     }
 
-    fun imageData(): ByteArray? {
+    @RequiresApi(Build.VERSION_CODES.KITKAT)
+    private var yuvToRgbConverter = YuvToRgbConverter(context)
+
+    /**
+     * Encodes the camera image as a JPEG rotated to the display orientation.
+     * @param jpegQuality JPEG compression quality, range 0 (worse) to 100 (best)
+     * @return the JPEG data, `null` if the camera image is not available
+     */
+    @Synchronized
+    fun imageData(jpegQuality: Int = FMUtility.Constants.JpegCompressionRatio): ByteArray? {
         val image = if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {yuvImage ?: return null} else return null
         val imageBitmap = yuvToRgbConverter.toBitmap(image)
         val rotatedBitmap = imageBitmap.rotate(getImageRotationDegrees(context))
-        val data = getFileDataFromDrawable(rotatedBitmap)
+        val data = getFileDataFromDrawable(rotatedBitmap, jpegQuality)
 
         imageBitmap.recycle()
         rotatedBitmap.recycle()
@@ -103,13 +240,7 @@ class FMFrame (private val frame: Frame,
     }
 
     private fun getImageRotationDegrees(context: Context): Float {
-        val rotation: Int = if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            context.display?.rotation!!
-        } else {
-            val wm = context.getSystemService(Context.WINDOW_SERVICE) as WindowManager
-            val display: Display = wm.defaultDisplay
-            display.rotation
-        }
+        val rotation: Int = DisplayRotationState.getRotation(context)
 
         when (rotation) {
             // SCREEN_ORIENTATION_REVERSE_LANDSCAPE
@@ -134,11 +265,11 @@ class FMFrame (private val frame: Frame,
         }
     }
 
-    private fun getFileDataFromDrawable(bitmap: Bitmap): ByteArray {
+    private fun getFileDataFromDrawable(bitmap: Bitmap, jpegQuality: Int): ByteArray {
         val byteArrayOutputStream = ByteArrayOutputStream()
         bitmap.compress(
             Bitmap.CompressFormat.JPEG,
-            FMUtility.Constants.JpegCompressionRatio,
+            jpegQuality,
             byteArrayOutputStream
         )
         return byteArrayOutputStream.toByteArray()
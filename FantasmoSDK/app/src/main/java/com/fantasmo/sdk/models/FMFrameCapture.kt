@@ -0,0 +1,78 @@
+package com.fantasmo.sdk.models
+
+import com.google.ar.core.Frame
+import com.google.ar.core.Pose
+import com.google.ar.core.TrackingFailureReason
+import com.google.ar.core.TrackingState
+
+/**
+ * Camera state at the moment a frame was captured, copied once from ARCore.
+ * ARCore updates `Camera` in place on every `Session.update()`, so reading it when a request is
+ * built describes a later frame. The snapshot is immutable and can be read from any thread,
+ * ARCore poses are immutable values.
+ */
+internal class FMFrameCapture(
+    val timestamp: Long,
+    // Wall clock time of capture in seconds
+    val capturedAt: Double,
+    val trackingState: TrackingState,
+    val trackingFailureReason: TrackingFailureReason,
+    // Pose of the camera, `null` unless tracking
+    val cameraPose: Pose?,
+    // Pose of the "virtual" camera oriented like the display, sent to the server with the image
+    val displayOrientedPose: Pose,
+    // Pose of the device sensor, `null` unless tracking
+    val androidSensorPose: Pose?,
+    private val focalLengthX: Float,
+    private val focalLengthY: Float,
+    private val principalPointX: Float,
+    private val principalPointY: Float,
+    // Dimensions of the CPU camera image
+    val imageWidth: Int,
+    val imageHeight: Int
+) {
+    companion object {
+        /**
+         * Takes the snapshot of a frame, must be called before the next `Session.update()`.
+         * @param frame frame returned by `Session.update()`
+         * @param capturedAt wall clock time of capture in seconds
+         */
+        fun capture(frame: Frame, capturedAt: Double): FMFrameCapture {
+            val camera = frame.camera
+            val trackingState = camera.trackingState
+            val isTracking = trackingState == TrackingState.TRACKING
+            val imageIntrinsics = camera.imageIntrinsics
+            val focalLength = imageIntrinsics.focalLength
+            val principalPoint = imageIntrinsics.principalPoint
+            val imageDimensions = imageIntrinsics.imageDimensions
+            return FMFrameCapture(
+                frame.timestamp,
+                capturedAt,
+                trackingState,
+                camera.trackingFailureReason,
+                if (isTracking) camera.pose else null,
+                camera.displayOrientedPose,
+                if (isTracking) frame.androidSensorPose else null,
+                focalLength[0],
+                focalLength[1],
+                principalPoint[0],
+                principalPoint[1],
+                imageDimensions[0],
+                imageDimensions[1]
+            )
+        }
+    }
+
+    /**
+     * Intrinsics sent with the image, a new instance on every call.
+     */
+    val intrinsics: FMIntrinsics
+        get() = FMIntrinsics(focalLengthX, focalLengthY, principalPointY, principalPointX)
+
+    /**
+     * Orientation of the display oriented camera in OpenCV coordinates, sent as gravity with the
+     * image, a new instance on every call.
+     */
+    val gravity: FMOrientation
+        get() = FMOrientation(displayOrientedPose.rotationQuaternion)
+}
@@ -0,0 +1,22 @@
+package com.fantasmo.sdk.models
+
+/**
+ * What the SDK needs from an ARCore frame, decided before an `FMFrame` is made from it.
+ */
+internal enum class FMFrameDemand {
+    // Nothing, the frame is dropped
+    NONE,
+
+    // Pose and tracking state, for the anchor and the session statistics
+    POSE,
+
+    // Camera image as well, for evaluation, upload or QR code scanning
+    IMAGE;
+
+    /**
+     * The demand covering both this one and `other`.
+     */
+    fun union(other: FMFrameDemand): FMFrameDemand {
+        return if (other.ordinal > ordinal) other else this
+    }
+}
@@ -14,6 +14,8 @@ enum class FMFrameRejectionReason {
     TRACKING_STATE_INSUFFICIENT_FEATURES,
     TRACKING_STATE_NOT_AVAILABLE,
     IMAGE_QUALITY_SCORE_BELOW_THRESHOLD,
+    IMAGE_TOO_DARK,
+    IMAGE_TOO_BLURRY,
     // evaluator rejections
     OTHER_EVALUATION_IN_PROGRESS,
     SCORE_BELOW_CURRENT_BEST,
@@ -29,6 +31,7 @@ enum class FMFrameRejectionReason {
             PITCH_TOO_HIGH -> FMBehaviorRequest.TILT_DOWN
             TRACKING_STATE_EXCESSIVE_MOTION -> FMBehaviorRequest.PAN_SLOWLY
             MOVING_TOO_FAST -> FMBehaviorRequest.PAN_SLOWLY
+            IMAGE_TOO_BLURRY -> FMBehaviorRequest.PAN_SLOWLY
             else -> {FMBehaviorRequest.PAN_AROUND}
         }
     }
@@ -0,0 +1,76 @@
+package com.fantasmo.sdk.models
+
+/**
+ * Luminance of a camera image at full, half, quarter and eighth resolution, for the frame consumers
+ * that only need a small grayscale view of the frame. Each level averages the 2x2 blocks of the
+ * previous one, all levels are built on creation.
+ * Level 0 is the Y plane of the camera image itself, not a copy, so it reflects an enhancement
+ * applied in place afterwards, the other levels keep the luminance as it was when they were built.
+ * @param luminance image data, starting with the Y plane
+ * @param width width of the image
+ * @param height height of the image
+ * @param allocate returns a buffer of the given size for the given level, e.g. from a pool
+ */
+class FMLuminancePyramid internal constructor(
+    luminance: ByteArray,
+    width: Int,
+    height: Int,
+    allocate: (level: Int, size: Int) -> ByteArray = { _, size -> ByteArray(size) }
+) {
+    companion object {
+        const val LevelCount = 4
+    }
+
+    private val levels = arrayOfNulls<ByteArray>(LevelCount)
+    private val widths = IntArray(LevelCount)
+    private val heights = IntArray(LevelCount)
+
+    init {
+        levels[0] = luminance
+        widths[0] = width
+        heights[0] = height
+        for (level in 1 until LevelCount) {
+            val source = levels[level - 1]!!
+            val sourceWidth = widths[level - 1]
+            val levelWidth = sourceWidth / 2
+            val levelHeight = heights[level - 1] / 2
+            val output = allocate(level, levelWidth * levelHeight)
+            var out = 0
+            for (y in 0 until levelHeight) {
+                var top = 2 * y * sourceWidth
+                var bottom = top + sourceWidth
+                for (x in 0 until levelWidth) {
+                    val blockSum = (source[top].toInt() and 0xFF) + (source[top + 1].toInt() and 0xFF) +
+                            (source[bottom].toInt() and 0xFF) + (source[bottom + 1].toInt() and 0xFF)
+                    output[out++] = (blockSum / 4).toByte()
+                    top += 2
+                    bottom += 2
+                }
+            }
+            levels[level] = output
+            widths[level] = levelWidth
+            heights[level] = levelHeight
+        }
+    }
+
+    /**
+     * Luminance of a level, row after row, the buffer may be larger than `width * height`.
+     */
+    fun data(level: Int): ByteArray = levels[level]!!
+
+    fun width(level: Int): Int = widths[level]
+
+    fun height(level: Int): Int = heights[level]
+
+    /**
+     * First level at most `maxWidth` pixels wide, the last level if none is.
+     */
+    fun levelFor(maxWidth: Int): Int {
+        for (level in 0 until LevelCount) {
+            if (widths[level] <= maxWidth) {
+                return level
+            }
+        }
+        return LevelCount - 1
+    }
+}
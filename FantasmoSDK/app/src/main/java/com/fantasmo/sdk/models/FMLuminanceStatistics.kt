@@ -0,0 +1,83 @@
+package com.fantasmo.sdk.models
+
+import com.fantasmo.sdk.FMUtility
+
+/**
+ * Brightness of a camera image, computed once per frame from a subsampled luminance plane and
+ * shared by the image enhancer, the darkness filter and the session analytics.
+ * Brightness values are normalized between 0 (black) and 1 (white).
+ * @property histogram number of sampled pixels for each of the 256 luminance values
+ * @property sampleCount number of sampled pixels
+ * @property mean average brightness
+ * @property lowPercentile brightness below which `LowPercentile` of the pixels are
+ * @property highPercentile brightness below which `HighPercentile` of the pixels are
+ */
+class FMLuminanceStatistics(
+    val histogram: IntArray,
+    val sampleCount: Int,
+    val mean: Float,
+    val lowPercentile: Float,
+    val highPercentile: Float
+) {
+    override fun toString(): String {
+        return "FMLuminanceStatistics(mean=$mean, lowPercentile=$lowPercentile, highPercentile=$highPercentile, sampleCount=$sampleCount)"
+    }
+
+    companion object {
+        const val LowPercentile = 0.05
+        const val HighPercentile = 0.95
+
+        /**
+         * Computes the statistics in a single pass over the luminance plane.
+         * @param luminance image data, starting with the Y plane
+         * @param width width of the image
+         * @param height height of the image
+         * @param step distance between two sampled pixels, in both directions
+         */
+        fun compute(
+            luminance: ByteArray,
+            width: Int,
+            height: Int,
+            step: Int = FMUtility.Constants.LuminanceSampleStep
+        ): FMLuminanceStatistics {
+            val histogram = IntArray(256)
+            var sum = 0L
+            var count = 0
+            var y = step / 2
+            while (y < height) {
+                var index = y * width + step / 2
+                val rowEnd = (y + 1) * width
+                while (index < rowEnd) {
+                    val value = luminance[index].toInt() and 0xFF
+                    histogram[value]++
+                    sum += value
+                    count++
+                    index += step
+                }
+                y += step
+            }
+            if (count == 0) {
+                return FMLuminanceStatistics(histogram, 0, 0f, 0f, 0f)
+            }
+            return FMLuminanceStatistics(
+                histogram,
+                count,
+                (sum.toDouble() / count / 255.0).toFloat(),
+                percentile(histogram, count, LowPercentile),
+                percentile(histogram, count, HighPercentile)
+            )
+        }
+
+        private fun percentile(histogram: IntArray, count: Int, percentile: Double): Float {
+            val target = percentile * count
+            var cumulative = 0
+            for (value in 0..255) {
+                cumulative += histogram[value]
+                if (cumulative >= target) {
+                    return value / 255f
+                }
+            }
+            return 1f
+        }
+    }
+}
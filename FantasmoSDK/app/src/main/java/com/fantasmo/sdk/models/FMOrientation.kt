@@ -7,8 +7,8 @@
 package com.fantasmo.sdk.models
 
 import android.util.Log
+import com.fantasmo.sdk.utilities.math.MathPool
 import com.fantasmo.sdk.utilities.math.Quaternion
-import com.fantasmo.sdk.utilities.math.Vector3
 import kotlin.math.PI
 
 /**
@@ -81,18 +81,39 @@ internal class FMOrientation {
         this.w = rotationQuaternion[3]
     }
 
-    fun toQuaternion(): Quaternion = Quaternion(this.x, this.y, this.z, this.w)
+    fun set(w: Float, x: Float, y: Float, z: Float) {
+        this.x = x
+        this.y = y
+        this.z = z
+        this.w = w
+    }
 
-    private fun getRotationTo(orientation: FMOrientation): Quaternion =
-        Quaternion.multiply(this.toQuaternion(), orientation.toQuaternion())
+    fun toQuaternion(): Quaternion = Quaternion(this.x, this.y, this.z, this.w)
 
+    /**
+     * Copies this orientation into `dest`, normalized.
+     */
+    fun toQuaternion(dest: Quaternion): Quaternion {
+        dest.set(this.x, this.y, this.z, this.w)
+        return dest
+    }
 
     fun difference(orientation: FMOrientation): FMOrientation {
-        val thisDifference =
-            Quaternion.multiply(this.toQuaternion(), orientation.toQuaternion().inverted())
-        return FMOrientation(
-            thisDifference.w, thisDifference.x, thisDifference.y, thisDifference.w
-        )
+        return difference(orientation, FMOrientation(1.0f, 0.0f, 0.0f, 0.0f))
+    }
+
+    /**
+     * Difference written into `dest`, which may be one of the operands.
+     */
+    fun difference(orientation: FMOrientation, dest: FMOrientation): FMOrientation {
+        val pool = MathPool.get()
+        val thisDifference = toQuaternion(pool.acquireQuaternion())
+        val inverse = orientation.toQuaternion(pool.acquireQuaternion()).invert()
+        Quaternion.multiply(thisDifference, inverse, thisDifference)
+        dest.set(thisDifference.w, thisDifference.x, thisDifference.y, thisDifference.z)
+        pool.release(inverse)
+        pool.release(thisDifference)
+        return dest
     }
 
     private fun hamiltonProduct(quaternionRotation: Quaternion): FMOrientation {
@@ -148,13 +169,32 @@ internal class FMOrientation {
         startOrientation: FMOrientation,
         differenceOrientation: FMOrientation
     ): FMOrientation {
-        val differenceQuaternion = differenceOrientation.toQuaternion()
-        val iq = Quaternion(0.0f, 0.0f, 0.0f, 1.0f)
-        val resultOrientation = Quaternion.multiply(
-            Quaternion.multiply(iq, startOrientation.toQuaternion()),
-            this.toQuaternion()
+        return interpolated(
+            distance,
+            startOrientation,
+            differenceOrientation,
+            FMOrientation(1.0f, 0.0f, 0.0f, 0.0f)
         )
-        return FMOrientation(resultOrientation)
+    }
+
+    /**
+     * Interpolated orientation written into `dest`, which may be this orientation.
+     */
+    fun interpolated(
+        distance: Float,
+        startOrientation: FMOrientation,
+        differenceOrientation: FMOrientation,
+        dest: FMOrientation
+    ): FMOrientation {
+        val pool = MathPool.get()
+        // Identity times the start orientation is the normalized start orientation
+        val resultOrientation = startOrientation.toQuaternion(pool.acquireQuaternion())
+        val thisQuaternion = toQuaternion(pool.acquireQuaternion())
+        Quaternion.multiply(resultOrientation, thisQuaternion, resultOrientation)
+        dest.set(resultOrientation.w, resultOrientation.x, resultOrientation.y, resultOrientation.z)
+        pool.release(thisQuaternion)
+        pool.release(resultOrientation)
+        return dest
     }
 
     override fun toString(): String = "x: $x :: y:$y :: z: $z :: w: $w"
@@ -163,10 +203,22 @@ internal class FMOrientation {
         hamiltonProduct(rot)
 
     fun rotate(pos: FMPosition): FMPosition {
-        val q = this.toQuaternion()
-        val p = Vector3(pos.x, pos.y, pos.z)
-        val pRot = Quaternion.rotateVector(q, p)
-        return FMPosition(pRot.x, pRot.y, pRot.z)
+        return rotate(pos, FMPosition(0f, 0f, 0f))
+    }
+
+    /**
+     * Rotated position written into `dest`, which may be `pos`.
+     */
+    fun rotate(pos: FMPosition, dest: FMPosition): FMPosition {
+        val pool = MathPool.get()
+        val q = toQuaternion(pool.acquireQuaternion())
+        val p = pool.acquireVector3()
+        p.set(pos.x, pos.y, pos.z)
+        Quaternion.rotateVector(q, p, p)
+        dest.set(p.x, p.y, p.z)
+        pool.release(p)
+        pool.release(q)
+        return dest
     }
 
     fun inverse(): FMOrientation {
@@ -175,8 +227,14 @@ internal class FMOrientation {
     }
 
     fun angularDistance(other: FMOrientation): Double {
-        val qd = getRotationTo(other)
-        return qd.w * PI / 180.0
+        val pool = MathPool.get()
+        val qd = toQuaternion(pool.acquireQuaternion())
+        val otherQuaternion = other.toQuaternion(pool.acquireQuaternion())
+        Quaternion.multiply(qd, otherQuaternion, qd)
+        val w = qd.w
+        pool.release(otherQuaternion)
+        pool.release(qd)
+        return w * PI / 180.0
     }
 
     fun flipSign() {
@@ -6,10 +6,12 @@
 //
 package com.fantasmo.sdk.models
 
-import com.fantasmo.sdk.FMUtility
-import com.fantasmo.sdk.utilities.math.Vector3
+import com.fantasmo.sdk.utilities.math.MathPool
+import com.fantasmo.sdk.utilities.math.Quaternion
 import com.google.ar.core.Pose
 import kotlin.math.PI
+import kotlin.math.cos
+import kotlin.math.sin
 
 /**
  * Device pose at the moment of image capture. The coordinate frame is
@@ -37,33 +39,34 @@ internal class FMPose {
             }
             // Get the starting difference
             val S =
-                startingPose.diffPose(toPose = allPoses[0]) //Note: This should be 0, because the startingPose
+                startingPose.diffPose(allPoses[0], FMPose()) //Note: This should be 0, because the startingPose
             // is by definition the first pose in the allPoses vector
 
-            val E = endingPose.diffPose(toPose = allPoses.lastOrNull()!!)
-            val D = E.diffPose(toPose = S)
+            // The ending difference is only needed to compute D, so D reuses it
+            val D = endingPose.diffPose(allPoses.last(), FMPose())
+            D.diffPose(S, D)
             var cumulativeSum = 0.0f
-            val distances = mutableListOf<Float>()
-            distances.add(0.0f)
+            val distances = FloatArray(allPoses.size)
 
             for (poseIndex in 1 until (allPoses.size)) {
                 val thisDistance =
                     allPoses[poseIndex - 1].position.distance(allPoses[poseIndex].position)
                 cumulativeSum += thisDistance.toFloat()
-                distances.add(cumulativeSum)
+                distances[poseIndex] = cumulativeSum
             }
 
             if (cumulativeSum == 0f) {
                 cumulativeSum = 1f
             }
 
-            val interpolatedPoses = mutableListOf<FMPose>()
+            val interpolatedPoses = ArrayList<FMPose>(allPoses.size)
             for (poseIndex in 0 until (allPoses.size)) {
                 val thisDistance = distances[poseIndex] / cumulativeSum
                 val newPose = allPoses[poseIndex].interpolated(
                     distance = thisDistance,
                     startPose = S,
-                    differencePose = D
+                    differencePose = D,
+                    dest = FMPose()
                 )
                 interpolatedPoses.add(newPose)
             }
@@ -77,17 +80,57 @@ internal class FMPose {
          * @property cameraTransform Pose of camera coordinate system in the world coordinate system.
          */
         fun diffPose(anchorTransform: Pose, cameraTransform: Pose): FMPose {
-            val transferToOpenCVAxis = FMUtility.makeRotation(PI.toFloat(), Vector3(0.0f, 0.0f, 1.0f))
+            return diffPose(anchorTransform, cameraTransform, FMPose())
+        }
 
-            val openCVAnchorTransform = anchorTransform.compose(transferToOpenCVAxis)
+        /**
+         * Calculates pose of OpenCV anchor in the coordinate system of OpenCV camera into `dest`,
+         * with pooled temporaries instead of composing ARCore poses. The math types normalize the
+         * rotations, which ARCore poses don't, so the result only matches the composed poses up to rounding.
+         * @property anchorTransform Pose of anchor coordinate system in the world coordinate system.
+         * @property cameraTransform Pose of camera coordinate system in the world coordinate system.
+         */
+        fun diffPose(anchorTransform: Pose, cameraTransform: Pose, dest: FMPose): FMPose {
+            val pool = MathPool.get()
 
             // Relative pose in world CS: R_w = A_w * C_w^(-1), then we transfer to CS of Camera.
             // Transform matrix is C_w^(-1), so R_c = C_w^(-1) * (A_w * C_w^(-1)) * C_w = C_w^(-1) * A_w
-            val openCVAnchorTransformInCameraCS = cameraTransform.inverse().compose(openCVAnchorTransform)
-
-            val openCVAnchorPoseInOpenCVCameraCS = FMPose(openCVAnchorTransformInCameraCS)
-            return openCVAnchorPoseInOpenCVCameraCS
+            val inverseCameraRotation = pool.acquireQuaternion()
+            inverseCameraRotation.set(
+                cameraTransform.qx(), cameraTransform.qy(), cameraTransform.qz(), cameraTransform.qw()
+            )
+            inverseCameraRotation.invert()
+
+            // A_w composed with the rotation to OpenCV axis, then rotated to CS of Camera
+            val rotation = pool.acquireQuaternion()
+            rotation.set(
+                anchorTransform.qx(), anchorTransform.qy(), anchorTransform.qz(), anchorTransform.qw()
+            )
+            Quaternion.multiply(rotation, transferToOpenCVAxis, rotation)
+            Quaternion.multiply(inverseCameraRotation, rotation, rotation)
+
+            // The rotation to OpenCV axis doesn't move the anchor origin
+            val translation = pool.acquireVector3()
+            translation.set(
+                anchorTransform.tx() - cameraTransform.tx(),
+                anchorTransform.ty() - cameraTransform.ty(),
+                anchorTransform.tz() - cameraTransform.tz()
+            )
+            Quaternion.rotateVector(inverseCameraRotation, translation, translation)
+
+            // Same conversion to OpenCV coordinates as FMPosition(translation) and FMOrientation(rotationQuaternion)
+            dest.position.set(translation.x, -translation.y, -translation.z)
+            dest.orientation.set(rotation.w, rotation.x, -rotation.y, -rotation.z)
+
+            pool.release(translation)
+            pool.release(rotation)
+            pool.release(inverseCameraRotation)
+            return dest
         }
+
+        // Rotation by PI around Z, see FMUtility.makeRotation, must not be modified
+        private val transferToOpenCVAxis =
+            Quaternion(0.0f, 0.0f, sin(PI.toFloat() / 2), cos(PI.toFloat() / 2))
     }
 
     constructor(
@@ -113,24 +156,38 @@ internal class FMPose {
     override fun toString(): String =
         "Position [${position.toString()}]   Orientation [${orientation.toString()}]   Confidence [${confidence}]"
 
-    private fun interpolated(distance: Float, startPose: FMPose, differencePose: FMPose): FMPose {
-        val resultPosition = this.position.interpolated(
+    private fun interpolated(
+        distance: Float,
+        startPose: FMPose,
+        differencePose: FMPose,
+        dest: FMPose
+    ): FMPose {
+        this.position.interpolated(
             distance = distance,
             startPosition = startPose.position,
-            differencePosition = differencePose.position
+            differencePosition = differencePose.position,
+            dest = dest.position
         )
-        val resultOrientation = this.orientation.interpolated(
+        this.orientation.interpolated(
             distance = distance,
             startOrientation = startPose.orientation,
-            differenceOrientation = differencePose.orientation
+            differenceOrientation = differencePose.orientation,
+            dest = dest.orientation
         )
-        return FMPose(position = resultPosition, orientation = resultOrientation)
+        return dest
     }
 
     fun diffPose(toPose: FMPose): FMPose {
-        val diffPosition = FMPosition.minus(this.position, toPose.position)
-        val diffOrientation = this.orientation.difference(toPose.orientation)
-        return FMPose(position = diffPosition, orientation = diffOrientation)
+        return diffPose(toPose, FMPose())
+    }
+
+    /**
+     * Difference to `toPose` written into `dest`, which may be one of the poses.
+     */
+    fun diffPose(toPose: FMPose, dest: FMPose): FMPose {
+        FMPosition.minus(this.position, toPose.position, dest.position)
+        this.orientation.difference(toPose.orientation, dest.orientation)
+        return dest
     }
 
     fun applyTransform(pose: FMPose) {
@@ -46,6 +46,12 @@ internal class FMPosition {
         this.z = z
     }
 
+    fun set(x: Float, y: Float, z: Float) {
+        this.x = x
+        this.y = y
+        this.z = z
+    }
+
     companion object {
         fun plus(left: FMPosition, right: FMPosition): FMPosition {
             val sx = left.x + right.x
@@ -61,6 +67,14 @@ internal class FMPosition {
             return FMPosition(sx, sy, sz)
         }
 
+        /**
+         * Subtracts `right` from `left` into `dest`, which may be one of the operands.
+         */
+        fun minus(left: FMPosition, right: FMPosition, dest: FMPosition): FMPosition {
+            dest.set(left.x - right.x, left.y - right.y, left.z - right.z)
+            return dest
+        }
+
         fun plusEquals(left: FMPosition, right: FMPosition) {
             left.x += right.x
             left.y += right.y
@@ -114,11 +128,24 @@ internal class FMPosition {
         distance: Float,
         startPosition: FMPosition,
         differencePosition: FMPosition
+    ): FMPosition {
+        return interpolated(distance, startPosition, differencePosition, FMPosition(0f, 0f, 0f))
+    }
+
+    /**
+     * Interpolated position written into `dest`, which may be this position.
+     */
+    fun interpolated(
+        distance: Float,
+        startPosition: FMPosition,
+        differencePosition: FMPosition,
+        dest: FMPosition
     ): FMPosition {
         val resultX = this.x + startPosition.x + distance * differencePosition.x
         val resultY = this.y + startPosition.y + distance * differencePosition.y
         val resultZ = this.z + startPosition.z + distance * differencePosition.z
-        return FMPosition(resultX, resultY, resultZ)
+        dest.set(resultX, resultY, resultZ)
+        return dest
     }
 
     override fun toString(): String = "x: $x :: y: $y :: z: $z"
@@ -17,6 +17,8 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
 
         var currentImageQualityUserInfo: FMImageQualityUserInfo? = null
 
+        var currentBrightness: Float? = null
+
         var evaluations: Int = 0
 
         var rejections: Int = 0
@@ -45,10 +47,22 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
     var totalEvaluations: Int = 0
     private set
 
+    /// Sum of the average brightness of the evaluated frames whose luminance statistics are known.
+    var sumOfBrightness: Float = 0f
+    private set
+
+    /// Evaluated frames whose luminance statistics are known.
+    var brightnessSamples: Int = 0
+    private set
+
     /// Dictionary of frame rejection reasons and the number of times each occurred in the session.
     var rejectionReasons = FMFrameRejectionReason.values().associate { reason -> reason to 0 }.toMutableMap()
     private set
 
+    /// Latency and rejection statistics of each frame filter, in the order they ran, as of the start of the current window.
+    var filterStatistics: List<FMFrameFilterStatistics> = emptyList()
+    private set
+
     /// Total rejections in the session.
     val totalRejections: Int
         get() = rejectionReasons.values.sum()
@@ -61,6 +75,10 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
     val averageEvaluationTime: Float
         get() = if(totalEvaluations > 0)  totalEvaluationTime / totalEvaluations.toFloat() else 0f
 
+    /// Average brightness of the evaluated frames in the session, between 0 and 1
+    val averageBrightness: Float
+        get() = if(brightnessSamples > 0) sumOfBrightness / brightnessSamples.toFloat() else 0f
+
 
     /// Creates a new window and makes it the current window.
     fun startWindow(startTime: Double) {
@@ -87,8 +105,15 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
             this.lowestScore = evaluation.score
         }
 
+        val brightness = frame.luminanceStatistics?.mean
+        if (brightness != null) {
+            sumOfBrightness += brightness
+            brightnessSamples += 1
+        }
+
         // Update current window stats
         window.evaluations += 1
+        window.currentBrightness = brightness
         window.currentScore = evaluation.score
         window.currentImageQualityUserInfo = evaluation.imageQualityUserInfo
         window.currentFilterRejection = null
@@ -119,6 +144,11 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
             window.currentFilterRejection = rejectionReason
     }
 
+    /// Updates the statistics of the frame filters, kept until the next snapshot, taken at each window start.
+    fun updateFilterStatistics(filterStatistics: List<FMFrameFilterStatistics>) {
+        this.filterStatistics = filterStatistics
+    }
+
     /// Reset all statistics, used when starting a new session.
     fun reset() {
         windows.clear()
@@ -126,6 +156,9 @@ class FMFrameEvaluationStatistics (val type: FMFrameEvaluationType) {
         lowestScore = null
         sumOfAllScores = 0f
         totalEvaluations = 0
+        sumOfBrightness = 0f
+        brightnessSamples = 0
+        filterStatistics = emptyList()
         rejectionReasons = FMFrameRejectionReason.values().associate { reason -> reason to 0 }.toMutableMap()
     }
 }
\ No newline at end of file
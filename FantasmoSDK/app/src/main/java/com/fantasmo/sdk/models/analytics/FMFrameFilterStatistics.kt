@@ -0,0 +1,34 @@
+package com.fantasmo.sdk.models.analytics
+
+/**
+ * Cost and effectiveness of one frame filter over the session.
+ * @property filterName name of the filter class
+ * @property position current position of the filter in the chain, 0 runs first
+ * @property runs frames the filter evaluated
+ * @property rejections frames the filter rejected
+ * @property averageLatency average time the filter took per frame, in milliseconds
+ * @property latencyHistogram frames per latency bucket, bucket `i` counting latencies up to
+ * `LatencyBucketBounds[i]` microseconds and the last bucket the slower ones
+ */
+class FMFrameFilterStatistics(
+    val filterName: String,
+    val position: Int,
+    val runs: Int,
+    val rejections: Int,
+    val averageLatency: Double,
+    val latencyHistogram: IntArray
+) {
+    /// Fraction of the evaluated frames the filter rejected
+    val rejectionRate: Double
+        get() = if (runs > 0) rejections.toDouble() / runs else 0.0
+
+    override fun toString(): String {
+        return "$filterName(position=$position, runs=$runs, rejectionRate=${"%.3f".format(rejectionRate)}, " +
+                "averageLatency=${"%.3f".format(averageLatency)}ms, latencyHistogram=${latencyHistogram.contentToString()})"
+    }
+
+    companion object {
+        /// Upper bounds of the latency histogram buckets, in microseconds
+        val LatencyBucketBounds = longArrayOf(10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000)
+    }
+}
@@ -52,6 +52,7 @@ class TotalDeviceRotationAccumulator {
 
     /**
      * On every frame, update get the rotation from the current frame
+     * Uses the Euler angles cached by the frame, computed once for this and the pitch filter
      * @param fmFrame FMFrame
      */
     fun update(fmFrame: FMFrame) {
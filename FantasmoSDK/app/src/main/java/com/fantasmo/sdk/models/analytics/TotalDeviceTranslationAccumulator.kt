@@ -27,13 +27,14 @@ class TotalDeviceTranslationAccumulator(private val decimationFactor: Int) {
      * @param fmFrame: FMFrame
      */
     fun update(fmFrame: FMFrame) {
-        if (previousTranslation.isEmpty()) {
-            previousTranslation = fmFrame.camera.pose.translation
+        // The pose is only kept while tracking
+        val translation = fmFrame.cameraPose?.translation
+        if (previousTranslation.isEmpty() && translation != null) {
+            previousTranslation = translation
         }
         if (frameCounter >= nextFrameToTake) {
-            if (fmFrame.camera.trackingFailureReason == TrackingFailureReason.NONE) {
-                val translation = fmFrame.camera.pose.translation
-                totalTranslation += distance(translation!!, previousTranslation)
+            if (fmFrame.trackingFailureReason == TrackingFailureReason.NONE && translation != null) {
+                totalTranslation += distance(translation, previousTranslation)
                 previousTranslation = translation
                 nextFrameToTake += decimationFactor
             } else {
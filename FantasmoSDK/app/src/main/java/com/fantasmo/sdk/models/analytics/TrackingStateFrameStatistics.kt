@@ -46,8 +46,8 @@ class TrackingStateFrameStatistics {
      * @param arFrame: frame to be evaluated
      */
     fun update(fmFrame: FMFrame) {
-        val reason = fmFrame.camera.trackingFailureReason
-        val trackingState = fmFrame.camera.trackingState
+        val reason = fmFrame.trackingFailureReason
+        val trackingState = fmFrame.trackingState
 
         when (reason) {
             //Loss of tracking due to Camera Unavailable
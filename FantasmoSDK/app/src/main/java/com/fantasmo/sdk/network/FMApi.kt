@@ -24,7 +24,8 @@ internal class FMLocalizationRequest(
     var simulationZone: FMZone.ZoneType,
     var location: Location,
     var relativeOpenCVAnchorPose: FMPose?,
-    var analytics: FMLocalizationAnalytics
+    var analytics: FMLocalizationAnalytics,
+    var jpegQuality: Int = FMUtility.Constants.JpegCompressionRatio
 )
 
 /**
@@ -36,6 +37,17 @@ internal class FMApi(
 ) {
     var fmNetworkManager = FMNetworkManager(context)
 
+    // Fed with the duration of every successful localize attempt, if set
+    var networkEstimator: FMNetworkEstimator? = null
+
+    // Retries of failed localize uploads
+    var retryPolicy: FMRetryPolicy = FMRetryPolicy.none
+
+    // Whether a second localize attempt is sent when the first is slower than the usual latency,
+    // set from the remote config and the upload policy of the current network
+    @Volatile
+    var isHedgingEnabled = false
+
     private val TAG = FMApi::class.java.simpleName
 
     /**
@@ -49,6 +61,13 @@ internal class FMApi(
     ) {
         try {
             val imageData = imageData(fmFrame, request) ?: error("No image data to send in request")
+            val estimator = networkEstimator
+            val hedgeAfterMillis = if (isHedgingEnabled) {
+                estimator?.latencyPercentile(FMUtility.Constants.LocalizeHedgePercentile)
+                    ?.let { (it * 1000).toLong() }
+            } else {
+                null
+            }
             fmNetworkManager.uploadImage(
                 FMConfiguration.getServerURL(),
                 imageData,
@@ -74,12 +93,24 @@ internal class FMApi(
                 },
                 {
                     onError(it)
-                })
+                },
+                fmFrame,
+                retryPolicy,
+                hedgeAfterMillis,
+                estimator)
         } catch (e: Exception) {
             onError(ErrorResponse(0, e.message))
         }
     }
 
+    /**
+     * Method to cancel the ongoing localize request of a frame.
+     * @param fmFrame frame whose upload should be cancelled
+     */
+    fun cancelLocalizeRequest(fmFrame: FMFrame) {
+        fmNetworkManager.cancelLocalizeRequest(fmFrame)
+    }
+
     /**
      * Method to build the IsLocalizationAvailable request.
      * @param location Location to search
@@ -201,7 +232,8 @@ internal class FMApi(
         fmFrame: FMFrame,
         request: FMLocalizationRequest
     ): HashMap<String, String> {
-        val pose = FMUtility.getPoseOfOpenCVVirtualCameraBasedOnDeviceOrientation(fmFrame)
+        // Read from the capture snapshot, the ARCore camera has moved on since
+        val capture = fmFrame.capture
 
         val location = request.location
 
@@ -210,14 +242,7 @@ internal class FMApi(
         resolution["height"] = imageResolution.height
         resolution["width"] = imageResolution.width
 
-        val focalLength = fmFrame.camera.imageIntrinsics.focalLength
-        val principalPoint = fmFrame.camera.imageIntrinsics.principalPoint
-        val intrinsics = FMIntrinsics(
-            focalLength.component1(),
-            focalLength.component2(),
-            principalPoint.component2(),
-            principalPoint.component1()
-        )
+        val intrinsics = capture.intrinsics
 
         val events = request.analytics.legacyFrameEvents
         val frameEventCounts = hashMapOf<String, String>()
@@ -230,8 +255,8 @@ internal class FMApi(
 
         val params = hashMapOf<String, String>()
         val gson = Gson()
-        params["capturedAt"] = (System.currentTimeMillis().toDouble() / 1000.0).toString()
-        params["gravity"] = gson.toJson(pose.orientation)
+        params["capturedAt"] = capture.capturedAt.toString()
+        params["gravity"] = gson.toJson(capture.gravity)
         params["uuid"] = UUID.randomUUID().toString()
         params["location"] = gson.toJson(location)
         params["intrinsics"] = gson.toJson(intrinsics)
@@ -294,7 +319,7 @@ internal class FMApi(
         if (request.isSimulation) {
             return MockData.imageData(request, context)
         }
-        return fmFrame.imageData()
+        return fmFrame.imageData(request.jpegQuality)
     }
 
     /**
@@ -311,8 +336,9 @@ internal class FMApi(
             val result = MockData.getImageResolution(request, context)
             return FMFrameResolution(result[0], result[1])
         }
-        val height = fmFrame.camera.imageIntrinsics.imageDimensions[0]
-        val width = fmFrame.camera.imageIntrinsics.imageDimensions[1]
+        // The uploaded image is rotated to portrait, the camera image width is its height
+        val height = fmFrame.capture.imageWidth
+        val width = fmFrame.capture.imageHeight
         return FMFrameResolution(height, width)
     }
 
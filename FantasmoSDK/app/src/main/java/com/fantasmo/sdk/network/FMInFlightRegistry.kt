@@ -0,0 +1,54 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.models.FMFrame
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Lock-free registry of the frames currently being uploaded, keyed by frame timestamp.
+ * Insertion and removal are O(1) and snapshots can be read from any thread without locking,
+ * so it can be shared between the frame coroutine, the Volley callbacks and the UI thread.
+ */
+internal class FMInFlightRegistry {
+
+    /**
+     * Frame being uploaded and the time its upload started, in nanoseconds.
+     */
+    class Entry(val frame: FMFrame, val startTime: Long)
+
+    private val entries = ConcurrentHashMap<Long, Entry>()
+
+    val size: Int
+        get() = entries.size
+
+    fun isEmpty(): Boolean = entries.isEmpty()
+
+    /**
+     * Registers a frame that started uploading.
+     */
+    fun add(frame: FMFrame, startTime: Long) {
+        entries[frame.timestamp] = Entry(frame, startTime)
+    }
+
+    /**
+     * Removes a frame from the registry.
+     * @return `true` if the frame was registered, `false` if it had already been removed
+     */
+    fun remove(frame: FMFrame): Boolean {
+        val entry = entries[frame.timestamp] ?: return false
+        return entry.frame === frame && entries.remove(frame.timestamp, entry)
+    }
+
+    /**
+     * Weakly consistent view of the registered entries, safe to iterate while other threads write.
+     */
+    fun entries(): Collection<Entry> = entries.values
+
+    /**
+     * Snapshot of the frames being uploaded, oldest capture first.
+     */
+    fun snapshot(): List<FMFrame> = entries.values.map { it.frame }.sortedBy { it.timestamp }
+
+    fun clear() {
+        entries.clear()
+    }
+}
@@ -0,0 +1,95 @@
+package com.fantasmo.sdk.network
+
+/**
+ * Estimates the latency and throughput of localize uploads from the requests that completed.
+ * Both values are exponentially weighted moving averages, so the estimate follows the network
+ * when it gets better or worse without being thrown off by a single slow request.
+ * @param smoothing weight of the newest sample, between 0 and 1
+ * @param clock time source in nanoseconds, replaceable for testing
+ */
+internal class FMNetworkEstimator(
+    private val smoothing: Double = 0.25,
+    private val clock: () -> Long = { System.nanoTime() }
+) {
+    private val n2s = 1_000_000_000.0
+
+    // Latencies of the last uploads, used for percentiles
+    private val recentLatencies = DoubleArray(LatencyWindow)
+
+    /**
+     * Estimated time in seconds from sending a localize request to receiving its response,
+     * `null` until the first upload completes.
+     */
+    @Volatile
+    var latency: Double? = null
+        private set
+
+    /**
+     * Estimated upload throughput in bytes per second, `null` until the first upload completes.
+     */
+    @Volatile
+    var throughput: Double? = null
+        private set
+
+    @Volatile
+    var sampleCount: Int = 0
+        private set
+
+    /**
+     * Returns the start time of a measurement, to be handed back to `addSample` once the request completes.
+     */
+    fun startMeasurement(): Long = clock()
+
+    /**
+     * Adds a completed upload to the estimate.
+     * @param startTime value returned by `startMeasurement` when the request was sent
+     * @param bytes size of the uploaded payload
+     */
+    @Synchronized
+    fun addSample(startTime: Long, bytes: Int) {
+        val elapsed = (clock() - startTime) / n2s
+        if (elapsed <= 0.0) {
+            return
+        }
+        recentLatencies[sampleCount % LatencyWindow] = elapsed
+        latency = average(latency, elapsed)
+        throughput = average(throughput, bytes / elapsed)
+        sampleCount++
+    }
+
+    /**
+     * Latency percentile of the last uploads, in seconds.
+     * @param percentile value between 0 and 1, e.g. 0.95
+     * @return `null` until enough uploads completed for the percentile to be meaningful
+     */
+    @Synchronized
+    fun latencyPercentile(percentile: Double): Double? {
+        val count = minOf(sampleCount, LatencyWindow)
+        if (count < MinPercentileSamples) {
+            return null
+        }
+        val sorted = recentLatencies.copyOf(count)
+        sorted.sort()
+        val index = ((count - 1) * percentile.coerceIn(0.0, 1.0)).toInt()
+        return sorted[index]
+    }
+
+    /**
+     * Forgets every sample, used when the device switches network.
+     */
+    @Synchronized
+    fun reset() {
+        latency = null
+        throughput = null
+        sampleCount = 0
+    }
+
+    private fun average(current: Double?, sample: Double): Double {
+        return if (current == null) sample else current + smoothing * (sample - current)
+    }
+
+    companion object {
+        private const val LatencyWindow = 50
+        private const val MinPercentileSamples = 10
+    }
+}
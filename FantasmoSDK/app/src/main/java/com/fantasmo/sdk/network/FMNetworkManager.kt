@@ -7,13 +7,13 @@
 package com.fantasmo.sdk.network
 
 import android.content.Context
-import android.net.ConnectivityManager
-import android.net.NetworkCapabilities
-import android.os.Build
+import android.os.Handler
+import android.os.Looper
 import android.util.Log
 import com.android.volley.*
 import com.android.volley.toolbox.JsonObjectRequest
 import com.android.volley.toolbox.Volley
+import com.fantasmo.sdk.FMUtility
 import com.fantasmo.sdk.config.RemoteConfig
 import com.fantasmo.sdk.models.ErrorResponse
 import com.fantasmo.sdk.models.IsLocalizationAvailableResponse
@@ -22,6 +22,11 @@ import com.google.gson.Gson
 import com.google.gson.JsonSyntaxException
 import org.json.JSONException
 import org.json.JSONObject
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Manager for network requests.
@@ -41,10 +46,30 @@ internal class FMNetworkManager(
 
     private val oneOffQueues: MutableList<RequestQueue> = mutableListOf()
 
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    // Localize requests being sent, with their retries, by tag
+    private val localizeCalls = ConcurrentHashMap<Any, FMRetryingCall<NetworkResponse, VolleyError>>()
+
+    private val retryBudget = FMRetryBudget(
+        FMUtility.Constants.RetryBudgetRatio,
+        FMUtility.Constants.RetryBudgetReserve,
+        FMUtility.Constants.RetryBudgetCapacity
+    )
+
+    private val networkMonitor = FMNetworkMonitor.getInstance(context)
+
+    // Holds the requests that can still be useful when sent later, e.g. session analytics
+    private val offlineUploader = FMOfflineUploader.getInstance(context)
+
     lateinit var multipartRequest: MultiPartRequest
 
     /**
      * Method to upload an image with the given [imageData] and [parameters].
+     * Failed attempts are retried following [retryPolicy] and, if [hedgeAfterMillis] is set, a second
+     * attempt is sent when the first one takes longer than that.
+     * Every successful attempt is added to [estimator], if set.
+     * The request can later be cancelled with `cancelLocalizeRequest` using the same [tag].
      */
     fun uploadImage(
         url: String,
@@ -52,12 +77,55 @@ internal class FMNetworkManager(
         parameters: HashMap<String, String>,
         token: String,
         onCompletion: (LocalizeResponse) -> Unit,
-        onError: (ErrorResponse) -> Unit
+        onError: (ErrorResponse) -> Unit,
+        tag: Any = this,
+        retryPolicy: FMRetryPolicy = FMRetryPolicy.none,
+        hedgeAfterMillis: Long? = null,
+        estimator: FMNetworkEstimator? = null
     ) {
         Log.i(TAG, "$url $parameters")
-        multipartRequest = object : MultiPartRequest(
-            Method.POST, url,
-            Response.Listener<NetworkResponse> { response ->
+
+        // Adding request to the queue if there is a connection, otherwise the upload fails right
+        // away, on the main thread like Volley errors, so the caller frees its upload slot
+        if (!isInternetAvailable()) {
+            Log.w(TAG, "No internet connection available")
+            mainHandler.post { onError(ErrorResponse(0, "No internet connection")) }
+            return
+        }
+        val queue = Volley.newRequestQueue(context)
+        oneOffQueues.add(queue)
+        val attemptCount = AtomicInteger(0)
+
+        val call = FMRetryingCall<NetworkResponse, VolleyError>(
+            retryPolicy,
+            retryBudget,
+            retryScheduler,
+            hedgeAfterMillis,
+            this::isRetryable
+        ) { onSuccess, onFailure ->
+            // each attempt is measured on its own, the backoff before a retry isn't upload time
+            val attemptStart = estimator?.startMeasurement() ?: 0L
+            val onAttemptSuccess: (NetworkResponse) -> Unit = { response ->
+                estimator?.addSample(attemptStart, imageData.size)
+                onSuccess(response)
+            }
+            val request = makeUploadImageRequest(url, imageData, parameters, token, onAttemptSuccess, onFailure)
+            request.tag = tag
+            // retries are handled by FMRetryingCall, with backoff, and wait longer than the attempt before
+            request.retryPolicy = DefaultRetryPolicy(
+                uploadTimeoutMillis(imageData.size, estimator?.throughput, attemptCount.incrementAndGet()),
+                0,
+                DefaultRetryPolicy.DEFAULT_BACKOFF_MULT
+            )
+            multipartRequest = request
+            queue.add(request)
+            val cancel: () -> Unit = { request.cancel() }
+            cancel
+        }
+        localizeCalls[tag] = call
+        call.start(
+            { response ->
+                localizeCalls.remove(tag, call)
                 val resultResponse = String(response.data)
                 try {
                     val localizeResult =
@@ -68,7 +136,8 @@ internal class FMNetworkManager(
                     e.printStackTrace()
                 }
             },
-            Response.ErrorListener { error ->
+            { error ->
+                localizeCalls.remove(tag, call)
                 val response = processAndLogError(error)
 
                 if (response != null) {
@@ -76,6 +145,27 @@ internal class FMNetworkManager(
                 } else {
                     onError(ErrorResponse(404, "UnknownError"))
                 }
+            })
+    }
+
+    /**
+     * Builds one attempt of the image upload request.
+     */
+    private fun makeUploadImageRequest(
+        url: String,
+        imageData: ByteArray,
+        parameters: HashMap<String, String>,
+        token: String,
+        onResponse: (NetworkResponse) -> Unit,
+        onErrorResponse: (VolleyError) -> Unit
+    ): MultiPartRequest {
+        return object : MultiPartRequest(
+            Method.POST, url,
+            Response.Listener<NetworkResponse> { response ->
+                onResponse(response)
+            },
+            Response.ErrorListener { error ->
+                onErrorResponse(error)
             }) {
 
             override fun getByteData(): MutableMap<String, FileDataPart> {
@@ -96,16 +186,32 @@ internal class FMNetworkManager(
                 return headers
             }
         }
+    }
 
-        // Adding request to the queue if there is a connection
-        if (isInternetAvailable()) {
-            val queue = Volley.newRequestQueue(context)
-            oneOffQueues.add(queue)
-            multipartRequest.tag = this
-            queue.add(multipartRequest)
-        } else {
-            Log.w(TAG, "No internet connection available")
+    /**
+     * Timeout of a localize upload attempt, long enough for the payload at the measured throughput
+     * and growing with each attempt, as Volley's own retries did.
+     * @param size size of the payload in bytes
+     * @param throughput measured upload throughput in bytes per second, `null` if unknown
+     * @param attempt number of the attempt, starting at 1
+     */
+    internal fun uploadTimeoutMillis(size: Int, throughput: Double?, attempt: Int): Int {
+        var timeout = DefaultRetryPolicy.DEFAULT_TIMEOUT_MS.toDouble()
+        if (throughput != null && throughput > 0.0) {
+            val expected = size / throughput * 1000 * FMUtility.Constants.LocalizeUploadTimeoutFactor
+            timeout = maxOf(timeout, expected)
         }
+        return minOf(timeout * attempt, FMUtility.Constants.LocalizeUploadMaxTimeout.toDouble()).toInt()
+    }
+
+    /**
+     * Whether a failed localize attempt is worth retrying: timeouts, connection failures,
+     * server errors and throttling are usually transient, other client errors are not.
+     */
+    private fun isRetryable(error: VolleyError): Boolean {
+        val statusCode = error.networkResponse?.statusCode
+            ?: return error is TimeoutError || error is NetworkError
+        return statusCode >= 500 || statusCode == 429
     }
 
     /**
@@ -269,22 +375,10 @@ internal class FMNetworkManager(
     }
 
     /**
-     * Check for internet connection.
+     * Check for internet connection, using the state cached by the network monitor.
      */
     private fun isInternetAvailable(): Boolean {
-        val connectivityManager =
-            context.applicationContext.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
-
-        val networkCapabilities = if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {connectivityManager.activeNetwork ?: return false} else return false
-        val actNw =
-            connectivityManager.getNetworkCapabilities(networkCapabilities) ?: return false
-
-        return when {
-            actNw.hasTransport(NetworkCapabilities.TRANSPORT_WIFI) -> true
-            actNw.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR) -> true
-            actNw.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET) -> true
-            else -> false
-        }
+        return networkMonitor.isConnected
     }
 
     fun sendSessionAnalyticsRequest(
@@ -295,6 +389,9 @@ internal class FMNetworkManager(
         onError: (ErrorResponse) -> Unit
     )   {
         Log.i(TAG, "$url $sessionAnalyticsParams")
+        // analytics are sent once per localization session, so its id identifies the request
+        val uuid = JSONObject(sessionAnalyticsParams).optString("localizationSessionId")
+            .ifEmpty { UUID.randomUUID().toString() }
         val jsonRequest = object : JsonObjectRequest( Method.POST,
             url,
             JSONObject(sessionAnalyticsParams),//.toMap()),
@@ -311,6 +408,10 @@ internal class FMNetworkManager(
                 }
             },
             Response.ErrorListener { error ->
+                // a timed out request may have reached the server, queueing it would send it twice
+                if (error is NoConnectionError) {
+                    offlineUploader.enqueue(uuid, url, sessionAnalyticsParams, token)
+                }
                 val response = processAndLogError(error)
                 if (response != null) {
                     onError(response)
@@ -329,13 +430,33 @@ internal class FMNetworkManager(
         // Adding request to the queue if there is a connection
         if (isInternetAvailable()) {
             requestQueue.add(jsonRequest)
+            // also send what was queued, devices without network callbacks only drain here
+            offlineUploader.drain(token)
         } else {
-            Log.w(TAG, "No internet connection available")
+            Log.w(TAG, "No internet connection available, queueing session analytics")
+            offlineUploader.enqueue(uuid, url, sessionAnalyticsParams, token)
         }
     }
 
     fun stopAllLocalizeRequests() {
-        oneOffQueues.forEach{ it -> it.cancelAll(this)}
+        localizeCalls.values.forEach { it.cancel() }
+        localizeCalls.clear()
+        oneOffQueues.forEach{ it -> it.cancelAll(RequestQueue.RequestFilter { true }) }
         oneOffQueues.clear()
     }
+
+    /**
+     * Cancels the localize request that was sent with the given [tag].
+     */
+    fun cancelLocalizeRequest(tag: Any) {
+        localizeCalls.remove(tag)?.cancel()
+        oneOffQueues.forEach { it.cancelAll(tag) }
+    }
+
+    companion object {
+        // Delays retries and hedged requests of every localize request
+        private val retryScheduler: ScheduledExecutorService by lazy {
+            Executors.newSingleThreadScheduledExecutor()
+        }
+    }
 }
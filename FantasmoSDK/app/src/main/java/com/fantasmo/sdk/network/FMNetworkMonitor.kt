@@ -0,0 +1,150 @@
+package com.fantasmo.sdk.network
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.os.Build
+import android.util.Log
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Kind of network the device is currently using, as far as uploads are concerned.
+ */
+internal enum class FMNetworkClass {
+    // no usable network
+    NONE,
+
+    // unmetered Wi-Fi or ethernet
+    WIFI,
+
+    // mobile data
+    CELLULAR,
+
+    // metered Wi-Fi or ethernet, e.g. a mobile hotspot
+    METERED
+}
+
+/**
+ * Keeps track of the default network through `ConnectivityManager` callbacks, so checking
+ * connectivity before a request is a volatile read instead of a system service query.
+ * On devices older than Android N, where the default network callback is not available,
+ * the network is queried on every read.
+ * A single instance is shared by the whole process, see `getInstance`.
+ */
+internal class FMNetworkMonitor private constructor(context: Context) {
+
+    private val TAG = FMNetworkMonitor::class.java.simpleName
+
+    private val connectivityManager =
+        (context.applicationContext ?: context).getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager?
+
+    private val listeners = CopyOnWriteArrayList<(FMNetworkClass) -> Unit>()
+
+    @Volatile
+    private var cachedNetworkClass = queryNetworkClass()
+
+    private val isRegistered = registerNetworkCallback()
+
+    /**
+     * Class of the current default network.
+     */
+    val networkClass: FMNetworkClass
+        get() = if (isRegistered) cachedNetworkClass else queryNetworkClass()
+
+    val isConnected: Boolean
+        get() = networkClass != FMNetworkClass.NONE
+
+    /**
+     * Registers a listener invoked on a `ConnectivityManager` thread whenever the network class changes.
+     * Never invoked on devices older than Android N.
+     */
+    fun addListener(listener: (FMNetworkClass) -> Unit) {
+        listeners.add(listener)
+    }
+
+    fun removeListener(listener: (FMNetworkClass) -> Unit) {
+        listeners.remove(listener)
+    }
+
+    private fun updateNetworkClass(networkClass: FMNetworkClass) {
+        if (cachedNetworkClass == networkClass) {
+            return
+        }
+        cachedNetworkClass = networkClass
+        listeners.forEach { it(networkClass) }
+    }
+
+    private fun registerNetworkCallback(): Boolean {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || connectivityManager == null) {
+            return false
+        }
+        return try {
+            connectivityManager.registerDefaultNetworkCallback(object : ConnectivityManager.NetworkCallback() {
+                override fun onCapabilitiesChanged(
+                    network: Network,
+                    networkCapabilities: NetworkCapabilities
+                ) {
+                    updateNetworkClass(classify(networkCapabilities))
+                }
+
+                override fun onLost(network: Network) {
+                    updateNetworkClass(FMNetworkClass.NONE)
+                }
+            })
+            true
+        } catch (e: RuntimeException) {
+            Log.e(TAG, "Failed to register network callback: ${e.message}")
+            false
+        }
+    }
+
+    @Suppress("DEPRECATION")
+    private fun queryNetworkClass(): FMNetworkClass {
+        val connectivityManager = connectivityManager ?: return FMNetworkClass.NONE
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            val network = connectivityManager.activeNetwork ?: return FMNetworkClass.NONE
+            val capabilities =
+                connectivityManager.getNetworkCapabilities(network) ?: return FMNetworkClass.NONE
+            return classify(capabilities)
+        }
+        val networkInfo = connectivityManager.activeNetworkInfo
+        if (networkInfo == null || !networkInfo.isConnected) {
+            return FMNetworkClass.NONE
+        }
+        return when (networkInfo.type) {
+            ConnectivityManager.TYPE_WIFI, ConnectivityManager.TYPE_ETHERNET -> {
+                if (connectivityManager.isActiveNetworkMetered) FMNetworkClass.METERED else FMNetworkClass.WIFI
+            }
+            ConnectivityManager.TYPE_MOBILE -> FMNetworkClass.CELLULAR
+            else -> FMNetworkClass.NONE
+        }
+    }
+
+    private fun classify(capabilities: NetworkCapabilities): FMNetworkClass {
+        val isMetered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+        return when {
+            capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                    || capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET) -> {
+                if (isMetered) FMNetworkClass.METERED else FMNetworkClass.WIFI
+            }
+            capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR) -> FMNetworkClass.CELLULAR
+            else -> FMNetworkClass.NONE
+        }
+    }
+
+    companion object {
+        @Volatile
+        private var instance: FMNetworkMonitor? = null
+
+        /**
+         * Returns the process wide monitor, registering the network callback on first use.
+         * @param context any context, only used to get the connectivity service
+         */
+        fun getInstance(context: Context): FMNetworkMonitor {
+            return instance ?: synchronized(this) {
+                instance ?: FMNetworkMonitor(context).also { instance = it }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.fantasmo.sdk.network
+
+import android.util.Log
+import com.google.gson.Gson
+import com.google.gson.JsonSyntaxException
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Size-capped queue of requests that could not be sent, persisted so they survive app restarts.
+ * Requests are appended to `file` one JSON line each, the file is only rewritten when requests
+ * are removed or the oldest ones are evicted to stay under `maxBytes`.
+ * A request is identified by its `uuid`, enqueueing a request with the uuid of a queued one replaces
+ * it in place, e.g. with a more complete payload for the same session.
+ * @param file file backing the queue, created on first write
+ * @param maxBytes maximum size of the file, oldest requests are dropped past it
+ */
+internal class FMOfflineQueue(
+    private val file: File,
+    private val maxBytes: Long
+) {
+    /**
+     * Request waiting to be sent.
+     * @property uuid identifier used to discard duplicates
+     * @property url endpoint the request is sent to
+     * @property body JSON body of the request
+     * The API key is deliberately not part of an entry, it must not be written to disk, the
+     * current one is attached when the request is sent.
+     */
+    data class Entry(
+        val uuid: String,
+        val url: String,
+        val body: String
+    )
+
+    private val TAG = FMOfflineQueue::class.java.simpleName
+
+    private val gson = Gson()
+
+    // Queued entries in insertion order, read from `file` on first access
+    private var entries: LinkedHashMap<String, Entry>? = null
+
+    private var bytes = 0L
+
+    private val isDraining = AtomicBoolean(false)
+
+    val size: Int
+        @Synchronized get() = load().size
+
+    /**
+     * Size of the queue on disk.
+     */
+    val sizeInBytes: Long
+        @Synchronized get() {
+            load()
+            return bytes
+        }
+
+    /**
+     * Appends a request to the queue, or replaces the queued request with the same uuid.
+     * @param entry request to keep for later
+     * @return `false` if the same request is already queued or the request is larger than the queue
+     */
+    @Synchronized
+    fun enqueue(entry: Entry): Boolean {
+        val entries = load()
+        val queued = entries[entry.uuid]
+        if (queued == entry) {
+            return false
+        }
+        val line = encode(entry)
+        val lineBytes = line.toByteArray().size
+        if (lineBytes > maxBytes) {
+            Log.w(TAG, "Request ${entry.uuid} is larger than the offline queue, discarding it")
+            return false
+        }
+        // replacing keeps the position of the queued request
+        entries[entry.uuid] = entry
+        bytes += lineBytes
+        if (queued != null) {
+            bytes -= encode(queued).toByteArray().size
+        }
+        if (queued == null && bytes <= maxBytes) {
+            append(line)
+            return true
+        }
+        val iterator = entries.values.iterator()
+        while (bytes > maxBytes && iterator.hasNext()) {
+            val oldest = iterator.next()
+            bytes -= encode(oldest).toByteArray().size
+            iterator.remove()
+            Log.w(TAG, "Offline queue full, dropping request ${oldest.uuid}")
+        }
+        rewrite()
+        return true
+    }
+
+    /**
+     * Oldest requests in the queue, without removing them.
+     * @param count maximum number of requests to return
+     */
+    @Synchronized
+    fun peek(count: Int): List<Entry> {
+        return load().values.take(count)
+    }
+
+    /**
+     * Removes the requests with the given uuids.
+     */
+    @Synchronized
+    fun remove(uuids: Collection<String>) {
+        val entries = load()
+        var removedAny = false
+        for (uuid in uuids) {
+            val removed = entries.remove(uuid) ?: continue
+            bytes -= encode(removed).toByteArray().size
+            removedAny = true
+        }
+        if (removedAny) {
+            rewrite()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        load().clear()
+        bytes = 0
+        file.delete()
+    }
+
+    /**
+     * Sends the queued requests oldest first, `batchSize` at a time. Requests that were sent are
+     * removed after each batch. Draining stops at the first request that could not be sent so
+     * the original order is kept for the next attempt. Only one drain runs at a time, calls made
+     * while draining return right away.
+     * @param batchSize number of requests sent between two writes of the queue file
+     * @param send sends a request, blocking until done, and returns `false` if it should be retried later
+     * @return number of requests sent
+     */
+    fun drain(batchSize: Int, send: (Entry) -> Boolean): Int {
+        if (!isDraining.compareAndSet(false, true)) {
+            return 0
+        }
+        var sentCount = 0
+        try {
+            while (true) {
+                val batch = peek(batchSize)
+                if (batch.isEmpty()) {
+                    break
+                }
+                val sent = mutableListOf<String>()
+                for (entry in batch) {
+                    if (!send(entry)) {
+                        break
+                    }
+                    sent.add(entry.uuid)
+                }
+                remove(sent)
+                sentCount += sent.size
+                if (sent.size < batch.size) {
+                    break
+                }
+            }
+        } finally {
+            isDraining.set(false)
+        }
+        return sentCount
+    }
+
+    private fun load(): LinkedHashMap<String, Entry> {
+        entries?.let { return it }
+        val loaded = LinkedHashMap<String, Entry>()
+        bytes = 0
+        if (file.exists()) {
+            try {
+                file.forEachLine { line ->
+                    val entry = decode(line) ?: return@forEachLine
+                    if (!loaded.containsKey(entry.uuid)) {
+                        loaded[entry.uuid] = entry
+                        bytes += encode(entry).toByteArray().size
+                    }
+                }
+            } catch (e: IOException) {
+                Log.e(TAG, "Failed to read offline queue: ${e.message}")
+            }
+        }
+        entries = loaded
+        return loaded
+    }
+
+    private fun append(line: String) {
+        try {
+            file.appendText(line)
+        } catch (e: IOException) {
+            Log.e(TAG, "Failed to write offline queue: ${e.message}")
+        }
+    }
+
+    private fun rewrite() {
+        val entries = entries ?: return
+        try {
+            val tempFile = File(file.path + ".tmp")
+            tempFile.writeText(entries.values.joinToString("") { encode(it) })
+            if (!tempFile.renameTo(file)) {
+                file.delete()
+                tempFile.renameTo(file)
+            }
+        } catch (e: IOException) {
+            Log.e(TAG, "Failed to write offline queue: ${e.message}")
+        }
+    }
+
+    private fun encode(entry: Entry): String = gson.toJson(entry) + "\n"
+
+    private fun decode(line: String): Entry? {
+        if (line.isBlank()) {
+            return null
+        }
+        return try {
+            gson.fromJson(line, Entry::class.java)
+        } catch (e: JsonSyntaxException) {
+            Log.e(TAG, "Skipping corrupted offline queue entry")
+            null
+        }
+    }
+}
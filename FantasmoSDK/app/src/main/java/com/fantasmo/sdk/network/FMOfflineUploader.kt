@@ -0,0 +1,163 @@
+package com.fantasmo.sdk.network
+
+import android.content.Context
+import android.util.Log
+import com.android.volley.RequestQueue
+import com.android.volley.TimeoutError
+import com.android.volley.VolleyError
+import com.android.volley.toolbox.JsonObjectRequest
+import com.android.volley.toolbox.RequestFuture
+import com.android.volley.toolbox.Volley
+import com.fantasmo.sdk.FMUtility
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.File
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * Keeps the requests that could not be sent while offline in a `FMOfflineQueue` and replays
+ * them once the network monitor reports connectivity again.
+ * A single instance is shared by the whole process, see `getInstance`.
+ * @param queueFile file the queue is persisted in, only other than the shared one in tests
+ */
+internal class FMOfflineUploader internal constructor(
+    context: Context,
+    queueFile: File = File(
+        (context.applicationContext ?: context).filesDir,
+        FMUtility.Constants.OfflineQueueFileName
+    )
+) {
+
+    private val TAG = FMOfflineUploader::class.java.simpleName
+
+    private val appContext = context.applicationContext ?: context
+
+    private val queue = FMOfflineQueue(queueFile, FMUtility.Constants.OfflineQueueMaxBytes)
+
+    private val networkMonitor = FMNetworkMonitor.getInstance(appContext)
+
+    private val requestQueue: RequestQueue by lazy {
+        Volley.newRequestQueue(appContext)
+    }
+
+    // Drains run one after the other, off the main thread since requests are sent blocking
+    private val executor = Executors.newSingleThreadExecutor()
+
+    init {
+        networkMonitor.addListener { networkClass ->
+            if (networkClass != FMNetworkClass.NONE) {
+                drain()
+            }
+        }
+        drain()
+    }
+
+    val queuedCount: Int
+        get() = queue.size
+
+    // API key of the last request, kept in memory only, queued requests are sent with it
+    @Volatile
+    private var token: String? = null
+
+    /**
+     * Keeps a JSON request for later, it is sent as soon as the device is back online.
+     * @param uuid identifier of the request, a request already queued with the same uuid is replaced
+     * @param url endpoint to send the request to
+     * @param body JSON body of the request
+     * @param token API key of the request, kept in memory to send the queued requests, never written to disk
+     */
+    fun enqueue(uuid: String, url: String, body: String, token: String) {
+        this.token = token
+        executor.execute {
+            if (queue.enqueue(FMOfflineQueue.Entry(uuid, url, body))) {
+                Log.i(TAG, "Queued request $uuid until connectivity returns")
+            }
+        }
+    }
+
+    /**
+     * Sends the queued requests in the background if the device is online. Requests left from a
+     * previous run wait until a request of this run provides the API key.
+     * @param token current API key, the last one given is used if `null`
+     */
+    fun drain(token: String? = null) {
+        if (token != null) {
+            this.token = token
+        }
+        val currentToken = this.token ?: return
+        if (!networkMonitor.isConnected) {
+            return
+        }
+        executor.execute {
+            val sent = queue.drain(FMUtility.Constants.OfflineQueueBatchSize) { send(it, currentToken) }
+            if (sent > 0) {
+                Log.i(TAG, "Sent $sent queued requests, ${queue.size} left")
+            }
+        }
+    }
+
+    /**
+     * Sends a queued request with the current API key and waits for the response.
+     * @return `true` if the request is done with, either sent, rejected by the server or timed out,
+     * `false` if it should be tried again later
+     */
+    private fun send(entry: FMOfflineQueue.Entry, token: String): Boolean {
+        val body = try {
+            JSONObject(entry.body)
+        } catch (e: JSONException) {
+            Log.e(TAG, "Discarding queued request ${entry.uuid} with invalid body")
+            return true
+        }
+        val future = RequestFuture.newFuture<JSONObject>()
+        val request = object : JsonObjectRequest(Method.POST, entry.url, body, future, future) {
+            override fun getHeaders(): MutableMap<String, String> {
+                val headers = HashMap<String, String>()
+                headers["Fantasmo-Key"] = token
+                return headers
+            }
+        }
+        requestQueue.add(request)
+        return try {
+            future.get(FMUtility.Constants.OfflineRequestTimeout, TimeUnit.SECONDS)
+            true
+        } catch (e: ExecutionException) {
+            val statusCode = (e.cause as? VolleyError)?.networkResponse?.statusCode
+            if (statusCode != null && statusCode in 400..499) {
+                Log.e(TAG, "Queued request ${entry.uuid} rejected with status $statusCode, discarding it")
+                true
+            } else if (e.cause is TimeoutError) {
+                // the request may have reached the server, sending it again could count it twice
+                Log.w(TAG, "Queued request ${entry.uuid} timed out, discarding it")
+                true
+            } else {
+                false
+            }
+        } catch (e: TimeoutException) {
+            // the request may have reached the server, sending it again could count it twice
+            request.cancel()
+            Log.w(TAG, "Queued request ${entry.uuid} timed out, discarding it")
+            true
+        } catch (e: InterruptedException) {
+            request.cancel()
+            false
+        }
+    }
+
+    companion object {
+        @Volatile
+        private var instance: FMOfflineUploader? = null
+
+        /**
+         * Returns the process wide uploader, replaying any request left from a previous run.
+         * @param context any context, only used to get the application files directory
+         */
+        fun getInstance(context: Context): FMOfflineUploader {
+            return instance ?: synchronized(this) {
+                instance ?: FMOfflineUploader(context).also { instance = it }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.fantasmo.sdk.network
+
+/**
+ * Limits retries and hedged attempts to a fraction of the requests sent, so that a struggling
+ * backend doesn't receive several times its normal load from clients retrying.
+ * Every request earns `ratio` tokens and every extra attempt spends one. The balance starts at
+ * `reserve`, allowing a few retries before any request completed, and never exceeds `capacity`.
+ * @param ratio tokens earned by each request, e.g. 0.2 allows one extra attempt for every five requests
+ * @param reserve initial balance
+ * @param capacity maximum balance
+ */
+internal class FMRetryBudget(
+    private val ratio: Double,
+    reserve: Double,
+    private val capacity: Double
+) {
+    private var tokens = minOf(reserve, capacity)
+
+    val balance: Double
+        @Synchronized get() = tokens
+
+    /**
+     * Records a new request.
+     */
+    @Synchronized
+    fun deposit() {
+        tokens = minOf(capacity, tokens + ratio)
+    }
+
+    /**
+     * Takes a token for a retry or hedged attempt.
+     * @return `false` if the budget is exhausted and the extra attempt must not be sent
+     */
+    @Synchronized
+    fun tryWithdraw(): Boolean {
+        if (tokens < 1.0) {
+            return false
+        }
+        tokens -= 1.0
+        return true
+    }
+}
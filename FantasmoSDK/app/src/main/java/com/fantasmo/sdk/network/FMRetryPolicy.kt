@@ -0,0 +1,56 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.FMUtility
+import kotlin.math.min
+import kotlin.random.Random
+
+/**
+ * Decides how many times a failed request is sent again and how long to wait before each retry.
+ * The wait doubles with every retry, up to `maxDelayMillis`, and is randomized between half and
+ * all of it so that clients failing at the same time don't retry at the same time.
+ * @param maxRetries number of retries after the first attempt, 0 disables retries
+ * @param baseDelayMillis wait before the first retry, before jitter
+ * @param maxDelayMillis longest wait between two attempts, before jitter
+ * @param random source of the jitter, replaceable for testing
+ */
+internal class FMRetryPolicy(
+    val maxRetries: Int,
+    val baseDelayMillis: Long,
+    val maxDelayMillis: Long,
+    private val random: Random = Random.Default
+) {
+    /**
+     * Time to wait before sending a retry.
+     * @param retry number of the retry, starting at 1
+     */
+    fun delayMillis(retry: Int): Long {
+        val exponent = min(maxOf(retry - 1, 0), 30)
+        val cap = min(maxDelayMillis, baseDelayMillis shl exponent)
+        if (cap <= 0) {
+            return 0
+        }
+        return cap / 2 + random.nextLong(cap - cap / 2 + 1)
+    }
+
+    companion object {
+        val none = FMRetryPolicy(0, 0, 0)
+
+        /**
+         * Builds the localize retry policy, remote config values left unset fall back to the SDK defaults.
+         * @param maxRetries `localize_max_retries` from the remote config
+         * @param baseDelay `localize_retry_base_delay` from the remote config, in seconds
+         */
+        fun make(maxRetries: Int?, baseDelay: Float?): FMRetryPolicy {
+            val baseDelayMillis = if (baseDelay == null) {
+                FMUtility.Constants.LocalizeRetryBaseDelay
+            } else {
+                (baseDelay * 1000).toLong()
+            }
+            return FMRetryPolicy(
+                maxRetries ?: FMUtility.Constants.LocalizeMaxRetries,
+                baseDelayMillis,
+                FMUtility.Constants.LocalizeRetryMaxDelay
+            )
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.fantasmo.sdk.network
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sends one logical request as one or more attempts.
+ * A failed attempt is retried with backoff while the error is retryable and the policy and
+ * budget allow it. If `hedgeAfterMillis` is set and the first attempt hasn't answered by then,
+ * a second attempt is sent alongside it, the first response wins and the other attempt is cancelled.
+ * Callbacks of the attempts can arrive on any thread.
+ * @param policy retry policy
+ * @param budget budget shared by all requests of the same backend, each retry or hedge spends from it
+ * @param scheduler executor used to delay retries and hedges
+ * @param hedgeAfterMillis delay before sending a hedged attempt, `null` disables hedging
+ * @param isRetryable whether an attempt failing with the error may be retried
+ * @param attempt sends one attempt and returns a function cancelling it
+ */
+internal class FMRetryingCall<T, E>(
+    private val policy: FMRetryPolicy,
+    private val budget: FMRetryBudget,
+    private val scheduler: ScheduledExecutorService,
+    private val hedgeAfterMillis: Long?,
+    private val isRetryable: (E) -> Boolean,
+    private val attempt: (onSuccess: (T) -> Unit, onFailure: (E) -> Unit) -> (() -> Unit)
+) {
+    private var isFinished = false
+    private var attemptCount = 0
+    private var retryCount = 0
+
+    // Attempts waiting for a response, the value is set once `attempt` returned the cancel function
+    private val activeAttempts = HashMap<Int, (() -> Unit)?>()
+    private var pendingTask: ScheduledFuture<*>? = null
+
+    private lateinit var onSuccess: (T) -> Unit
+    private lateinit var onFailure: (E) -> Unit
+
+    /**
+     * Number of attempts sent so far, including retries and the hedged attempt.
+     */
+    val attempts: Int
+        @Synchronized get() = attemptCount
+
+    /**
+     * Sends the first attempt.
+     * @param onSuccess invoked once with the first successful response
+     * @param onFailure invoked once with the last error when no attempt succeeded
+     */
+    fun start(onSuccess: (T) -> Unit, onFailure: (E) -> Unit) {
+        this.onSuccess = onSuccess
+        this.onFailure = onFailure
+        budget.deposit()
+        launch()
+        val hedgeAfter = hedgeAfterMillis ?: return
+        synchronized(this) {
+            if (!isFinished) {
+                pendingTask = scheduler.schedule({ hedge() }, hedgeAfter, TimeUnit.MILLISECONDS)
+            }
+        }
+    }
+
+    /**
+     * Cancels every attempt in flight and any scheduled one, no callback is invoked afterwards.
+     */
+    fun cancel() {
+        val cancels = synchronized(this) {
+            if (isFinished) {
+                return
+            }
+            finish()
+        }
+        cancels.forEach { it() }
+    }
+
+    private fun launch() {
+        val id = synchronized(this) {
+            if (isFinished) {
+                return
+            }
+            attemptCount++
+            activeAttempts[attemptCount] = null
+            attemptCount
+        }
+        val cancel = attempt({ didSucceed(id, it) }, { didFail(id, it) })
+        val cancelNow = synchronized(this) {
+            if (activeAttempts.containsKey(id)) {
+                activeAttempts[id] = cancel
+            }
+            isFinished
+        }
+        if (cancelNow) {
+            cancel()
+        }
+    }
+
+    private fun hedge() {
+        synchronized(this) {
+            pendingTask = null
+            if (isFinished || activeAttempts.isEmpty() || !budget.tryWithdraw()) {
+                return
+            }
+        }
+        launch()
+    }
+
+    private fun didSucceed(id: Int, response: T) {
+        val cancels = synchronized(this) {
+            if (isFinished) {
+                return
+            }
+            activeAttempts.remove(id)
+            finish()
+        }
+        cancels.forEach { it() }
+        onSuccess(response)
+    }
+
+    private fun didFail(id: Int, error: E) {
+        synchronized(this) {
+            if (isFinished) {
+                return
+            }
+            activeAttempts.remove(id)
+            if (activeAttempts.isNotEmpty()) {
+                // another attempt is still running, its outcome decides
+                return
+            }
+            if (isRetryable(error) && retryCount < policy.maxRetries && budget.tryWithdraw()) {
+                retryCount++
+                pendingTask?.cancel(false)
+                pendingTask = scheduler.schedule({ launch() }, policy.delayMillis(retryCount), TimeUnit.MILLISECONDS)
+                return
+            }
+            finish()
+        }
+        onFailure(error)
+    }
+
+    // Must be called holding the lock, returns the cancel functions of the attempts still active
+    private fun finish(): List<() -> Unit> {
+        isFinished = true
+        pendingTask?.cancel(false)
+        pendingTask = null
+        val cancels = activeAttempts.values.filterNotNull()
+        activeAttempts.clear()
+        return cancels
+    }
+}
@@ -0,0 +1,60 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.FMUtility
+
+/**
+ * How localize uploads should be sent on the current network.
+ * @property jpegQuality JPEG compression quality of the uploaded image
+ * @property maxConcurrentUploads maximum number of localize requests in flight
+ * @property windowTimeScale factor applied to the localization window times, larger values upload less often
+ * @property allowsHedging whether a slow localize upload may be sent a second time, see `FMRetryingCall`
+ */
+internal data class FMUploadPolicy(
+    val jpegQuality: Int,
+    val maxConcurrentUploads: Int,
+    val windowTimeScale: Float,
+    val allowsHedging: Boolean
+) {
+    companion object {
+        // Uploads slower than this (in seconds) are sent one at a time and less often
+        private const val SlowUploadLatency = 2.0
+
+        // Below this throughput (in bytes per second) images are sent smaller, a 300 KB image takes 2 s
+        private const val SlowUploadThroughput = 150_000.0
+
+        // Lowest JPEG quality used, going below 80 noticeably hurts localization
+        private const val MinJpegQuality = 80
+
+        val default = FMUploadPolicy(
+            FMUtility.Constants.JpegCompressionRatio,
+            FMUtility.Constants.MaxConcurrentUploads,
+            1.0f,
+            true
+        )
+
+        /**
+         * Picks the policy for a network class, then downgrades it if the measured uploads are slow.
+         * A high latency, which includes the time the server takes, reduces how many and how often frames
+         * are uploaded, a low throughput reduces the size of the images.
+         * @param networkClass class of the current network
+         * @param estimator latency and throughput measured on that network
+         */
+        fun make(networkClass: FMNetworkClass, estimator: FMNetworkEstimator): FMUploadPolicy {
+            var policy = when (networkClass) {
+                FMNetworkClass.WIFI -> default
+                // a hedged upload sends the whole image twice, only done on unmetered networks
+                FMNetworkClass.CELLULAR -> FMUploadPolicy(85, FMUtility.Constants.MaxConcurrentUploads, 1.25f, false)
+                FMNetworkClass.METERED, FMNetworkClass.NONE -> FMUploadPolicy(MinJpegQuality, 1, 1.5f, false)
+            }
+            val latency = estimator.latency
+            if (latency != null && latency > SlowUploadLatency) {
+                policy = policy.copy(maxConcurrentUploads = 1, windowTimeScale = maxOf(policy.windowTimeScale, 1.5f))
+            }
+            val throughput = estimator.throughput
+            if (throughput != null && throughput < SlowUploadThroughput) {
+                policy = policy.copy(jpegQuality = MinJpegQuality)
+            }
+            return policy
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.models.FMFrame
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Receives the decisions taken by the `FMUploadScheduler`.
+ * Methods are called synchronously, on the thread calling the scheduler method that took the decision:
+ * the frame coroutine for `submit` and `expireStaleUploads`, the network callbacks for `finish`.
+ * They must be quick and must not block.
+ */
+internal interface FMUploadSchedulerListener {
+    /**
+     * The frame got an upload slot and its localize request should be sent now.
+     */
+    fun startUpload(frame: FMFrame)
+
+    /**
+     * The frame was in flight for longer than the deadline and its request should be cancelled.
+     */
+    fun cancelUpload(frame: FMFrame)
+
+    /**
+     * The frame left the scheduler without being uploaded, or before its upload finished: it was
+     * replaced in the queue, waited longer than the deadline or the scheduler was reset.
+     */
+    fun dropFrame(frame: FMFrame)
+
+    /**
+     * The number of in-flight, queued or dropped uploads changed.
+     */
+    fun didUpdateUploadStatus(status: FMUploadStatus)
+}
+
+/**
+ * Snapshot of the upload scheduler counters.
+ * @property inFlight number of localize requests currently being sent
+ * @property queued number of frames waiting for a free upload slot (0 or 1)
+ * @property dropped total frames that were replaced in the queue or cancelled for exceeding the deadline
+ */
+data class FMUploadStatus(val inFlight: Int, val queued: Int, val dropped: Int)
+
+/**
+ * Class responsible for limiting the number of concurrent localize uploads.
+ * At most `maxInFlight` requests are sent at the same time. While all slots are busy only the
+ * latest frame is kept waiting, older waiting frames are dropped since a newer frame makes them obsolete.
+ * Uploads still in flight after `deadline` seconds are cancelled because their result would be stale.
+ * The scheduler takes no locks, it can be used from the frame coroutine, the network callbacks and the UI.
+ * It doesn't dispatch the listener calls, see `FMUploadSchedulerListener`.
+ * @param maxInFlight maximum number of concurrent uploads
+ * @param deadline time in seconds after which an upload (or a queued frame) is considered stale
+ * @param clock time source in nanoseconds, replaceable for testing
+ */
+internal class FMUploadScheduler(
+    maxInFlight: Int,
+    @Volatile var deadline: Double,
+    private val listener: FMUploadSchedulerListener,
+    private val clock: () -> Long = { System.nanoTime() }
+) {
+    private class QueuedFrame(val frame: FMFrame, val queuedAt: Long)
+
+    private val n2s = 1_000_000_000.0
+
+    @Volatile
+    var maxInFlight: Int = maxOf(1, maxInFlight)
+        set(value) {
+            field = maxOf(1, value)
+        }
+
+    private val inFlight = FMInFlightRegistry()
+
+    // Number of taken upload slots, acquired before a frame is added to `inFlight`
+    private val slots = AtomicInteger(0)
+
+    private val queuedFrame = AtomicReference<QueuedFrame?>(null)
+
+    private val dropped = AtomicInteger(0)
+
+    val droppedCount: Int
+        get() = dropped.get()
+
+    val inFlightCount: Int
+        get() = inFlight.size
+
+    val queuedCount: Int
+        get() = if (queuedFrame.get() != null) 1 else 0
+
+    /**
+     * Frames currently being uploaded, oldest first.
+     */
+    val inFlightFrames: List<FMFrame>
+        get() = inFlight.snapshot()
+
+    /**
+     * Sends the frame right away if there's a free slot, otherwise keeps it as the next frame to upload,
+     * replacing any frame that was already waiting.
+     * @param frame frame to localize
+     */
+    fun submit(frame: FMFrame) {
+        expireStaleUploads()
+        if (tryAcquireSlot()) {
+            start(frame)
+        } else {
+            val replaced = queuedFrame.getAndSet(QueuedFrame(frame, clock()))
+            if (replaced != null) {
+                dropped.incrementAndGet()
+                listener.dropFrame(replaced.frame)
+            }
+        }
+        notifyStatus()
+    }
+
+    /**
+     * Marks the upload of the frame as finished and starts the queued frame, if any.
+     * @param frame frame whose upload finished
+     * @return `false` if the upload was already cancelled, in which case its result should be discarded
+     */
+    fun finish(frame: FMFrame): Boolean {
+        val wasInFlight = inFlight.remove(frame)
+        if (wasInFlight) {
+            slots.decrementAndGet()
+        }
+        startQueuedFrame()
+        notifyStatus()
+        return wasInFlight
+    }
+
+    /**
+     * Cancels uploads that have been in flight for longer than the deadline.
+     * Should be invoked regularly, e.g. for every new frame.
+     */
+    fun expireStaleUploads() {
+        if (inFlight.isEmpty()) {
+            startQueuedFrame()
+            return
+        }
+        val now = clock()
+        var expiredAny = false
+        for (entry in inFlight.entries()) {
+            if ((now - entry.startTime) / n2s > deadline && inFlight.remove(entry.frame)) {
+                slots.decrementAndGet()
+                dropped.incrementAndGet()
+                expiredAny = true
+                listener.cancelUpload(entry.frame)
+            }
+        }
+        startQueuedFrame()
+        if (expiredAny) {
+            notifyStatus()
+        }
+    }
+
+    /**
+     * Forgets every in-flight and queued frame and resets counters.
+     * Used when starting a new localization session.
+     */
+    fun reset() {
+        for (entry in inFlight.entries()) {
+            if (inFlight.remove(entry.frame)) {
+                listener.dropFrame(entry.frame)
+            }
+        }
+        slots.set(0)
+        queuedFrame.getAndSet(null)?.let { listener.dropFrame(it.frame) }
+        dropped.set(0)
+    }
+
+    private fun tryAcquireSlot(): Boolean {
+        while (true) {
+            val taken = slots.get()
+            if (taken >= maxInFlight) {
+                return false
+            }
+            if (slots.compareAndSet(taken, taken + 1)) {
+                return true
+            }
+        }
+    }
+
+    private fun startQueuedFrame() {
+        if (queuedFrame.get() == null || !tryAcquireSlot()) {
+            return
+        }
+        val queued = queuedFrame.getAndSet(null)
+        if (queued == null) {
+            slots.decrementAndGet()
+            return
+        }
+        if ((clock() - queued.queuedAt) / n2s > deadline) {
+            slots.decrementAndGet()
+            dropped.incrementAndGet()
+            listener.dropFrame(queued.frame)
+            return
+        }
+        start(queued.frame)
+    }
+
+    private fun start(frame: FMFrame) {
+        inFlight.add(frame, clock())
+        listener.startUpload(frame)
+    }
+
+    private fun notifyStatus() {
+        listener.didUpdateUploadStatus(FMUploadStatus(inFlightCount, queuedCount, droppedCount))
+    }
+}
@@ -0,0 +1,58 @@
+package com.fantasmo.sdk.utilities
+
+import android.graphics.Point
+import android.graphics.Rect
+import com.google.mlkit.vision.barcode.common.Barcode
+import com.google.mlkit.vision.barcode.common.internal.BarcodeSource
+
+/**
+ * Source of a `Barcode` found in a region extracted from the camera image, with its bounding box
+ * and corner points mapped back to camera image pixels. The other values are the scanned ones.
+ * @param barcode barcode found by ML Kit in the extracted region
+ * @param left left of the region in the camera image
+ * @param top top of the region in the camera image
+ * @param step distance in the camera image between two pixels of the region
+ */
+internal class CameraImageBarcodeSource(
+    private val barcode: Barcode,
+    private val left: Int,
+    private val top: Int,
+    private val step: Int
+) : BarcodeSource {
+
+    override fun getBoundingBox(): Rect? = barcode.boundingBox?.let {
+        Rect(left + it.left * step, top + it.top * step, left + it.right * step, top + it.bottom * step)
+    }
+
+    override fun getCornerPoints(): Array<Point>? = barcode.cornerPoints?.let { points ->
+        Array(points.size) { Point(left + points[it].x * step, top + points[it].y * step) }
+    }
+
+    override fun getFormat(): Int = barcode.format
+
+    override fun getValueType(): Int = barcode.valueType
+
+    override fun getRawValue(): String? = barcode.rawValue
+
+    override fun getRawBytes(): ByteArray? = barcode.rawBytes
+
+    override fun getDisplayValue(): String? = barcode.displayValue
+
+    override fun getEmail(): Barcode.Email? = barcode.email
+
+    override fun getPhone(): Barcode.Phone? = barcode.phone
+
+    override fun getSms(): Barcode.Sms? = barcode.sms
+
+    override fun getWifi(): Barcode.WiFi? = barcode.wifi
+
+    override fun getUrl(): Barcode.UrlBookmark? = barcode.url
+
+    override fun getGeoPoint(): Barcode.GeoPoint? = barcode.geoPoint
+
+    override fun getCalendarEvent(): Barcode.CalendarEvent? = barcode.calendarEvent
+
+    override fun getContactInfo(): Barcode.ContactInfo? = barcode.contactInfo
+
+    override fun getDriverLicense(): Barcode.DriverLicense? = barcode.driverLicense
+}
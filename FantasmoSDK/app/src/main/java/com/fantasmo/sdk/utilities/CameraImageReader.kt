@@ -0,0 +1,184 @@
+package com.fantasmo.sdk.utilities
+
+import android.graphics.ImageFormat
+import android.graphics.YuvImage
+import android.os.Build
+import android.util.Log
+import androidx.annotation.RequiresApi
+import com.google.ar.core.Frame
+import com.google.ar.core.exceptions.DeadlineExceededException
+import com.google.ar.core.exceptions.NotYetAvailableException
+import com.google.ar.core.exceptions.ResourceExhaustedException
+
+/**
+ * Acquisition stage of the camera images, run on the GL thread right after `Session.update()`
+ * for the frames that need their image. The image is copied into a pooled buffer and released
+ * to ARCore at once, so acquisition always happens at the same point of the frame and its
+ * latency and failures can be measured.
+ * Images must only be read from one thread at a time, statistics can be read from any thread.
+ * @param poolCapacity free buffers of each size kept for reuse
+ */
+internal class CameraImageReader(poolCapacity: Int) {
+
+    private val TAG = CameraImageReader::class.java.simpleName
+
+    // Shared by the images and their downsampled copies, free buffers are kept per size
+    private val pool = ImageBufferPool(poolCapacity)
+
+    @Volatile
+    private var attempts = 0
+
+    @Volatile
+    private var notYetAvailable = 0
+
+    @Volatile
+    private var deadlineExceeded = 0
+
+    @Volatile
+    private var resourceExhausted = 0
+
+    @Volatile
+    private var totalLatency = 0L
+
+    @Volatile
+    private var maxLatency = 0L
+
+    /**
+     * Acquisition performance since creation or the last `reset()`.
+     */
+    val statistics: CameraImageReaderStatistics
+        get() {
+            val attempts = attempts
+            val failures = notYetAvailable + deadlineExceeded + resourceExhausted
+            val acquired = attempts - failures
+            return CameraImageReaderStatistics(
+                attempts,
+                acquired,
+                notYetAvailable,
+                deadlineExceeded,
+                resourceExhausted,
+                if (acquired <= 0) 0.0 else totalLatency / n2ms / acquired,
+                maxLatency / n2ms,
+                pool.outstanding
+            )
+        }
+
+    /**
+     * Acquires the camera image of `frame` and copies it as NV21.
+     * @param frame frame returned by the last `Session.update()`
+     * @return the copied image, or `null` if ARCore couldn't provide it, its data must be given back
+     * with `releaseBuffer()` once the image is no longer used
+     */
+    @RequiresApi(Build.VERSION_CODES.KITKAT)
+    fun read(frame: Frame): YuvImage? {
+        attempts++
+        val start = System.nanoTime()
+        try {
+            val cameraImage = frame.acquireCameraImage()
+            try {
+                val cameraPlaneY = cameraImage.planes[0].buffer
+                val cameraPlaneU = cameraImage.planes[2].buffer
+                val cameraPlaneV = cameraImage.planes[1].buffer
+                //Copy the buffers into a pooled byteArray
+                val compositeByteArray = pool.acquire(
+                    cameraPlaneY.capacity() + cameraPlaneU.capacity() + cameraPlaneV.capacity()
+                )
+                cameraPlaneY.get(compositeByteArray, 0, cameraPlaneY.capacity())
+                cameraPlaneU.get(compositeByteArray, cameraPlaneY.capacity(), cameraPlaneU.capacity())
+                cameraPlaneV.get(
+                    compositeByteArray,
+                    cameraPlaneY.capacity() + cameraPlaneU.capacity(),
+                    cameraPlaneV.capacity()
+                )
+                return YuvImage(compositeByteArray,
+                    ImageFormat.NV21,
+                    cameraImage.width,
+                    cameraImage.height,
+                    null
+                )
+            } finally {
+                // Release the image even if copying failed, ARCore only lets a few be acquired
+                cameraImage.close()
+                val latency = System.nanoTime() - start
+                totalLatency += latency
+                if (latency > maxLatency) {
+                    maxLatency = latency
+                }
+            }
+        } catch (e: NotYetAvailableException) {
+            notYetAvailable++
+            Log.e(TAG, "FrameNotYetAvailable")
+        } catch (e: DeadlineExceededException) {
+            deadlineExceeded++
+            Log.e(TAG, "DeadlineExceededException in acquireFrameImage")
+        } catch (e: ResourceExhaustedException) {
+            resourceExhausted++
+            Log.e(TAG, "ResourceExhaustedException")
+        }
+        return null
+    }
+
+    /**
+     * Returns a pooled buffer for a downsampled copy of an image read by this reader,
+     * see `FMFrame.evaluationImage` and `FMFrame.luminancePyramid`.
+     * @param size size of the buffer in bytes
+     */
+    fun acquireBuffer(size: Int): ByteArray {
+        return pool.acquire(size)
+    }
+
+    /**
+     * Gives back the data of an image read by this reader, or a buffer returned by `acquireBuffer()`.
+     */
+    fun releaseBuffer(buffer: ByteArray) {
+        pool.release(buffer)
+    }
+
+    fun reset() {
+        attempts = 0
+        notYetAvailable = 0
+        deadlineExceeded = 0
+        resourceExhausted = 0
+        totalLatency = 0L
+        maxLatency = 0L
+    }
+
+    /**
+     * Drops the free buffers, e.g. while the session is paused.
+     */
+    fun trim() {
+        pool.trim()
+    }
+
+    private companion object {
+        const val n2ms = 1_000_000.0
+    }
+}
+
+/**
+ * Performance of the camera image acquisition.
+ * @property attempts images requested from ARCore
+ * @property acquired images acquired and copied
+ * @property notYetAvailable requests failed because the image wasn't available yet
+ * @property deadlineExceeded requests failed because the frame was too old
+ * @property resourceExhausted requests failed because too many images were acquired
+ * @property averageLatency average time to acquire and copy an image, in milliseconds
+ * @property maxLatency longest time to acquire and copy an image, in milliseconds
+ * @property retainedImages copied images and downsampled copies not released yet
+ */
+internal data class CameraImageReaderStatistics(
+    val attempts: Int,
+    val acquired: Int,
+    val notYetAvailable: Int,
+    val deadlineExceeded: Int,
+    val resourceExhausted: Int,
+    val averageLatency: Double,
+    val maxLatency: Double,
+    val retainedImages: Int
+) {
+    /**
+     * Fraction of the requests that failed with `NotYetAvailableException`.
+     */
+    val notYetAvailableRate: Double
+        get() = if (attempts == 0) 0.0 else notYetAvailable.toDouble() / attempts
+}
@@ -0,0 +1,62 @@
+package com.fantasmo.sdk.utilities
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Fixed capacity ring buffer that keeps the last `capacity` elements added to it.
+ * Writers never block each other and readers take snapshots without locking, a snapshot taken
+ * while other threads are adding may miss the elements being written at that moment.
+ * The number of elements ever added is kept in `totalCount`.
+ */
+internal class ConcurrentRingBuffer<T : Any>(val capacity: Int) {
+
+    private val slots = AtomicReferenceArray<T?>(capacity)
+    private val next = AtomicLong(0)
+
+    /**
+     * Total number of elements added since creation or the last `clear()`.
+     */
+    val totalCount: Int
+        get() = next.get().toInt()
+
+    /**
+     * Number of elements currently retained, at most `capacity`.
+     */
+    val size: Int
+        get() = minOf(next.get(), capacity.toLong()).toInt()
+
+    /**
+     * Most recently added element, or `null` if empty.
+     */
+    val last: T?
+        get() {
+            val count = next.get()
+            return if (count == 0L) null else slots.get(((count - 1) % capacity).toInt())
+        }
+
+    fun add(element: T) {
+        val index = next.getAndIncrement()
+        slots.set((index % capacity).toInt(), element)
+    }
+
+    /**
+     * Snapshot of the retained elements, oldest first.
+     */
+    fun toList(): List<T> {
+        val count = next.get()
+        val first = maxOf(0L, count - capacity)
+        val result = ArrayList<T>((count - first).toInt())
+        for (i in first until count) {
+            slots.get((i % capacity).toInt())?.let { result.add(it) }
+        }
+        return result
+    }
+
+    fun clear() {
+        next.set(0)
+        for (i in 0 until capacity) {
+            slots.set(i, null)
+        }
+    }
+}
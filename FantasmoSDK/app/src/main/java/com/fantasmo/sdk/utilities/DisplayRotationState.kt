@@ -0,0 +1,59 @@
+package com.fantasmo.sdk.utilities
+
+import android.content.Context
+import android.os.Build
+import android.view.Display
+import android.view.WindowManager
+
+/**
+ * Display rotation shared by the frame path, so filters and the image encoder don't query the
+ * window manager, a binder call, on every frame.
+ * `DisplayRotationHelper` publishes the rotation when it starts listening to display changes and
+ * on every change. While nothing is published, e.g. when the helper is paused, the rotation is
+ * queried from the system on each read.
+ */
+internal object DisplayRotationState {
+    private const val Unknown = -1
+
+    @Volatile
+    private var rotation = Unknown
+
+    /**
+     * Publishes the current display rotation.
+     * @param rotation one of the `Surface.ROTATION_*` values
+     */
+    @JvmStatic
+    fun update(rotation: Int) {
+        this.rotation = rotation
+    }
+
+    /**
+     * Forgets the published rotation, used when display changes are no longer listened to.
+     */
+    @JvmStatic
+    fun invalidate() {
+        rotation = Unknown
+    }
+
+    /**
+     * Current display rotation, one of the `Surface.ROTATION_*` values.
+     * @param context context used to query the rotation if none was published
+     */
+    fun getRotation(context: Context): Int {
+        val cached = rotation
+        if (cached != Unknown) {
+            return cached
+        }
+        return queryRotation(context)
+    }
+
+    private fun queryRotation(context: Context): Int {
+        return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            context.display?.rotation!!
+        } else {
+            val wm = context.getSystemService(Context.WINDOW_SERVICE) as WindowManager
+            val display: Display = wm.defaultDisplay
+            display.rotation
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.fantasmo.sdk.utilities
+
+/**
+ * Pool of byte buffers holding camera images copied out of ARCore and their downsampled copies.
+ * Buffers are returned explicitly with `release()` by the frame they were acquired for, once nothing
+ * retains that frame anymore, see `FMFrame.release()`. A buffer must not be used after it was released.
+ * @param capacity maximum number of free buffers of each size kept for reuse
+ */
+internal class ImageBufferPool(private val capacity: Int) {
+
+    // Camera images all have the same size unless the camera configuration changes, as do their copies
+    private val free = HashMap<Int, ArrayDeque<ByteArray>>()
+
+    /**
+     * Buffers acquired and not released yet.
+     */
+    var outstanding = 0
+        @Synchronized get
+        private set
+
+    /**
+     * Number of buffers allocated since creation, a pool of the right size stops allocating.
+     */
+    var allocations = 0
+        @Synchronized get
+        private set
+
+    /**
+     * Returns a buffer of `size` bytes, with undefined content.
+     */
+    @Synchronized
+    fun acquire(size: Int): ByteArray {
+        outstanding++
+        free[size]?.removeLastOrNull()?.let { return it }
+        allocations++
+        return ByteArray(size)
+    }
+
+    /**
+     * Makes a buffer returned by `acquire()` available again, the caller must not use it afterwards.
+     */
+    @Synchronized
+    fun release(buffer: ByteArray) {
+        outstanding--
+        val buffers = free.getOrPut(buffer.size) { ArrayDeque(capacity) }
+        if (buffers.size < capacity) {
+            buffers.addLast(buffer)
+        }
+    }
+
+    /**
+     * Drops the free buffers, e.g. when the session is paused.
+     */
+    @Synchronized
+    fun trim() {
+        free.clear()
+    }
+}
@@ -0,0 +1,57 @@
+package com.fantasmo.sdk.utilities
+
+import android.graphics.ImageFormat
+import android.util.Log
+import com.google.mlkit.vision.barcode.BarcodeScanner
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions
+import com.google.mlkit.vision.barcode.BarcodeScanning
+import com.google.mlkit.vision.barcode.common.Barcode
+import com.google.mlkit.vision.common.InputImage
+
+/**
+ * `QRDecoder` backed by the ML Kit barcode scanner. Decoding runs asynchronously on ML Kit threads
+ * and results are delivered on the main thread.
+ */
+internal class MLKitQRDecoder : QRDecoder {
+
+    private val TAG = MLKitQRDecoder::class.java.simpleName
+
+    private val barcodeScanner: BarcodeScanner = BarcodeScanning.getClient(
+        BarcodeScannerOptions.Builder()
+            .setBarcodeFormats(
+                Barcode.FORMAT_QR_CODE
+            )
+            .build()
+    )
+
+    override fun decode(
+        nv21: ByteArray,
+        width: Int,
+        height: Int,
+        onComplete: (List<QRCodeResult>) -> Unit
+    ) {
+        val inputImage = InputImage.fromByteArray(nv21, width, height, 0, ImageFormat.NV21)
+        barcodeScanner.process(inputImage)
+            .addOnSuccessListener { barcodes ->
+                onComplete(barcodes.map { barcode ->
+                    val box = barcode.boundingBox
+                    QRCodeResult(
+                        barcode.rawValue,
+                        box?.left ?: 0,
+                        box?.top ?: 0,
+                        box?.right ?: width,
+                        box?.bottom ?: height,
+                        barcode
+                    )
+                })
+            }
+            .addOnFailureListener {
+                Log.e(TAG, it.message ?: "QR code scan failed")
+                onComplete(emptyList())
+            }
+    }
+
+    override fun close() {
+        barcodeScanner.close()
+    }
+}
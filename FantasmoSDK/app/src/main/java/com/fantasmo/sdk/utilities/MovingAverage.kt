@@ -4,7 +4,11 @@ internal class MovingAverage(private var period: Int = 30) {
     private var index = 0
     private var samples: ArrayList<Float> = ArrayList()
 
-    var average = (samples.sum()) / (samples.size)
+    /**
+     * Average of the last `period` samples, 0 until the first sample is added.
+     */
+    val average: Float
+        get() = if (samples.isEmpty()) 0f else samples.sum() / samples.size
 
     fun addSample(value: Float): Float {
         if (samples.size == period) {
@@ -15,4 +19,4 @@ internal class MovingAverage(private var period: Int = 30) {
         }
         return average
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.fantasmo.sdk.utilities
+
+import kotlin.math.ceil
+
+/**
+ * Copies the central part of an NV21 camera image, or a given region of it, into a smaller NV21 image
+ * for QR code scanning.
+ * Pixels are subsampled so the result is at most `maxWidth` wide and `maxHeight` high. Only luminance
+ * is copied since QR codes don't need color, chroma is left neutral gray.
+ * The output buffer is allocated once for the largest result and reused between calls, so a result
+ * must not be in use when extracting the next one.
+ * @param cropFraction fraction of the image width and height kept around the center
+ * @param maxWidth maximum width of the extracted image
+ * @param maxHeight maximum height of the extracted image
+ */
+internal class QRCodeRegionExtractor(
+    private val cropFraction: Float,
+    private val maxWidth: Int,
+    private val maxHeight: Int
+) {
+    /**
+     * NV21 data of the last extracted region, the buffer is longer than the image unless it has
+     * the maximum size.
+     */
+    val data = ByteArray(maxWidth * maxHeight * 3 / 2)
+
+    // Start of the chroma of the last extracted region, where the neutral chroma fill begins
+    private var chromaStart = -1
+
+    var width = 0
+        private set
+
+    var height = 0
+        private set
+
+    /**
+     * Position in the camera image of the first extracted pixel, and distance between two extracted pixels.
+     */
+    var left = 0
+        private set
+    var top = 0
+        private set
+    var step = 1
+        private set
+
+    /**
+     * Extracts the central region of an image.
+     * @param nv21 luminance, or NV21 image data starting with the Y plane
+     * @param imageWidth width of the image
+     * @param imageHeight height of the image
+     */
+    fun extract(nv21: ByteArray, imageWidth: Int, imageHeight: Int) {
+        val cropWidth = (imageWidth * cropFraction).toInt()
+        val cropHeight = (imageHeight * cropFraction).toInt()
+        extract(
+            nv21,
+            imageWidth,
+            (imageWidth - cropWidth) / 2,
+            (imageHeight - cropHeight) / 2,
+            cropWidth,
+            cropHeight
+        )
+    }
+
+    /**
+     * Extracts a given region of an image, e.g. around a QR code found in a previous frame.
+     * @param nv21 luminance, or NV21 image data starting with the Y plane
+     * @param imageWidth width of the image
+     * @param regionLeft left of the region in the image
+     * @param regionTop top of the region in the image
+     * @param regionWidth width of the region, the region must fit in the image
+     * @param regionHeight height of the region
+     */
+    fun extract(
+        nv21: ByteArray,
+        imageWidth: Int,
+        regionLeft: Int,
+        regionTop: Int,
+        regionWidth: Int,
+        regionHeight: Int
+    ) {
+        step = maxOf(
+            1,
+            ceil(regionWidth.toDouble() / maxWidth).toInt(),
+            ceil(regionHeight.toDouble() / maxHeight).toInt()
+        )
+        // NV21 needs even dimensions
+        width = (regionWidth / step) and 1.inv()
+        height = (regionHeight / step) and 1.inv()
+        left = regionLeft + (regionWidth - width * step) / 2
+        top = regionTop + (regionHeight - height * step) / 2
+
+        // luminance is only ever written below the chroma start, so the chroma stays neutral
+        // until a region of another size moves it
+        val lumaSize = width * height
+        if (lumaSize != chromaStart) {
+            data.fill(128.toByte(), lumaSize, lumaSize + lumaSize / 2)
+            chromaStart = lumaSize
+        }
+
+        var out = 0
+        for (y in 0 until height) {
+            val rowStart = (top + y * step) * imageWidth + left
+            if (step == 1) {
+                System.arraycopy(nv21, rowStart, data, out, width)
+                out += width
+            } else {
+                var src = rowStart
+                for (x in 0 until width) {
+                    data[out++] = nv21[src]
+                    src += step
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.fantasmo.sdk.utilities
+
+/**
+ * Remembers where the last QR code was found so the next scans only decode that region
+ * of the camera image instead of the whole center crop.
+ * The region is given up after `maxMisses` consecutive scans without a QR code.
+ * @param padding margin added on each side of the tracked QR code, as a fraction of its size
+ * @param minPadding minimum margin in pixels, so a small or fast moving code stays in the region
+ * @param maxMisses scans without a QR code before falling back to the default region
+ */
+internal class QRCodeRegionTracker(
+    private val padding: Float,
+    private val minPadding: Int,
+    private val maxMisses: Int
+) {
+    // Bounding box of the tracked QR code in camera image coordinates, left, top, right, bottom
+    private val box = IntArray(4)
+    private var misses = 0
+
+    var isTracking = false
+        private set
+
+    /**
+     * Starts or keeps tracking a QR code.
+     * @param left bounding box of the QR code in camera image coordinates
+     */
+    fun update(left: Int, top: Int, right: Int, bottom: Int) {
+        box[0] = left
+        box[1] = top
+        box[2] = right
+        box[3] = bottom
+        misses = 0
+        isTracking = true
+    }
+
+    /**
+     * Reports a scan of the tracked region that found no QR code.
+     */
+    fun miss() {
+        if (isTracking && ++misses >= maxMisses) {
+            reset()
+        }
+    }
+
+    fun reset() {
+        isTracking = false
+        misses = 0
+    }
+
+    /**
+     * Region to scan around the tracked QR code, clamped to the image.
+     * @param imageWidth width of the camera image
+     * @param imageHeight height of the camera image
+     * @return left, top, width and height of the region, `null` when nothing is tracked
+     */
+    fun region(imageWidth: Int, imageHeight: Int): IntArray? {
+        if (!isTracking) {
+            return null
+        }
+        val padX = maxOf(((box[2] - box[0]) * padding).toInt(), minPadding)
+        val padY = maxOf(((box[3] - box[1]) * padding).toInt(), minPadding)
+        val left = (box[0] - padX).coerceIn(0, imageWidth)
+        val top = (box[1] - padY).coerceIn(0, imageHeight)
+        val right = (box[2] + padX).coerceIn(0, imageWidth)
+        val bottom = (box[3] + padY).coerceIn(0, imageHeight)
+        if (right - left < 2 || bottom - top < 2) {
+            return null
+        }
+        return intArrayOf(left, top, right - left, bottom - top)
+    }
+}
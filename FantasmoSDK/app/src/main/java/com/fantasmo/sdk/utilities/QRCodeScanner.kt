@@ -1,20 +1,18 @@
 package com.fantasmo.sdk.utilities
 
-import android.annotation.SuppressLint
 import android.content.Context
-import android.graphics.ImageFormat
+import android.graphics.Rect
 import android.util.Log
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.config.RemoteConfig
 import com.fantasmo.sdk.models.FMFrame
 import com.fantasmo.sdk.views.FMParkingViewProtocol
 import com.fantasmo.sdk.views.FMQRScanningViewProtocol
 import com.google.mlkit.vision.barcode.common.Barcode
-import com.google.mlkit.vision.barcode.BarcodeScanner
-import com.google.mlkit.vision.barcode.BarcodeScannerOptions
-import com.google.mlkit.vision.barcode.BarcodeScanning
-import com.google.mlkit.vision.common.InputImage
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * QRCodeReader - class responsible for getting a frame form ARCore and check
@@ -36,77 +34,209 @@ internal class QRCodeScanner(
         IDLE
     }
 
+    // Read on the GL thread by `isReadyToScan`
+    @Volatile
     private var qrCodeReaderEnabled: Boolean = false
+    @Volatile
     private var state = State.IDLE
     private var qrFound = false
 
     private val coroutineScope = CoroutineScope(Dispatchers.Default)
+    private val mainCoroutineScope = CoroutineScope(Dispatchers.Main)
+
+    // Decoder selected by the remote config, created by startQRScanner and closed by stopQRScanner
+    @Volatile
+    private var decoder: QRDecoder? = null
+
+    // Scans the center of the image, downscaled, instead of the full resolution frame
+    private val regionExtractor = QRCodeRegionExtractor(
+        FMUtility.Constants.QRScanCropFraction,
+        FMUtility.Constants.QRScanMaxWidth,
+        FMUtility.Constants.QRScanMaxHeight
+    )
+
+    // Skips frames taken while the camera moves fast or in the dark
+    private val cadence = QRScanCadence(
+        FMUtility.Constants.QRScanMaxSpeed,
+        FMUtility.Constants.QRScanMaxAngularSpeed,
+        FMUtility.Constants.QRScanMinBrightness
+    )
+
+    // Once a QR code was found, only the region around it is scanned
+    private val regionTracker = QRCodeRegionTracker(
+        FMUtility.Constants.QRTrackingPadding,
+        FMUtility.Constants.QRTrackingMinPadding,
+        FMUtility.Constants.QRTrackingMaxMisses
+    )
+
+    // Camera pose of the frame being processed, reused between frames
+    private val translation = FloatArray(3)
+    private val rotation = FloatArray(4)
+
+    private val n2ms = 1_000_000.0
+
+    // Frames received, skipped and scanned since startQRScanner, and time spent scanning them
+    private var framesReceived = 0
+    private val framesSkipped = AtomicInteger(0)
+    private var framesScanned = 0
+    private var totalScanTime = 0.0
+    private var framesToDetection: Int? = null
+    private var scannerStartTime = System.nanoTime()
+
+    /**
+     * Scanner performance since the last `startQRScanner`.
+     */
+    val statistics: QRCodeScanStatistics
+        get() {
+            val elapsed = (System.nanoTime() - scannerStartTime) / n2ms
+            return QRCodeScanStatistics(
+                framesReceived,
+                framesSkipped.get(),
+                framesScanned,
+                if (framesScanned == 0) 0.0 else totalScanTime / framesScanned,
+                if (elapsed <= 0.0) 0.0 else totalScanTime * 1000.0 / elapsed,
+                framesToDetection
+            )
+        }
 
     /**
-     * Gets a frame from ARCore and converts it to bitmap and proceeds with
-     * the mlKit barcode scanner analysis
+     * Whether the next frame passed to `processImage` would be scanned, cheap enough to be checked
+     * before the camera image of a frame is copied.
+     */
+    val isReadyToScan: Boolean
+        get() = decoder != null && canScanFrame()
+
+    /**
+     * Gets a frame from ARCore and passes the central region of its luminance, or the region
+     * around the last QR code found, to the QR code decoder.
+     * Frames taken while the camera moves fast or in the dark are skipped.
      */
-    @SuppressLint("UnsafeExperimentalUsageError", "UnsafeOptInUsageError")
     fun processImage(
         fmFrame: FMFrame
     ) {
         if (!qrCodeReaderEnabled && state == State.QRCODEDETECTED) {
             return
         }
+        framesReceived++
+        val decoder = decoder ?: return
         // Only read frame if the qrCodeReader is enabled and only if qrCodeReader is in reading mode
         if (canScanFrame()) {
+            if (isMovingTooFast(fmFrame)) {
+                framesSkipped.incrementAndGet()
+                return
+            }
             state = State.QRSCANNING
-            // Note that if you know which format of barcode your app is dealing with, detection will be
-            // faster to specify the supported barcode formats one by one, e.g.
-            // BarcodeScannerOptions.Builder()
-            //     .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
-            //     .build();
-            val options = BarcodeScannerOptions.Builder()
-                .setBarcodeFormats(
-                    Barcode.FORMAT_QR_CODE
-                )
-                .build()
-            val barcodeScanner: BarcodeScanner = BarcodeScanning.getClient(options)
-
-            val yuvImage = fmFrame.yuvImage
+
+            // the scan reads the image after the frame was passed on, the region is copied out of it
+            fmFrame.retain()
             coroutineScope.launch {
-                if (yuvImage == null) {
+                val pyramid = fmFrame.luminancePyramid
+                if (pyramid == null) {
+                    fmFrame.release()
                     state = State.IDLE
                 } else {
-                    val inputImage =
-                        InputImage.fromByteArray(yuvImage.yuvData, yuvImage.width, yuvImage.height, 0, ImageFormat.NV21)
-
-                    barcodeScanner.process(inputImage)
-                        .addOnSuccessListener { barcodes ->
-                            barcodes.forEach {
-                                displayQRScanBarcodeResult(it)
-                            }
+                    // QR codes only need the luminance, at the resolution of the evaluation image
+                    val level = pyramid.levelFor(FMUtility.Constants.EvaluationImageMaxWidth)
+                    val luminance = pyramid.data(level)
+                    val width = pyramid.width(level)
+                    val height = pyramid.height(level)
+                    // the extractor buffer is reused, there is a single scan at a time
+                    val region = regionTracker.region(width, height)
+                    try {
+                        if (region == null) {
+                            regionExtractor.extract(luminance, width, height)
+                        } else {
+                            regionExtractor.extract(luminance, width, region[0], region[1], region[2], region[3])
                         }
-                        .addOnFailureListener {
-                            Log.e(TAG, it.message!!)
-                        }.addOnCompleteListener {
-                            // When the image is from CameraX analysis use case, must call image.close() on received
-                            // images when finished using them. Otherwise, new images may not be received or the camera
-                            // may stall.
-                            state = if (qrFound) {
-                                qrCodeReaderEnabled = false
-                                State.QRCODEDETECTED
-                            } else {
-                                qrCodeReaderEnabled = true
-                                State.IDLE
-                            }
+                    } finally {
+                        fmFrame.release()
+                    }
+                    if (cadence.isTooDark(regionExtractor.data, regionExtractor.width, regionExtractor.height)) {
+                        framesSkipped.incrementAndGet()
+                        state = State.IDLE
+                        return@launch
+                    }
+                    val frameNumber = framesReceived
+                    val regionLeft = regionExtractor.left
+                    val regionTop = regionExtractor.top
+                    val regionStep = regionExtractor.step
+                    val scanStart = System.nanoTime()
+
+                    decoder.decode(
+                        regionExtractor.data,
+                        regionExtractor.width,
+                        regionExtractor.height
+                    ) { qrCodes ->
+                        val scanTime = (System.nanoTime() - scanStart) / n2ms
+                        mainCoroutineScope.launch {
+                            trackQRCodes(qrCodes, regionLeft, regionTop, regionStep)
+                            didScanFrame(frameNumber, scanTime, qrCodes, regionLeft, regionTop, regionStep)
                         }
+                    }
                 }
             }
         }
     }
 
-    private fun displayQRScanBarcodeResult(qrCode: Barcode){
+    private fun isMovingTooFast(fmFrame: FMFrame): Boolean {
+        val pose = fmFrame.cameraPose
+        if (pose == null) {
+            return cadence.isMovingTooFast(null, null, fmFrame.timestamp)
+        }
+        pose.getTranslation(translation, 0)
+        pose.getRotationQuaternion(rotation, 0)
+        return cadence.isMovingTooFast(translation, rotation, fmFrame.timestamp)
+    }
+
+    /**
+     * Maps the first QR code found back to camera image coordinates and tracks it.
+     */
+    private fun trackQRCodes(qrCodes: List<QRCodeResult>, regionLeft: Int, regionTop: Int, regionStep: Int) {
+        val qrCode = qrCodes.firstOrNull()
+        if (qrCode == null) {
+            regionTracker.miss()
+            return
+        }
+        regionTracker.update(
+            regionLeft + qrCode.left * regionStep,
+            regionTop + qrCode.top * regionStep,
+            regionLeft + qrCode.right * regionStep,
+            regionTop + qrCode.bottom * regionStep
+        )
+    }
+
+    private fun didScanFrame(
+        frameNumber: Int,
+        scanTime: Double,
+        qrCodes: List<QRCodeResult>,
+        regionLeft: Int,
+        regionTop: Int,
+        regionStep: Int
+    ) {
+        framesScanned++
+        totalScanTime += scanTime
+        if (qrCodes.isNotEmpty() && framesToDetection == null) {
+            framesToDetection = frameNumber
+            Log.i(TAG, "QR code detected: $statistics")
+        }
+        qrCodes.forEach {
+            displayQRScanBarcodeResult(it, regionLeft, regionTop, regionStep)
+        }
+        state = if (qrFound) {
+            qrCodeReaderEnabled = false
+            State.QRCODEDETECTED
+        } else {
+            qrCodeReaderEnabled = true
+            State.IDLE
+        }
+    }
+
+    private fun displayQRScanBarcodeResult(qrCode: QRCodeResult, regionLeft: Int, regionTop: Int, regionStep: Int){
         qrCodeScannerListener.qrCodeScanned()
         qrFound = true
         val stringScan = "QRCodeDetected with value: ${qrCode.rawValue}"
         fmQrScanningViewController.didScanQRCode(stringScan)
-        fmParkingViewController.fmParkingView(qrCode) {
+        val onValidQRCode: (Boolean) -> Unit = {
             if (it) {
                 Log.d(TAG, "QR CODE ACCEPTED")
                 qrCodeScannerListener.deployLocalizing()
@@ -116,18 +246,78 @@ internal class QRCodeScanner(
                 qrCodeScannerListener.deployQRScanning()
             }
         }
+        // hosts get positions in camera image pixels, not in the extracted region the decoder saw
+        val barcode = qrCode.barcode
+        if (barcode != null) {
+            val imageBarcode = Barcode(CameraImageBarcodeSource(barcode, regionLeft, regionTop, regionStep))
+            fmParkingViewController.fmParkingView(imageBarcode, onValidQRCode)
+        } else {
+            // decoders other than ML Kit have no `Barcode` to report
+            val boundingBox = Rect(
+                regionLeft + qrCode.left * regionStep,
+                regionTop + qrCode.top * regionStep,
+                regionLeft + qrCode.right * regionStep,
+                regionTop + qrCode.bottom * regionStep
+            )
+            fmParkingViewController.fmParkingViewDidScanQRCode(qrCode.rawValue ?: "", boundingBox, onValidQRCode)
+        }
     }
 
+    /**
+     * Creates the decoder and starts scanning the frames passed to `processImage`.
+     */
     fun startQRScanner() {
+        if (decoder == null) {
+            val backend = if (RemoteConfig.isLoaded) RemoteConfig.remoteConfig.qrDecoder else null
+            decoder = QRDecoder.make(backend)
+        }
+        framesReceived = 0
+        framesSkipped.set(0)
+        framesScanned = 0
+        totalScanTime = 0.0
+        framesToDetection = null
+        scannerStartTime = System.nanoTime()
+        cadence.reset()
+        regionTracker.reset()
         qrCodeReaderEnabled = true
         state = State.IDLE
     }
 
+    /**
+     * Stops scanning and releases the decoder, `startQRScanner` must be called to scan again.
+     */
+    fun stopQRScanner() {
+        qrCodeReaderEnabled = false
+        decoder?.let {
+            Log.d(TAG, "Stopping QR scanner: $statistics")
+            it.close()
+        }
+        decoder = null
+    }
+
     private fun canScanFrame(): Boolean {
         return (qrCodeReaderEnabled && state == State.IDLE)
     }
 }
 
+/**
+ * Performance of the QR code scanner.
+ * @property framesReceived frames passed to the scanner
+ * @property framesSkipped frames not scanned because the camera was moving too fast or the image was too dark
+ * @property framesScanned frames actually scanned, the others arrived while a scan was in progress or were skipped
+ * @property averageScanTime average duration of a scan, in milliseconds
+ * @property scanTimePerSecond time spent scanning per second of scanner activity, in milliseconds
+ * @property framesToDetection frames received until the first QR code was detected, `null` if none yet
+ */
+internal data class QRCodeScanStatistics(
+    val framesReceived: Int,
+    val framesSkipped: Int,
+    val framesScanned: Int,
+    val averageScanTime: Double,
+    val scanTimePerSecond: Double,
+    val framesToDetection: Int?
+)
+
 internal interface QRCodeScannerListener {
     fun deployQRScanning()
     fun deployLocalizing()
@@ -0,0 +1,55 @@
+package com.fantasmo.sdk.utilities
+
+import com.google.mlkit.vision.barcode.common.Barcode
+
+/**
+ * QR code found by a `QRDecoder`.
+ * The bounding box is in pixels of the decoded image.
+ * @property rawValue content of the QR code, `null` if it could not be read as text
+ * @property barcode ML Kit result, only set by the ML Kit decoder
+ */
+internal class QRCodeResult(
+    val rawValue: String?,
+    val left: Int,
+    val top: Int,
+    val right: Int,
+    val bottom: Int,
+    val barcode: Barcode? = null
+)
+
+/**
+ * Backend looking for QR codes in camera images.
+ */
+internal interface QRDecoder {
+
+    /**
+     * Looks for QR codes in an image.
+     * @param nv21 NV21 image, possibly followed by unused bytes, decoders that only need luminance
+     * read the first `width * height` bytes
+     * @param width width of the image
+     * @param height height of the image
+     * @param onComplete called exactly once with the QR codes found, possibly on another thread
+     */
+    fun decode(nv21: ByteArray, width: Int, height: Int, onComplete: (List<QRCodeResult>) -> Unit)
+
+    /**
+     * Releases the resources of the decoder, it can't be used afterwards.
+     */
+    fun close()
+
+    companion object {
+        const val MLKIT = "mlkit"
+        const val ZXING = "zxing"
+
+        /**
+         * Creates the decoder selected by the remote config, ML Kit if unset or unknown.
+         * @param backend `qr_decoder` value of the remote config
+         */
+        fun make(backend: String?): QRDecoder {
+            return when (backend) {
+                ZXING -> ZXingQRDecoder()
+                else -> MLKitQRDecoder()
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.fantasmo.sdk.utilities
+
+import kotlin.math.abs
+import kotlin.math.acos
+import kotlin.math.sqrt
+
+/**
+ * Decides which frames are worth passing to the QR code decoder.
+ * A QR code can't be read while the camera is moving fast, the image is blurred, or when
+ * the image is too dark, so those frames are skipped instead of spending a scan on them.
+ * @param maxSpeed maximum camera speed in meters per second
+ * @param maxAngularSpeed maximum camera rotation speed in degrees per second
+ * @param minBrightness minimum average luminance, between 0 and 1
+ */
+internal class QRScanCadence(
+    private val maxSpeed: Float,
+    private val maxAngularSpeed: Float,
+    private val minBrightness: Float
+) {
+    private val n2s = 1_000_000_000.0
+
+    // Pose of the previous frame, kept in preallocated arrays
+    private val previousTranslation = FloatArray(3)
+    private val previousRotation = FloatArray(4)
+    private var previousTimestamp: Long? = null
+
+    /**
+     * Checks the camera motion since the previous frame.
+     * @param translation camera position x, y, z, `null` when the camera is not tracking
+     * @param rotation camera rotation quaternion x, y, z, w, `null` when the camera is not tracking
+     * @param timestamp frame timestamp in nanoseconds
+     * @return `true` if the camera is moving too fast for the frame to be scanned
+     */
+    fun isMovingTooFast(translation: FloatArray?, rotation: FloatArray?, timestamp: Long): Boolean {
+        if (translation == null || rotation == null) {
+            previousTimestamp = null
+            return false
+        }
+        val lastTimestamp = previousTimestamp
+        var tooFast = false
+        if (lastTimestamp != null && timestamp > lastTimestamp) {
+            val elapsed = (timestamp - lastTimestamp) / n2s
+            val dx = translation[0] - previousTranslation[0]
+            val dy = translation[1] - previousTranslation[1]
+            val dz = translation[2] - previousTranslation[2]
+            val speed = sqrt(dx * dx + dy * dy + dz * dz) / elapsed
+            val angularSpeed = rotationAngle(previousRotation, rotation) / elapsed
+            tooFast = speed > maxSpeed || angularSpeed > maxAngularSpeed
+        }
+        System.arraycopy(translation, 0, previousTranslation, 0, 3)
+        System.arraycopy(rotation, 0, previousRotation, 0, 4)
+        previousTimestamp = timestamp
+        return tooFast
+    }
+
+    /**
+     * Checks the average luminance of an image, sampling one pixel out of `SampleStep` in each direction.
+     * @param luminance image data, starting with the Y plane
+     * @param width width of the image
+     * @param height height of the image
+     * @return `true` if the image is too dark for a QR code to be read
+     */
+    fun isTooDark(luminance: ByteArray, width: Int, height: Int): Boolean {
+        var sum = 0L
+        var count = 0
+        var y = SampleStep / 2
+        while (y < height) {
+            var index = y * width + SampleStep / 2
+            val rowEnd = (y + 1) * width
+            while (index < rowEnd) {
+                sum += luminance[index].toInt() and 0xFF
+                count++
+                index += SampleStep
+            }
+            y += SampleStep
+        }
+        if (count == 0) {
+            return false
+        }
+        return sum.toDouble() / count / 255.0 < minBrightness
+    }
+
+    /**
+     * Forgets the previous frame, used when scanning restarts.
+     */
+    fun reset() {
+        previousTimestamp = null
+    }
+
+    // Angle in degrees between two unit quaternions
+    private fun rotationAngle(from: FloatArray, to: FloatArray): Double {
+        val dot = abs(from[0] * to[0] + from[1] * to[1] + from[2] * to[2] + from[3] * to[3])
+        return Math.toDegrees(2.0 * acos(dot.toDouble().coerceAtMost(1.0)))
+    }
+
+    companion object {
+        private const val SampleStep = 8
+    }
+}
@@ -0,0 +1,59 @@
+package com.fantasmo.sdk.utilities
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Fixed capacity FIFO queue between exactly one producer thread and one consumer thread.
+ * Neither side locks or allocates, the producer only writes `tail` and the consumer only
+ * writes `head`. When full, `offer` fails instead of overwriting the oldest element, which
+ * the consumer may be reading.
+ */
+internal class SpscRingBuffer<T : Any>(val capacity: Int) {
+
+    private val slots = AtomicReferenceArray<T?>(capacity)
+
+    // Index of the next element to poll, written by the consumer
+    private val head = AtomicLong(0)
+
+    // Index of the next element to offer, written by the producer
+    private val tail = AtomicLong(0)
+
+    /**
+     * Number of elements waiting, may be stale by the time it is read.
+     */
+    val size: Int
+        get() = (tail.get() - head.get()).toInt()
+
+    /**
+     * Adds an element, producer thread only.
+     * @return `false` if the buffer is full and the element was not added
+     */
+    fun offer(element: T): Boolean {
+        val index = tail.get()
+        if (index - head.get() >= capacity) {
+            return false
+        }
+        slots.lazySet((index % capacity).toInt(), element)
+        // Publishes the element to the consumer
+        tail.lazySet(index + 1)
+        return true
+    }
+
+    /**
+     * Removes the oldest element, consumer thread only.
+     * @return the element, or `null` if the buffer is empty
+     */
+    fun poll(): T? {
+        val index = head.get()
+        if (index >= tail.get()) {
+            return null
+        }
+        val slot = (index % capacity).toInt()
+        val element = slots.get(slot)
+        // Drops the reference so the element can be collected once consumed
+        slots.lazySet(slot, null)
+        head.lazySet(index + 1)
+        return element
+    }
+}
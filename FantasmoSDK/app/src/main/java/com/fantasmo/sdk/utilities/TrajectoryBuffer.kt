@@ -0,0 +1,208 @@
+package com.fantasmo.sdk.utilities
+
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.utilities.math.MathPool
+import com.fantasmo.sdk.utilities.math.Quaternion
+import com.google.ar.core.Pose
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Fixed capacity history of timestamped camera poses, keeping the last `capacity` poses added.
+ * Poses are stored as primitive arrays, one per component, so adding and querying the history
+ * neither allocates nor boxes. Timestamps must increase, poses older than the last one are ignored.
+ * Poses are added from the GL thread and queried from others, methods are synchronized.
+ * @param capacity maximum number of poses kept
+ */
+internal class TrajectoryBuffer(val capacity: Int) {
+
+    private val timestamps = LongArray(capacity)
+    private val tx = FloatArray(capacity)
+    private val ty = FloatArray(capacity)
+    private val tz = FloatArray(capacity)
+    private val qx = FloatArray(capacity)
+    private val qy = FloatArray(capacity)
+    private val qz = FloatArray(capacity)
+    private val qw = FloatArray(capacity)
+
+    // Physical index of the next pose and number of poses kept
+    private var next = 0
+    private var count = 0
+
+    // Scratch buffer for rotation spread queries
+    private val eulerAngles = FloatArray(3)
+
+    val size: Int
+        @Synchronized get() = count
+
+    /**
+     * Timestamp of the oldest pose kept, or `null` if empty.
+     */
+    val firstTimestamp: Long?
+        @Synchronized get() = if (count == 0) null else timestamps[physical(0)]
+
+    /**
+     * Timestamp of the most recent pose, or `null` if empty.
+     */
+    val lastTimestamp: Long?
+        @Synchronized get() = if (count == 0) null else timestamps[physical(count - 1)]
+
+    /**
+     * Adds a pose.
+     * @param timestamp frame timestamp in nanoseconds
+     * @param pose camera pose at that time
+     */
+    @Synchronized
+    fun add(timestamp: Long, pose: Pose) {
+        if (count > 0 && timestamp <= timestamps[physical(count - 1)]) {
+            return
+        }
+        timestamps[next] = timestamp
+        tx[next] = pose.tx()
+        ty[next] = pose.ty()
+        tz[next] = pose.tz()
+        qx[next] = pose.qx()
+        qy[next] = pose.qy()
+        qz[next] = pose.qz()
+        qw[next] = pose.qw()
+        next = (next + 1) % capacity
+        count = min(count + 1, capacity)
+    }
+
+    /**
+     * Pose at a given time, interpolated between the two poses around it, linearly for the
+     * translation and spherically for the rotation.
+     * @param timestamp time in nanoseconds, between the oldest and the most recent pose
+     * @param translation array of at least 3 values receiving the translation
+     * @param rotation array of at least 4 values receiving the rotation quaternion, x, y, z, w
+     * @return `false` if the time is outside the history, the arrays are left unchanged then
+     */
+    @Synchronized
+    fun interpolate(timestamp: Long, translation: FloatArray, rotation: FloatArray): Boolean {
+        if (count == 0
+            || timestamp < timestamps[physical(0)]
+            || timestamp > timestamps[physical(count - 1)]
+        ) {
+            return false
+        }
+        // Last pose at or before the timestamp
+        var low = 0
+        var high = count - 1
+        while (low < high) {
+            val middle = (low + high + 1) ushr 1
+            if (timestamps[physical(middle)] <= timestamp) {
+                low = middle
+            } else {
+                high = middle - 1
+            }
+        }
+        val start = physical(low)
+        if (low == count - 1 || timestamps[start] == timestamp) {
+            copy(start, translation, rotation)
+            return true
+        }
+        val end = physical(low + 1)
+        val t = (timestamp - timestamps[start]).toFloat() / (timestamps[end] - timestamps[start])
+
+        translation[0] = tx[start] + t * (tx[end] - tx[start])
+        translation[1] = ty[start] + t * (ty[end] - ty[start])
+        translation[2] = tz[start] + t * (tz[end] - tz[start])
+
+        val pool = MathPool.get()
+        val startRotation = pool.acquireQuaternion()
+        startRotation.set(qx[start], qy[start], qz[start], qw[start])
+        val endRotation = pool.acquireQuaternion()
+        endRotation.set(qx[end], qy[end], qz[end], qw[end])
+        Quaternion.slerp(startRotation, endRotation, t, endRotation)
+        rotation[0] = endRotation.x
+        rotation[1] = endRotation.y
+        rotation[2] = endRotation.z
+        rotation[3] = endRotation.w
+        pool.release(endRotation)
+        pool.release(startRotation)
+        return true
+    }
+
+    /**
+     * Length in meters of the path travelled by the camera since a given time.
+     * @param fromTimestamp poses older than this are left out, all poses kept by default
+     */
+    @Synchronized
+    fun totalTranslation(fromTimestamp: Long = Long.MIN_VALUE): Float {
+        var total = 0f
+        for (i in 1 until count) {
+            val current = physical(i)
+            val previous = physical(i - 1)
+            if (timestamps[previous] < fromTimestamp) {
+                continue
+            }
+            val dx = tx[current] - tx[previous]
+            val dy = ty[current] - ty[previous]
+            val dz = tz[current] - tz[previous]
+            total += sqrt(dx * dx + dy * dy + dz * dz)
+        }
+        return total
+    }
+
+    /**
+     * Spread in degrees of the camera rotation around each axis since a given time, measured the
+     * same way as `RotationSpreadAccumulator`, from the Euler angles of each pose.
+     * @param spread array of at least 3 values receiving the pitch, roll and yaw spreads
+     * @param fromTimestamp poses older than this are left out, all poses kept by default
+     * @return `spread`, all zeros if no pose is in the range
+     */
+    @Synchronized
+    fun rotationSpread(spread: FloatArray, fromTimestamp: Long = Long.MIN_VALUE): FloatArray {
+        var minPitch = Float.POSITIVE_INFINITY
+        var maxPitch = Float.NEGATIVE_INFINITY
+        var minRoll = Float.POSITIVE_INFINITY
+        var maxRoll = Float.NEGATIVE_INFINITY
+        var minYaw = Float.POSITIVE_INFINITY
+        var maxYaw = Float.NEGATIVE_INFINITY
+        for (i in 0 until count) {
+            val index = physical(i)
+            if (timestamps[index] < fromTimestamp) {
+                continue
+            }
+            FMUtility.convertToDegrees(
+                FMUtility.convertQuaternionToEuler(qx[index], qy[index], qz[index], qw[index], eulerAngles)
+            )
+            minPitch = min(minPitch, eulerAngles[0])
+            maxPitch = max(maxPitch, eulerAngles[0])
+            minRoll = min(minRoll, eulerAngles[1])
+            maxRoll = max(maxRoll, eulerAngles[1])
+            minYaw = min(minYaw, eulerAngles[2])
+            maxYaw = max(maxYaw, eulerAngles[2])
+        }
+        spread[0] = spreadOf(minPitch, maxPitch)
+        spread[1] = spreadOf(minRoll, maxRoll)
+        spread[2] = spreadOf(minYaw, maxYaw)
+        return spread
+    }
+
+    @Synchronized
+    fun clear() {
+        next = 0
+        count = 0
+    }
+
+    private fun spreadOf(low: Float, high: Float): Float {
+        return min(max(high - low, 0f), 360f)
+    }
+
+    private fun copy(index: Int, translation: FloatArray, rotation: FloatArray) {
+        translation[0] = tx[index]
+        translation[1] = ty[index]
+        translation[2] = tz[index]
+        rotation[0] = qx[index]
+        rotation[1] = qy[index]
+        rotation[2] = qz[index]
+        rotation[3] = qw[index]
+    }
+
+    // Physical index of the i-th oldest pose kept
+    private fun physical(i: Int): Int {
+        return (next - count + i + capacity) % capacity
+    }
+}
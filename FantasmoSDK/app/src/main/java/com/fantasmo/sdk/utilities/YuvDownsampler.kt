@@ -0,0 +1,66 @@
+package com.fantasmo.sdk.utilities
+
+/**
+ * Downsamples NV21 images by an integer factor, for the consumers that don't need the full
+ * resolution camera image kept for the upload.
+ * Luminance is averaged over each factor x factor block, chroma is subsampled.
+ */
+internal object YuvDownsampler {
+
+    /**
+     * Smallest factor making an image of `width` pixels at most `maxWidth` wide.
+     */
+    fun factor(width: Int, maxWidth: Int): Int {
+        return maxOf(1, (width + maxWidth - 1) / maxWidth)
+    }
+
+    /**
+     * Width of an image of `width` pixels downsampled by `factor`, even as NV21 requires.
+     */
+    fun outputWidth(width: Int, factor: Int): Int = (width / factor) and 1.inv()
+
+    /**
+     * Height of an image of `height` pixels downsampled by `factor`, even as NV21 requires.
+     */
+    fun outputHeight(height: Int, factor: Int): Int = (height / factor) and 1.inv()
+
+    /**
+     * Downsamples an NV21 image into `output`.
+     * @param nv21 NV21 image data, the Y plane followed by the interleaved VU plane
+     * @param width width of the image
+     * @param height height of the image
+     * @param factor downsampling factor, in both directions
+     * @param output buffer of at least `outputWidth * outputHeight * 3 / 2` bytes
+     */
+    fun downsample(nv21: ByteArray, width: Int, height: Int, factor: Int, output: ByteArray) {
+        val sampledWidth = outputWidth(width, factor)
+        val sampledHeight = outputHeight(height, factor)
+        val area = factor * factor
+
+        var out = 0
+        for (y in 0 until sampledHeight) {
+            for (x in 0 until sampledWidth) {
+                var blockSum = 0
+                var row = y * factor * width + x * factor
+                for (dy in 0 until factor) {
+                    for (dx in 0 until factor) {
+                        blockSum += nv21[row + dx].toInt() and 0xFF
+                    }
+                    row += width
+                }
+                output[out++] = (blockSum / area).toByte()
+            }
+        }
+
+        // One VU pair per 2x2 pixels, in rows of `width` bytes
+        val chroma = width * height
+        for (y in 0 until sampledHeight / 2) {
+            val row = chroma + y * factor * width
+            for (x in 0 until sampledWidth / 2) {
+                val src = row + x * factor * 2
+                output[out++] = nv21[src]
+                output[out++] = nv21[src + 1]
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.fantasmo.sdk.utilities
+
+import com.google.zxing.BarcodeFormat
+import com.google.zxing.BinaryBitmap
+import com.google.zxing.DecodeHintType
+import com.google.zxing.PlanarYUVLuminanceSource
+import com.google.zxing.ReaderException
+import com.google.zxing.common.HybridBinarizer
+import com.google.zxing.qrcode.QRCodeReader
+
+/**
+ * `QRDecoder` running the ZXing QR code reader on the luminance of the image.
+ * Pure JVM, decoding is synchronous and happens on the calling thread.
+ */
+internal class ZXingQRDecoder : QRDecoder {
+
+    private val reader = QRCodeReader()
+
+    private val hints = mapOf(
+        DecodeHintType.POSSIBLE_FORMATS to listOf(BarcodeFormat.QR_CODE)
+    )
+
+    override fun decode(
+        nv21: ByteArray,
+        width: Int,
+        height: Int,
+        onComplete: (List<QRCodeResult>) -> Unit
+    ) {
+        val source = PlanarYUVLuminanceSource(nv21, width, height, 0, 0, width, height, false)
+        val results = try {
+            val result = reader.decode(BinaryBitmap(HybridBinarizer(source)), hints)
+            // result points are the centers of the finder patterns, the box spans them
+            val points = result.resultPoints?.filterNotNull().orEmpty()
+            listOf(
+                QRCodeResult(
+                    result.text,
+                    points.minOfOrNull { it.x }?.toInt() ?: 0,
+                    points.minOfOrNull { it.y }?.toInt() ?: 0,
+                    points.maxOfOrNull { it.x }?.toInt() ?: width,
+                    points.maxOfOrNull { it.y }?.toInt() ?: height
+                )
+            )
+        } catch (e: ReaderException) {
+            emptyList()
+        } finally {
+            reader.reset()
+        }
+        onComplete(results)
+    }
+
+    override fun close() {}
+}
@@ -0,0 +1,57 @@
+package com.fantasmo.sdk.utilities.math
+
+/**
+ * Small per-thread pool of temporary `Vector3` and `Quaternion` instances, so math done for every
+ * frame doesn't allocate intermediate objects.
+ * Acquired instances hold arbitrary values and must be released by the thread that acquired them
+ * once the computation is done. Instances released past the pool capacity are left to the GC.
+ */
+internal class MathPool private constructor() {
+    private val vectors = arrayOfNulls<Vector3>(Capacity)
+    private var vectorCount = 0
+    private val quaternions = arrayOfNulls<Quaternion>(Capacity)
+    private var quaternionCount = 0
+
+    fun acquireVector3(): Vector3 {
+        if (vectorCount == 0) {
+            return Vector3()
+        }
+        val vector = vectors[--vectorCount]!!
+        vectors[vectorCount] = null
+        return vector
+    }
+
+    fun release(vector: Vector3) {
+        if (vectorCount < Capacity) {
+            vectors[vectorCount++] = vector
+        }
+    }
+
+    fun acquireQuaternion(): Quaternion {
+        if (quaternionCount == 0) {
+            return Quaternion()
+        }
+        val quaternion = quaternions[--quaternionCount]!!
+        quaternions[quaternionCount] = null
+        return quaternion
+    }
+
+    fun release(quaternion: Quaternion) {
+        if (quaternionCount < Capacity) {
+            quaternions[quaternionCount++] = quaternion
+        }
+    }
+
+    companion object {
+        private const val Capacity = 16
+
+        private val pools = object : ThreadLocal<MathPool>() {
+            override fun initialValue(): MathPool = MathPool()
+        }
+
+        /**
+         * Pool of the calling thread.
+         */
+        fun get(): MathPool = pools.get()!!
+    }
+}
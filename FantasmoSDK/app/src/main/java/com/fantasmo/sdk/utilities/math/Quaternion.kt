@@ -151,6 +151,39 @@ internal class Quaternion {
         return Quaternion(-x, -y, -z, -w)
     }
 
+    /**
+     * Replaces this Quaternion with the opposite rotation, in place
+     *
+     * @return this Quaternion
+     */
+    fun invert(): Quaternion {
+        set(-x, -y, -z, w)
+        return this
+    }
+
+    /**
+     * Flips the sign of this Quaternion in place, it still represents the same rotation.
+     *
+     * @return this Quaternion
+     */
+    fun negate(): Quaternion {
+        set(-x, -y, -z, -w)
+        return this
+    }
+
+    /**
+     * Uniformly scales this Quaternion in place without normalizing
+     *
+     * @return this Quaternion
+     */
+    fun scale(a: Float): Quaternion {
+        x *= a
+        y *= a
+        z *= a
+        w *= a
+        return this
+    }
+
     override fun toString(): String {
         return "[x=$x, y=$y, z=$z, w=$w]"
     }
@@ -202,9 +235,17 @@ internal class Quaternion {
          * @return The rotated vector
          */
         fun rotateVector(q: Quaternion, src: Vector3): Vector3 {
+            return rotateVector(q, src, Vector3())
+        }
+
+        /**
+         * Rotates a Vector3 by a Quaternion into `result`, which may be `src`
+         *
+         * @return `result`
+         */
+        fun rotateVector(q: Quaternion, src: Vector3, result: Vector3): Vector3 {
             Preconditions.checkNotNull(q, "Parameter \"q\" was null.")
             Preconditions.checkNotNull(src, "Parameter \"src\" was null.")
-            val result = Vector3()
             val w2 = q.w * q.w
             val x2 = q.x * q.x
             val y2 = q.y * q.y
@@ -234,9 +275,17 @@ internal class Quaternion {
         }
 
         fun inverseRotateVector(q: Quaternion, src: Vector3): Vector3 {
+            return inverseRotateVector(q, src, Vector3())
+        }
+
+        /**
+         * Rotates a Vector3 by the opposite of a Quaternion into `result`, which may be `src`
+         *
+         * @return `result`
+         */
+        fun inverseRotateVector(q: Quaternion, src: Vector3, result: Vector3): Vector3 {
             Preconditions.checkNotNull(q, "Parameter \"q\" was null.")
             Preconditions.checkNotNull(src, "Parameter \"src\" was null.")
-            val result = Vector3()
             val w2 = q.w * q.w
             val x2 = -q.x * -q.x
             val y2 = -q.y * -q.y
@@ -272,6 +321,15 @@ internal class Quaternion {
          * @return The combined rotation
          */
         fun multiply(lhs: Quaternion, rhs: Quaternion): Quaternion {
+            return multiply(lhs, rhs, Quaternion())
+        }
+
+        /**
+         * Combines two Quaternions into `dest`, which may be one of the operands, see `multiply(lhs, rhs)`
+         *
+         * @return `dest`
+         */
+        fun multiply(lhs: Quaternion, rhs: Quaternion, dest: Quaternion): Quaternion {
             Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.")
             Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.")
             val lx = lhs.x
@@ -282,12 +340,13 @@ internal class Quaternion {
             val ry = rhs.y
             val rz = rhs.z
             val rw = rhs.w
-            return Quaternion(
+            dest.set(
                 lw * rx + lx * rw + ly * rz - lz * ry,
                 lw * ry - lx * rz + ly * rw + lz * rx,
                 lw * rz + lx * ry - ly * rx + lz * rw,
                 lw * rw - lx * rx - ly * ry - lz * rz
             )
+            return dest
         }
 
         /**
@@ -296,9 +355,17 @@ internal class Quaternion {
          * @return The combined Quaternion
          */
         fun add(lhs: Quaternion, rhs: Quaternion): Quaternion {
+            return add(lhs, rhs, Quaternion())
+        }
+
+        /**
+         * Adds two Quaternion's into `result` without normalizing, `result` may be one of the operands
+         *
+         * @return `result`
+         */
+        fun add(lhs: Quaternion, rhs: Quaternion, result: Quaternion): Quaternion {
             Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.")
             Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.")
-            val result = Quaternion()
             result.x = lhs.x + rhs.x
             result.y = lhs.y + rhs.y
             result.z = lhs.z + rhs.z
@@ -318,14 +385,24 @@ internal class Quaternion {
          * between a range of 0 and 1.
          */
         fun lerp(a: Quaternion, b: Quaternion, ratio: Float): Quaternion {
+            return lerp(a, b, ratio, Quaternion())
+        }
+
+        /**
+         * Linear interpolation between two rotations into `dest`, which may be one of the operands
+         *
+         * @return `dest`
+         */
+        fun lerp(a: Quaternion, b: Quaternion, ratio: Float, dest: Quaternion): Quaternion {
             Preconditions.checkNotNull(a, "Parameter \"a\" was null.")
             Preconditions.checkNotNull(b, "Parameter \"b\" was null.")
-            return Quaternion(
+            dest.set(
                 MathHelper.lerp(a.x, b.x, ratio),
                 MathHelper.lerp(a.y, b.y, ratio),
                 MathHelper.lerp(a.z, b.z, ratio),
                 MathHelper.lerp(a.w, b.w, ratio)
             )
+            return dest
         }
 
         /*
@@ -341,40 +418,53 @@ internal class Quaternion {
    * @return interpolated value between the two floats
    */
         fun slerp(start: Quaternion, end: Quaternion, t: Float): Quaternion {
+            return slerp(start, end, t, Quaternion())
+        }
+
+        /**
+         * Spherical linear interpolation between two orientations into `dest`, which may be one of
+         * the operands, see `slerp(start, end, t)`
+         *
+         * @return `dest`
+         */
+        fun slerp(start: Quaternion, end: Quaternion, t: Float, dest: Quaternion): Quaternion {
             Preconditions.checkNotNull(start, "Parameter \"start\" was null.")
             Preconditions.checkNotNull(end, "Parameter \"end\" was null.")
-            val orientation0: Quaternion = start.normalized()
-            var orientation1: Quaternion = end.normalized()
+            val pool = MathPool.get()
+            // set normalizes
+            val orientation0 = pool.acquireQuaternion()
+            orientation0.set(start)
+            val orientation1 = pool.acquireQuaternion()
+            orientation1.set(end)
 
             // cosTheta0 provides the angle between the rotations at t=0
             var cosTheta0: Double = dot(orientation0, orientation1).toDouble()
 
             // Flip end rotation to get shortest path if needed
             if (cosTheta0 < 0.0f) {
-                orientation1 = orientation1.negated()
+                orientation1.negate()
                 cosTheta0 = -cosTheta0
             }
 
             // Small rotations should just use lerp
             if (cosTheta0 > SLERP_THRESHOLD) {
-                return lerp(orientation0, orientation1, t)
+                lerp(orientation0, orientation1, t, dest)
+            } else {
+                // Cosine function range is -1,1. Clamp larger rotations.
+                cosTheta0 = Math.max(-1.0, Math.min(1.0, cosTheta0))
+                val theta0 = Math.acos(cosTheta0) // Angle between orientations at t=0
+                val thetaT = theta0 * t // theta0 scaled to current t
+
+                // s0 = sin(theta0 - thetaT) / sin(theta0)
+                val s0 = Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0)
+                val s1 = Math.sin(thetaT) / Math.sin(theta0)
+                // result = s0*start + s1*end
+                add(orientation0.scale(s0.toFloat()), orientation1.scale(s1.toFloat()), dest)
+                dest.normalize()
             }
-
-            // Cosine function range is -1,1. Clamp larger rotations.
-            cosTheta0 = Math.max(-1.0, Math.min(1.0, cosTheta0))
-            val theta0 = Math.acos(cosTheta0) // Angle between orientations at t=0
-            val thetaT = theta0 * t // theta0 scaled to current t
-
-            // s0 = sin(theta0 - thetaT) / sin(theta0)
-            val s0 = Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0)
-            val s1 = Math.sin(thetaT) / Math.sin(theta0)
-            // result = s0*start + s1*end
-            val result: Quaternion = add(
-                orientation0.scaled(s0.toFloat()), orientation1.scaled(
-                    s1.toFloat()
-                )
-            )
-            return result.normalized()
+            pool.release(orientation1)
+            pool.release(orientation0)
+            return dest
         }
 
         /**
@@ -108,11 +108,35 @@ internal class Vector3 {
             result.setZero()
         } else if (normSquared != 1f) {
             val norm = (1.0 / sqrt(normSquared.toDouble())).toFloat()
-            result.set(this.scaled(norm))
+            result.scale(norm)
         }
         return result
     }
 
+    /**
+     * Uniformly scales this Vector3 in place
+     *
+     * @return this Vector3
+     */
+    fun scale(a: Float): Vector3 {
+        x *= a
+        y *= a
+        z *= a
+        return this
+    }
+
+    /**
+     * Negates this Vector3 in place
+     *
+     * @return this Vector3
+     */
+    fun negate(): Vector3 {
+        x = -x
+        y = -y
+        z = -z
+        return this
+    }
+
     /**
      * Uniformly scales a Vector3
      *
@@ -238,6 +262,36 @@ internal class Vector3 {
     }
 
 companion object{
+    /**
+     * Adds two Vector3's into `dest`, which may be one of the operands
+     *
+     * @return `dest`
+     */
+    fun add(lhs: Vector3, rhs: Vector3, dest: Vector3): Vector3 {
+        dest.set(lhs.x + rhs.x, lhs.y + rhs.y, lhs.z + rhs.z)
+        return dest
+    }
+
+    /**
+     * Subtracts two Vector3's into `dest`, which may be one of the operands
+     *
+     * @return `dest`
+     */
+    fun subtract(lhs: Vector3, rhs: Vector3, dest: Vector3): Vector3 {
+        dest.set(lhs.x - rhs.x, lhs.y - rhs.y, lhs.z - rhs.z)
+        return dest
+    }
+
+    /**
+     * Linearly interpolates between a and b into `dest`, which may be one of the operands
+     *
+     * @return `dest`
+     */
+    fun lerp(a: Vector3, b: Vector3, t: Float, dest: Vector3): Vector3 {
+        dest.set(lerp(a.x, b.x, t), lerp(a.y, b.y, t), lerp(a.z, b.z, t))
+        return dest
+    }
+
     /**
      * Get dot product of two Vector3's
      *
@@ -255,6 +309,15 @@ companion object{
      * @return A Vector3 perpendicular to Vector3's
      */
     fun cross(lhs: Vector3, rhs: Vector3): Vector3 {
+        return cross(lhs, rhs, Vector3())
+    }
+
+    /**
+     * Get cross product of two Vector3's into `dest`, which may be one of the operands
+     *
+     * @return `dest`
+     */
+    fun cross(lhs: Vector3, rhs: Vector3, dest: Vector3): Vector3 {
         Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.")
         Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.")
         val lhsX = lhs.x
@@ -263,9 +326,10 @@ companion object{
         val rhsX = rhs.x
         val rhsY = rhs.y
         val rhsZ = rhs.z
-        return Vector3(
+        dest.set(
             lhsY * rhsZ - lhsZ * rhsY, lhsZ * rhsX - lhsX * rhsZ, lhsX * rhsY - lhsY * rhsX
         )
+        return dest
     }
 
     /** Get a Vector3 with each value set to the element wise minimum of two Vector3's values  */
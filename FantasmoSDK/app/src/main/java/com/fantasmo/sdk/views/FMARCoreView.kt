@@ -5,10 +5,15 @@ import android.content.Context
 import android.opengl.GLSurfaceView
 import android.os.Build
 import android.util.Log
-import android.util.Size
 import androidx.coordinatorlayout.widget.CoordinatorLayout
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.config.RemoteConfig
 import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameDemand
 import com.fantasmo.sdk.models.FMPose
+import com.fantasmo.sdk.utilities.CameraImageReader
+import com.fantasmo.sdk.utilities.SpscRingBuffer
+import com.fantasmo.sdk.utilities.TrajectoryBuffer
 import com.fantasmo.sdk.views.common.helpers.DisplayRotationHelper
 import com.fantasmo.sdk.views.common.helpers.TrackingStateHelper
 import com.fantasmo.sdk.views.common.samplerender.SampleRender
@@ -17,6 +22,8 @@ import com.google.ar.core.*
 import com.google.ar.core.exceptions.CameraNotAvailableException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.launch
 import java.io.IOException
 
@@ -46,13 +53,43 @@ internal class FMARCoreView(
 
     private lateinit var displayRotationHelper: DisplayRotationHelper
     private lateinit var trackingStateHelper: TrackingStateHelper
-    private var lastArFrameTimestamp: Long = 0L
+
+    /**
+     * Decides which ARCore frames are turned into `FMFrame`s, used on the GL thread.
+     */
+    val frameAdmission = FMFrameAdmission()
+
+    /**
+     * Copies the camera images of the admitted frames, on the GL thread right after `Session.update()`.
+     */
+    val cameraImageReader = CameraImageReader(FMUtility.Constants.ImageBufferPoolCapacity)
+
+    // Admitted frames, handed in order from the GL thread to the frame consumer
+    private val frameHandoff = SpscRingBuffer<FMFrame>(FMUtility.Constants.FrameHandoffCapacity)
+
+    // Wakes the frame consumer up once frames were handed off
+    private val frameDoorbell = Channel<Unit>(Channel.CONFLATED)
+    private var frameConsumer: Job? = null
+
+    /**
+     * Frames dropped because the frame consumer was still busy with the previous ones.
+     */
+    @Volatile
+    var framesDroppedAtHandoff = 0
+        private set
+
+    /**
+     * Camera poses of the last tracked frames, filled on the GL thread.
+     */
+    val trajectory = TrajectoryBuffer(FMUtility.Constants.TrajectoryCapacity)
 
     private var coroutineScope = CoroutineScope(Dispatchers.Default)
 
     // Set anchor after QR code is read
+    @Volatile
     private var anchorIsChecked = false
     // Result of anchoring
+    @Volatile
     private var anchored = false
 
     fun setupARSession() {
@@ -63,6 +100,7 @@ internal class FMARCoreView(
 
         // Set up renderer.
         render = SampleRender(surfaceView, this, context.assets)
+        startFrameConsumer()
         onResume()
     }
 
@@ -115,6 +153,9 @@ internal class FMARCoreView(
                 displayRotationHelper.onPause()
             surfaceView.onPause()
             arSession!!.pause()
+            Log.d(TAG, "Camera image acquisition: ${cameraImageReader.statistics}")
+            Log.d(TAG, "Retained frames: ${FMFrame.retainedFrameCount}")
+            cameraImageReader.trim()
         }
     }
 
@@ -130,6 +171,8 @@ internal class FMARCoreView(
             arSession!!.close()
             arSession = null
         }
+        frameConsumer?.cancel()
+        frameConsumer = null
     }
 
     /**
@@ -150,21 +193,14 @@ internal class FMARCoreView(
 
         val filter = CameraConfigFilter(arSession)
         val cameraConfigsList: List<CameraConfig> = arSession!!.getSupportedCameraConfigs(filter)
-        var selectedCameraConfig = 0
 
         if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            var selectedSize = Size(0, 0)
-
-            for (currentCameraConfig in cameraConfigsList) {
-                val cpuImageSize: Size = currentCameraConfig.imageSize
-                if (cpuImageSize.width > selectedSize.width && cpuImageSize.height <= 1080) {
-                    selectedSize = cpuImageSize
-                    selectedCameraConfig = cameraConfigsList.indexOf(currentCameraConfig)
-                }
-            }
+            val policy = if (RemoteConfig.isLoaded) RemoteConfig.remoteConfig.cameraConfigPolicy else null
+            val selector = FMCameraConfigSelector(policy)
+            val selectedCameraConfig = selector.select(cameraConfigsList.map { it.imageSize })
             Log.i(
                 TAG,
-                "CurrentCameraConfig CPU image size:$selectedSize"
+                "CurrentCameraConfig CPU image size:${cameraConfigsList[selectedCameraConfig].imageSize}, policy:${selector.policy}"
             )
             arSession!!.cameraConfig = cameraConfigsList[selectedCameraConfig]
         }
@@ -209,18 +245,32 @@ internal class FMARCoreView(
             Log.e(TAG, "Camera not available during onDrawFrame", e)
             return
         }
-        val fmFrame = FMFrame(frame, context)
-        val newArFrameTimestamp = fmFrame.timestamp
-        //Acquire ARCore Frame to set anchor and updates UI setting values in the view
-        coroutineScope.launch {
-            // Code here will run in Default thread
-            if(connected && newArFrameTimestamp > lastArFrameTimestamp){
-                onUpdate(fmFrame)
-                lastArFrameTimestamp = newArFrameTimestamp
-            }
+        val camera = frame.camera
+        val trackingState = camera.trackingState
+        val timestamp = frame.timestamp
+        if (trackingState == TrackingState.TRACKING) {
+            trajectory.add(timestamp, camera.pose)
         }
 
-        val camera = fmFrame.camera
+        // Only frames some consumer wants are turned into FMFrames, with the camera image if
+        // it can be used right away, the others cost nothing more than this check
+        val demand = when {
+            !connected -> FMFrameDemand.NONE
+            frameHandoff.size >= frameHandoff.capacity -> {
+                // The consumer is behind, it would only get this frame late
+                framesDroppedAtHandoff++
+                FMFrameDemand.NONE
+            }
+            else -> frameAdmission.admit(timestamp, trackingState, consumerDemand(trackingState))
+        }
+        if (demand != FMFrameDemand.NONE) {
+            // The camera image is acquired here, right after update(), and copied out of ARCore
+            val imageReader = if (demand == FMFrameDemand.IMAGE) cameraImageReader else null
+            val fmFrame = FMFrame(frame, context, imageReader)
+            // Always room for it, only this thread adds frames
+            frameHandoff.offer(fmFrame)
+            frameDoorbell.trySend(Unit)
+        }
 
         // Update BackgroundRenderer state to match the depth settings. False for this case
         try {
@@ -233,12 +283,48 @@ internal class FMARCoreView(
         // used to draw the background camera image.
         backgroundRenderer.updateDisplayGeometry(frame)
 
-        trackingStateHelper.updateKeepScreenOnFlag(camera.trackingState)
-        if (fmFrame.timestamp != 0L) {
+        trackingStateHelper.updateKeepScreenOnFlag(trackingState)
+        if (timestamp != 0L) {
             backgroundRenderer.drawBackground(render)
         }
     }
 
+    /**
+     * Passes the admitted frames to `onUpdate`, one at a time and in order, on the Default dispatcher.
+     */
+    private fun startFrameConsumer() {
+        if (frameConsumer != null) {
+            return
+        }
+        frameConsumer = coroutineScope.launch {
+            for (signal in frameDoorbell) {
+                while (true) {
+                    val fmFrame = frameHandoff.poll() ?: break
+                    //Acquire ARCore Frame to set anchor and updates UI setting values in the view
+                    try {
+                        onUpdate(fmFrame)
+                    } finally {
+                        // consumers that keep the frame retained it, the others are done with its image
+                        fmFrame.release()
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * What the consumers want from the current frame, called on the GL thread for every frame.
+     */
+    private fun consumerDemand(trackingState: TrackingState): FMFrameDemand {
+        val demand = arSessionListener.frameDemand(trackingState)
+        // A pending anchor needs the pose of a tracking frame
+        return if (anchorIsChecked && !anchored && trackingState == TrackingState.TRACKING) {
+            demand.union(FMFrameDemand.POSE)
+        } else {
+            demand
+        }
+    }
+
     /**
      * On any changes to the scene call onUpdate method to get arFrames and get the camera data
      * Also responsible for frame anchoring and qrScanning with arFrames
@@ -275,6 +361,12 @@ internal class FMARCoreView(
  * and other classes that need values from the AR session.
  */
 internal interface FMARSessionListener{
+    /**
+     * Called on the GL thread for every new ARCore frame, before an `FMFrame` is made from it,
+     * must be cheap. Tells what the frame is needed for, frames nobody needs are dropped.
+     */
+    fun frameDemand(trackingState: TrackingState): FMFrameDemand
+
     /**
      * When the SDK enters the localization session, this provides the frame
      * to localize and passes to the `FMLocationManager.session()` method.
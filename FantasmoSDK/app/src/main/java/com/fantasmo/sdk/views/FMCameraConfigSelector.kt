@@ -0,0 +1,72 @@
+package com.fantasmo.sdk.views
+
+import android.os.Build
+import android.util.Size
+import androidx.annotation.RequiresApi
+
+/**
+ * Picks the ARCore camera configuration for the `camera_config_policy` of the remote config.
+ * The configuration sets the size of the CPU camera image, which every admitted frame copies,
+ * and the luminance statistics and filters read, so it should be no larger than the workload needs.
+ * @param policy `camera_config_policy` value of the remote config, `UPLOAD` if unset or unknown
+ */
+internal class FMCameraConfigSelector(policy: String?) {
+
+    companion object {
+        // Widest image up to 1080p, best localization at the highest cost per frame
+        const val UPLOAD = "upload"
+
+        // Widest image up to 720p
+        const val BALANCED = "balanced"
+
+        // Smallest image at least 480 pixels high, enough for QR scanning
+        const val LOW_POWER = "low_power"
+
+        private const val UploadMaxHeight = 1080
+        private const val BalancedMaxHeight = 720
+        private const val LowPowerMinHeight = 480
+    }
+
+    val policy: String = when (policy) {
+        BALANCED, LOW_POWER -> policy
+        else -> UPLOAD
+    }
+
+    /**
+     * Index of the camera configuration to use.
+     * @param imageSizes CPU image sizes of the supported camera configurations
+     * @return index in `imageSizes`, 0 if none fits the policy
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    fun select(imageSizes: List<Size>): Int {
+        return when (policy) {
+            BALANCED -> widest(imageSizes, BalancedMaxHeight)
+            LOW_POWER -> smallest(imageSizes, LowPowerMinHeight) ?: widest(imageSizes, Int.MAX_VALUE)
+            else -> widest(imageSizes, UploadMaxHeight)
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun widest(imageSizes: List<Size>, maxHeight: Int): Int {
+        var selected = 0
+        var selectedWidth = 0
+        imageSizes.forEachIndexed { index, size ->
+            if (size.width > selectedWidth && size.height <= maxHeight) {
+                selected = index
+                selectedWidth = size.width
+            }
+        }
+        return selected
+    }
+
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun smallest(imageSizes: List<Size>, minHeight: Int): Int? {
+        var selected: Int? = null
+        imageSizes.forEachIndexed { index, size ->
+            if (size.height >= minHeight && (selected == null || size.width < imageSizes[selected!!].width)) {
+                selected = index
+            }
+        }
+        return selected
+    }
+}
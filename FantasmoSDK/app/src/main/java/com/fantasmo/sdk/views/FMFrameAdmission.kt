@@ -0,0 +1,55 @@
+package com.fantasmo.sdk.views
+
+import com.fantasmo.sdk.models.FMFrameDemand
+import com.google.ar.core.TrackingState
+
+/**
+ * Admission stage of `FMARCoreView`, run on the GL thread for every ARCore frame before anything
+ * is copied out of it. Frames repeating the previous camera image, frames of a stopped session and
+ * frames no consumer wants are dropped, and the camera image is only copied if a consumer can use
+ * it right away, so rendering keeps up while the SDK is busy.
+ * Must only be used from the GL thread.
+ */
+internal class FMFrameAdmission {
+
+    private var lastTimestamp = 0L
+
+    // Frames seen, frames admitted and frames admitted with their camera image
+    var framesSeen = 0
+        private set
+    var framesAdmitted = 0
+        private set
+    var imagesAdmitted = 0
+        private set
+
+    /**
+     * Decides what to take from a frame.
+     * @param timestamp timestamp of the ARCore frame
+     * @param trackingState tracking state of the ARCore camera
+     * @param demand what the consumers want from the frame
+     * @return what to copy from the frame, `NONE` to drop it
+     */
+    fun admit(timestamp: Long, trackingState: TrackingState, demand: FMFrameDemand): FMFrameDemand {
+        framesSeen++
+        // ARCore returns the last frame again when no new camera image arrived in time
+        if (timestamp == 0L || timestamp <= lastTimestamp) {
+            return FMFrameDemand.NONE
+        }
+        if (trackingState == TrackingState.STOPPED || demand == FMFrameDemand.NONE) {
+            return FMFrameDemand.NONE
+        }
+        lastTimestamp = timestamp
+        framesAdmitted++
+        if (demand == FMFrameDemand.IMAGE) {
+            imagesAdmitted++
+        }
+        return demand
+    }
+
+    fun reset() {
+        lastTimestamp = 0L
+        framesSeen = 0
+        framesAdmitted = 0
+        imagesAdmitted = 0
+    }
+}
@@ -17,6 +17,7 @@ import com.fantasmo.sdk.fantasmosdk.R
 import com.fantasmo.sdk.models.Coordinate
 import com.fantasmo.sdk.models.ErrorResponse
 import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameDemand
 import com.fantasmo.sdk.models.FMPose
 import com.fantasmo.sdk.models.analytics.AccumulatedARCoreInfo
 import com.fantasmo.sdk.models.analytics.FMFrameEvaluationStatistics
@@ -167,6 +168,8 @@ class FMParkingView @JvmOverloads constructor(
         LOCALIZING
     }
 
+    // Read on the GL thread to decide which frames are needed
+    @Volatile
     private var state = State.IDLE
 
     /**
@@ -251,6 +254,7 @@ class FMParkingView @JvmOverloads constructor(
 
             fmQRScanningView.hide()
             fmLocalizingView.hide()
+            qrCodeReader.stopQRScanner()
         }
         fmSessionStatisticsView.reset()
         this.visibility = View.GONE
@@ -347,6 +351,7 @@ class FMParkingView @JvmOverloads constructor(
         if (state != State.QR_SCANNING) {
             return
         }
+        qrCodeReader.stopQRScanner()
         fmQrScanningViewController.didStopQRScanning()
         fmParkingViewController.fmParkingViewDidStopQRScanning()
 
@@ -419,7 +424,7 @@ class FMParkingView @JvmOverloads constructor(
         object : FMLocationListener {
             override fun didBeginUpload(frame: FMFrame) {
                 (context as Activity).runOnUiThread {
-                    fmSessionStatisticsView.update(fmLocationManager.activeUploads.toList())
+                    fmSessionStatisticsView.update(fmLocationManager.activeUploads)
                 }
             }
 
@@ -442,7 +447,7 @@ class FMParkingView @JvmOverloads constructor(
                 (context as Activity).runOnUiThread {
                     fmParkingViewController.fmParkingView(error, metadata)
                     fmLocalizingViewController.didReceiveLocalizationError(error, metadata)
-                    fmSessionStatisticsView.updateErrors(fmLocationManager.errors.size, error)
+                    fmSessionStatisticsView.updateErrors(fmLocationManager.errorCount, error)
                 }
             }
 
@@ -498,6 +503,15 @@ class FMParkingView @JvmOverloads constructor(
      */
     private var arSessionListener: FMARSessionListener =
         object : FMARSessionListener {
+            override fun frameDemand(trackingState: TrackingState): FMFrameDemand {
+                return when (state) {
+                    State.LOCALIZING -> fmLocationManager.frameDemand(trackingState)
+                    State.QR_SCANNING ->
+                        if (qrCodeReader.isReadyToScan) FMFrameDemand.IMAGE else FMFrameDemand.NONE
+                    else -> FMFrameDemand.NONE
+                }
+            }
+
             override fun localize(fmFrame: FMFrame) {
                 // If localizing, pass the current AR frame to the location manager
                 if (state == State.LOCALIZING) {
@@ -506,7 +520,7 @@ class FMParkingView @JvmOverloads constructor(
             }
 
             override fun anchored(fmFrame: FMFrame): Boolean {
-                if(fmFrame.camera.trackingState == TrackingState.TRACKING) {
+                if(fmFrame.trackingState == TrackingState.TRACKING) {
                     fmLocationManager.setAnchor(fmFrame)
                     return true
                 }
@@ -1,5 +1,6 @@
 package com.fantasmo.sdk.views
 
+import android.graphics.Rect
 import com.fantasmo.sdk.FMBehaviorRequest
 import com.fantasmo.sdk.FMLocationResult
 import com.fantasmo.sdk.models.ErrorResponse
@@ -24,11 +25,25 @@ interface FMParkingViewProtocol {
      * the code is valid and that localization should start. Passing `false` to this block indicates the code is invalid and instructs
      * the parking view to scan for more QR codes. This block may be called synchronously or asynchronously but must be done so on the
      * main queue. The default implementation of this method does nothing and simply calls `continueBlock(true)`.
-     * @param qrCode the scanned QR code as `Barcode`
+     * When the remote config selects a QR decoder other than ML Kit, scanned codes are reported through
+     * `fmParkingViewDidScanQRCode(qrCodeString:boundingBox:continueBlock:)` instead.
+     * @param qrCode the scanned QR code as `Barcode`, its bounding box and corner points are in camera image pixels
      * @param continueBlock a block to be called with a boolean value indicating whether or not to continue to localization.
      */
     fun fmParkingView(qrCode: Barcode, continueBlock: (Boolean) -> Unit) {}
 
+    /**
+     * Called when a QR code is scanned by a decoder other than ML Kit, selected by the remote config, which
+     * reports no `Barcode`. This method can be used to perform optional validation of the QR code before
+     * localization starts, the same way as `fmParkingView(qrCode:continueBlock:)`.
+     *
+     * If you implement this method, you *must* eventually call the `continueBlock` with a boolean value, on the main queue.
+     * @param qrCodeString the scanned QR code string
+     * @param boundingBox bounding box of the QR code in camera image pixels
+     * @param continueBlock a block to be called with a boolean value indicating whether or not to continue to localization.
+     */
+    fun fmParkingViewDidScanQRCode(qrCodeString: String, boundingBox: Rect, continueBlock: (Boolean) -> Unit) {}
+
     /**
      * Called when a QR code is manually entered via `enterQRCode(string:)`.
      *
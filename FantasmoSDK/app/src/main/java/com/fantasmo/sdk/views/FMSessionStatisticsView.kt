@@ -58,9 +58,9 @@ internal class FMSessionStatisticsView(arLayout: CoordinatorLayout, private val
         fmFrame: FMFrame,
         info: AccumulatedARCoreInfo
     ) {
-        val cameraTranslation = fmFrame.camera.pose.translation
-        translationTv.text =
-            createStringDisplay(cameraTranslation)
+        val cameraTranslation = fmFrame.cameraPose?.translation
+        if(cameraTranslation != null)
+            translationTv.text = createStringDisplay(cameraTranslation)
 
         val cameraRotation = fmFrame.sensorAngles
         if(cameraRotation != null)
@@ -11,6 +11,7 @@ import android.view.Display;
 import android.view.Surface;
 import android.view.WindowManager;
 
+import com.fantasmo.sdk.utilities.DisplayRotationState;
 import com.google.ar.core.Session;
 
 /**
@@ -38,14 +39,22 @@ public final class DisplayRotationHelper implements DisplayListener {
     display = windowManager.getDefaultDisplay();
   }
 
-  /** Registers the display listener. Should be called from {@link Activity#onResume()}. */
+  /**
+   * Registers the display listener and publishes the current rotation to {@link
+   * DisplayRotationState}. Should be called from {@link Activity#onResume()}.
+   */
   public void onResume() {
     displayManager.registerDisplayListener(this, null);
+    DisplayRotationState.update(display.getRotation());
   }
 
-  /** Unregisters the display listener. Should be called from {@link Activity#onPause()}. */
+  /**
+   * Unregisters the display listener, the rotation can no longer be kept up to date. Should be
+   * called from {@link Activity#onPause()}.
+   */
   public void onPause() {
     displayManager.unregisterDisplayListener(this);
+    DisplayRotationState.invalidate();
   }
 
   /**
@@ -147,5 +156,6 @@ public final class DisplayRotationHelper implements DisplayListener {
   @Override
   public void onDisplayChanged(int displayId) {
     viewportChanged = true;
+    DisplayRotationState.update(display.getRotation());
   }
 }
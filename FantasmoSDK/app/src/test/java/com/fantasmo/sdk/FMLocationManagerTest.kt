@@ -162,11 +162,17 @@ class FMLocationManagerTest {
 
     @Test
     fun anchorDeltaPoseForNullFrameTest() {
+        // Frames captured while not tracking have no camera pose
+        val capture = FMFrameCapture(
+            0L, 0.0, TrackingState.PAUSED, TrackingFailureReason.NONE,
+            null, Pose.IDENTITY, null,
+            0f, 0f, 0f, 0f, 0, 0
+        )
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
+        `when`(frame.capture).thenReturn(capture)
 
         val anchorFrame = mock(FMFrame::class.java)
+        `when`(anchorFrame.capture).thenReturn(capture)
 
         val deltaFMPose = FMUtility.anchorDeltaPoseForFrame(frame, anchorFrame)
         val position = FMPosition(0f, 0f, 0f)
@@ -243,13 +249,10 @@ class FMLocationManagerTest {
         testFilter.set(spyFMLocationManager, filter2)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getAcceptedPose()
-        `when`(frame.camera.pose).thenReturn(cameraPose)
         `when`(frame.cameraPose).thenReturn(cameraPose)
 
         val accumulatedARCoreInfo = AccumulatedARCoreInfo()
@@ -290,10 +293,8 @@ class FMLocationManagerTest {
         fieldFrameFilter.set(fmLocationManager, frameFilter)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getAcceptedPose()
         val pose2 = mock(Pose::class.java)
@@ -301,16 +302,15 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        `when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        `when`(frame.displayOrientedPose).thenReturn(pose2)
+        `when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
         val display = mock(Display::class.java)
         `when`(context.display).thenReturn(display)
         `when`(context.display?.rotation!!).thenReturn(Surface.ROTATION_0)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
         val accumulatedARCoreInfo = AccumulatedARCoreInfo()
         val fieldAccumulatedARCoreInfo = fmLocationManager.javaClass.getDeclaredField("accumulatedARCoreInfo")
@@ -340,10 +340,8 @@ class FMLocationManagerTest {
         fmLocationManager.setLocation(location)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getRejectedPose()
         val pose2 = mock(Pose::class.java)
@@ -351,8 +349,8 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        `when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        `when`(frame.displayOrientedPose).thenReturn(pose2)
+        `when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
         val context = mock(Context::class.java)
@@ -360,8 +358,7 @@ class FMLocationManagerTest {
         `when`(context.display).thenReturn(display)
         `when`(context.display?.rotation!!).thenReturn(Surface.ROTATION_0)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
         val frameFilter = FMFrameEvaluatorChain(RemoteConfigTest.remoteConfig, instrumentationContext)
 
@@ -397,11 +394,8 @@ class FMLocationManagerTest {
     fun testLocalizeNotConnected() {
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
         val cameraPose = getAcceptedPose()
-        `when`(frame.camera.pose).thenReturn(cameraPose)
         `when`(frame.cameraPose).thenReturn(cameraPose)
 
         fmLocationManager.session(frame)
@@ -418,9 +412,7 @@ class FMLocationManagerTest {
         fmLocationManager.setLocation(location)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
 
         val cameraPose = getRejectedPose()
 
@@ -429,8 +421,7 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
         testScope.runBlockingTest {
             spyFMLocationManager.session(frame)
@@ -488,10 +479,8 @@ class FMLocationManagerTest {
         `when`(bitmapImage.height).thenReturn(height)
         `when`(bitmapImage.width).thenReturn(width)
 
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getAcceptedPose()
         val pose2 = mock(Pose::class.java)
@@ -499,11 +488,10 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
-        `when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        `when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        `when`(frame.displayOrientedPose).thenReturn(pose2)
+        `when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
         val display = mock(Display::class.java)
@@ -511,12 +499,13 @@ class FMLocationManagerTest {
         `when`(context.display?.rotation!!).thenReturn(Surface.ROTATION_0)
 
         val intrinsics = mock(CameraIntrinsics::class.java)
-        `when`(frame.camera.imageIntrinsics).thenReturn(intrinsics)
         val imageDimensions = intArrayOf(height, width)
-        `when`(frame.camera.imageIntrinsics.imageDimensions).thenReturn(imageDimensions)
+        `when`(intrinsics.imageDimensions).thenReturn(imageDimensions)
+        val capture = captureOf(frame, intrinsics)
+        `when`(frame.capture).thenReturn(capture)
 
-        `when`(frame.camera.imageIntrinsics.focalLength).thenReturn(focalLength)
-        `when`(frame.camera.imageIntrinsics.principalPoint).thenReturn(principalPoint)
+        `when`(intrinsics.focalLength).thenReturn(focalLength)
+        `when`(intrinsics.principalPoint).thenReturn(principalPoint)
 
         spyFMLocationManager.session(frame)
 
@@ -566,10 +555,8 @@ class FMLocationManagerTest {
         testFilter.set(spyFMLocationManager, filter2)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getAcceptedPose()
 
@@ -578,8 +565,7 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
         val image = mock(YuvImage::class.java)
         `when`(frame.yuvImage).thenReturn(image)
@@ -592,15 +578,16 @@ class FMLocationManagerTest {
 
         `when`(display.rotation).thenReturn(Surface.ROTATION_0)
 
-        `when`(frame.camera.displayOrientedPose).thenReturn(cameraPose)
+        `when`(frame.displayOrientedPose).thenReturn(cameraPose)
 
         val imageIntrinsics = mock(CameraIntrinsics::class.java)
-        `when`(frame.camera.imageIntrinsics).thenReturn(imageIntrinsics)
-        `when`(frame.camera.imageIntrinsics.focalLength).thenReturn(focalLength)
-        `when`(frame.camera.imageIntrinsics.principalPoint).thenReturn(principalPoint)
+        `when`(imageIntrinsics.focalLength).thenReturn(focalLength)
+        `when`(imageIntrinsics.principalPoint).thenReturn(principalPoint)
 
         val imageDimensions = intArrayOf(height, width)
-        `when`(frame.camera.imageIntrinsics.imageDimensions).thenReturn(imageDimensions)
+        `when`(imageIntrinsics.imageDimensions).thenReturn(imageDimensions)
+        val capture = captureOf(frame, imageIntrinsics)
+        `when`(frame.capture).thenReturn(capture)
 
         spyFMLocationManager.session(frame)
 
@@ -648,10 +635,8 @@ class FMLocationManagerTest {
         testFilter.set(spyFMLocationManager, filter2)
 
         val frame = mock(FMFrame::class.java)
-        val camera = mock(Camera::class.java)
-        `when`(frame.camera).thenReturn(camera)
-        `when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
-        `when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         val cameraPose = getAcceptedPose()
 
@@ -660,8 +645,7 @@ class FMLocationManagerTest {
         `when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(cameraPose.rotationQuaternion)
 
-        `when`(frame.camera.pose).thenReturn(pose2)
-        `when`(frame.camera.pose.translation).thenReturn(cameraPose.translation)
+        `when`(frame.cameraPose.translation).thenReturn(cameraPose.translation)
 
         val image = mock(YuvImage::class.java)
         `when`(frame.yuvImage).thenReturn(image)
@@ -674,15 +658,16 @@ class FMLocationManagerTest {
 
         `when`(display.rotation).thenReturn(Surface.ROTATION_0)
 
-        `when`(frame.camera.displayOrientedPose).thenReturn(cameraPose)
+        `when`(frame.displayOrientedPose).thenReturn(cameraPose)
 
         val imageIntrinsics = mock(CameraIntrinsics::class.java)
-        `when`(frame.camera.imageIntrinsics).thenReturn(imageIntrinsics)
-        `when`(frame.camera.imageIntrinsics.focalLength).thenReturn(focalLength)
-        `when`(frame.camera.imageIntrinsics.principalPoint).thenReturn(principalPoint)
+        `when`(imageIntrinsics.focalLength).thenReturn(focalLength)
+        `when`(imageIntrinsics.principalPoint).thenReturn(principalPoint)
 
         val imageDimensions = intArrayOf(height, width)
-        `when`(frame.camera.imageIntrinsics.imageDimensions).thenReturn(imageDimensions)
+        `when`(imageIntrinsics.imageDimensions).thenReturn(imageDimensions)
+        val capture = captureOf(frame, imageIntrinsics)
+        `when`(frame.capture).thenReturn(capture)
 
         spyFMLocationManager.session(frame)
 
@@ -691,6 +676,27 @@ class FMLocationManagerTest {
         verify(spyFMApi3, times(1)).fmNetworkManager
     }
 
+    /**
+     * Capture snapshot of a mocked frame, built from its stubs.
+     */
+    private fun captureOf(frame: FMFrame, intrinsics: CameraIntrinsics): FMFrameCapture {
+        return FMFrameCapture(
+            0L,
+            System.currentTimeMillis() / 1000.0,
+            frame.trackingState,
+            frame.trackingFailureReason,
+            frame.cameraPose,
+            frame.displayOrientedPose,
+            null,
+            intrinsics.focalLength[0],
+            intrinsics.focalLength[1],
+            intrinsics.principalPoint[0],
+            intrinsics.principalPoint[1],
+            intrinsics.imageDimensions[0],
+            intrinsics.imageDimensions[1]
+        )
+    }
+
     private fun getAcceptedPose(): Pose {
         return Pose(
             floatArrayOf(
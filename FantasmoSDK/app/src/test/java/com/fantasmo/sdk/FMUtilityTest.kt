@@ -0,0 +1,73 @@
+package com.fantasmo.sdk
+
+import com.fantasmo.sdk.FMUtility.Companion.convertQuaternionToEuler
+import com.fantasmo.sdk.FMUtility.Companion.convertToDegrees
+import com.fantasmo.sdk.models.analytics.RotationSpreadAccumulator
+import com.google.ar.core.Pose
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class FMUtilityTest {
+
+    private fun randomQuaternion(random: Random): FloatArray {
+        return FloatArray(4) { random.nextFloat() * 2f - 1f }
+    }
+
+    @Test
+    fun testOutParameterEulerMatchesAllocatingVersion() {
+        val random = Random(42)
+        val eulerAngles = FloatArray(3)
+
+        repeat(1000) {
+            val quaternion = randomQuaternion(random)
+            val expected = convertQuaternionToEuler(quaternion)
+
+            val result = convertQuaternionToEuler(
+                quaternion[0], quaternion[1], quaternion[2], quaternion[3], eulerAngles
+            )
+
+            assertSame(eulerAngles, result)
+            assertArrayEquals(expected, eulerAngles, 0f)
+        }
+    }
+
+    @Test
+    fun testEulerSingularities() {
+        val eulerAngles = FloatArray(3) { 1f }
+        val halfSqrt2 = kotlin.math.sqrt(0.5f)
+
+        convertToDegrees(convertQuaternionToEuler(halfSqrt2, 0f, 0f, halfSqrt2, eulerAngles))
+        assertArrayEquals(floatArrayOf(90f, 90f, 0f), eulerAngles, 1e-3f)
+
+        convertToDegrees(convertQuaternionToEuler(-halfSqrt2, 0f, 0f, halfSqrt2, eulerAngles))
+        assertArrayEquals(floatArrayOf(-90f, 90f, 0f), eulerAngles, 1e-3f)
+    }
+
+    @Test
+    fun testPerFrameEulerDoesNotAllocate() {
+        val random = Random(42)
+        val poses = Array(64) { Pose(FloatArray(3), randomQuaternion(random)) }
+        val eulerAngles = FloatArray(3)
+        val pitch = RotationSpreadAccumulator()
+        val threadMXBean = java.lang.management.ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+
+        // what a frame computes once from its sensor pose and what the pitch filter and
+        // rotation accumulator then read
+        fun frame(pose: Pose) {
+            convertToDegrees(convertQuaternionToEuler(pose.qx(), pose.qy(), pose.qz(), pose.qw(), eulerAngles))
+            pitch.addValue(eulerAngles[0])
+        }
+
+        // warm up so the measured loop runs compiled code
+        repeat(50_000) { frame(poses[it % poses.size]) }
+        val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+        repeat(10_000) { frame(poses[it % poses.size]) }
+        val allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+        // only the measurement itself may allocate
+        assertTrue("allocated $allocated bytes", allocated < 1024)
+        assertTrue(pitch.spread > 0f)
+    }
+}
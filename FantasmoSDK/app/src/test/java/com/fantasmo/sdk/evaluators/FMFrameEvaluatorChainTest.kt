@@ -0,0 +1,34 @@
+package com.fantasmo.sdk.evaluators
+
+import android.os.Build
+import androidx.test.platform.app.InstrumentationRegistry
+import com.fantasmo.sdk.config.RemoteConfigTest
+import com.fantasmo.sdk.models.FMFrame
+import com.google.ar.core.TrackingState
+import org.junit.Assert.assertFalse
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.*
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class FMFrameEvaluatorChainTest {
+
+    @Test
+    fun testSkipsFrameWithoutImage() {
+        val context = InstrumentationRegistry.getInstrumentation().context
+        val chain = FMFrameEvaluatorChain(RemoteConfigTest.remoteConfig, context)
+        val listener = mock(FMFrameEvaluatorChainListener::class.java)
+        chain.listener = listener
+
+        // admitted for its pose only, while a previous frame was evaluated
+        val frame = mock(FMFrame::class.java)
+        `when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
+        chain.evaluateAsync(frame)
+
+        assertFalse(chain.isEvaluating)
+        verifyNoInteractions(listener)
+    }
+}
@@ -0,0 +1,66 @@
+package com.fantasmo.sdk.evaluators
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class FMTensorGammaCorrectionTest {
+
+    private val mean = floatArrayOf(0.485f, 0.456f, 0.406f)
+    private val std = floatArrayOf(0.229f, 0.224f, 0.225f)
+
+    // Planar tensor of `size` values per channel, all with the brightness `value`
+    private fun makeTensor(value: Float, size: Int = 10): FloatArray {
+        return FloatArray(size * 3) { (value - mean[it / size]) / std[it / size] }
+    }
+
+    private fun brightness(tensor: FloatArray, index: Int, size: Int = 10): Float {
+        val channel = index / size
+        return tensor[index] * std[channel] + mean[channel]
+    }
+
+    @Test
+    fun testGammaOneKeepsValues() {
+        val tensor = makeTensor(0.3f)
+
+        FMTensorGammaCorrection().apply(tensor, 1f)
+
+        for (i in tensor.indices) {
+            assertEquals(0.3f, brightness(tensor, i), 1e-3f)
+        }
+    }
+
+    @Test
+    fun testBrightensEveryChannel() {
+        val tensor = makeTensor(0.25f)
+
+        FMTensorGammaCorrection().apply(tensor, 0.5f)
+
+        for (i in tensor.indices) {
+            assertEquals(0.5f, brightness(tensor, i), 1e-3f)
+        }
+    }
+
+    @Test
+    fun testClampsOutOfRangeValues() {
+        val tensor = makeTensor(1.2f)
+
+        FMTensorGammaCorrection().apply(tensor, 0.5f)
+
+        for (i in tensor.indices) {
+            assertEquals(1f, brightness(tensor, i), 1e-3f)
+        }
+    }
+
+    @Test
+    fun testTablesFollowGammaChanges() {
+        val correction = FMTensorGammaCorrection()
+        val first = makeTensor(0.25f)
+        val second = makeTensor(0.25f)
+
+        correction.apply(first, 0.5f)
+        correction.apply(second, 1f)
+
+        assertEquals(0.5f, brightness(first, 0), 1e-3f)
+        assertEquals(0.25f, brightness(second, 0), 1e-3f)
+    }
+}
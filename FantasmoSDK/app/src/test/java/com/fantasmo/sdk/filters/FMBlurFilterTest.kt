@@ -1,16 +1,12 @@
 package com.fantasmo.sdk.filters
 
-import android.content.Context
-import android.graphics.YuvImage
 import android.os.Build
-import androidx.test.platform.app.InstrumentationRegistry
-import com.fantasmo.sdk.config.RemoteConfigTest
 import com.fantasmo.sdk.models.FMFrame
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.ExperimentalCoroutinesApi
-import kotlinx.coroutines.launch
-import kotlinx.coroutines.test.TestCoroutineScope
-import org.junit.*
+import com.fantasmo.sdk.models.FMFrameRejectionReason
+import com.fantasmo.sdk.models.FMLuminancePyramid
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.Mockito.*
 import org.robolectric.RobolectricTestRunner
@@ -18,75 +14,98 @@ import org.robolectric.annotation.Config
 
 @Config(sdk = [Build.VERSION_CODES.O_MR1])
 @RunWith(RobolectricTestRunner::class)
-@ExperimentalCoroutinesApi
 class FMBlurFilterTest {
 
     private lateinit var fmBlurFilter: FMBlurFilter
-    private lateinit var spyFMBlurFilter: FMBlurFilter
-    private lateinit var instrumentationContext: Context
 
-    private val testScope = TestCoroutineScope()
+    private val width = 320
+    private val height = 240
 
     @Before
     fun setUp() {
-        instrumentationContext = InstrumentationRegistry.getInstrumentation().context
+        fmBlurFilter = FMBlurFilter(250f, 0.4f, 0.25f)
+    }
 
-        fmBlurFilter = FMBlurFilter(
-            RemoteConfigTest.remoteConfig.blurFilterVarianceThreshold,
-            RemoteConfigTest.remoteConfig.blurFilterSuddenDropThreshold,
-            RemoteConfigTest.remoteConfig.blurFilterAverageThroughputThreshold,
-            instrumentationContext
-        )
-        val fieldRenderScriptContext = fmBlurFilter.javaClass.getDeclaredField("rs")
-        fieldRenderScriptContext.isAccessible = true
-        fieldRenderScriptContext.set(fmBlurFilter, null)
+    // NV21 checkerboard of `blockSize` pixel squares, `contrast` above and below mid gray
+    private fun makeImage(contrast: Int, width: Int = this.width, height: Int = this.height, blockSize: Int = 1): ByteArray {
+        val data = ByteArray(width * height * 3 / 2)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                val isLight = (x / blockSize + y / blockSize) % 2 == 0
+                data[y * width + x] = (if (isLight) 128 + contrast else 128 - contrast).toByte()
+            }
+        }
+        data.fill(128.toByte(), width * height, data.size)
+        return data
+    }
+
+    private fun makeFrame(contrast: Int): FMFrame {
+        val frame = mock(FMFrame::class.java)
+        val pyramid = FMLuminancePyramid(makeImage(contrast), width, height)
+        `when`(frame.luminancePyramid).thenReturn(pyramid)
+        return frame
+    }
 
-        val fieldHistogram = fmBlurFilter.javaClass.getDeclaredField("histogram")
-        fieldHistogram.isAccessible = true
-        fieldHistogram.set(fmBlurFilter, null)
+    @Test
+    fun testVarianceOfLaplacian() {
+        // the Laplacian of a one pixel checkerboard is +-8 times its contrast everywhere
+        assertEquals(6400.0, fmBlurFilter.calculateVariance(makeImage(10), width, height), 1e-6)
+        assertEquals(0.0, fmBlurFilter.calculateVariance(makeImage(0), width, height), 1e-6)
+    }
 
-        val fieldConvolve = fmBlurFilter.javaClass.getDeclaredField("convolve")
-        fieldConvolve.isAccessible = true
-        fieldConvolve.set(fmBlurFilter, null)
+    @Test
+    fun testVarianceIsMeasuredOnDownsampledImage() {
+        val image = makeImage(10, 640, 480, 2)
 
-        val fieldResize = fmBlurFilter.javaClass.getDeclaredField("resize")
-        fieldResize.isAccessible = true
-        fieldResize.set(fmBlurFilter, null)
+        assertEquals(6400.0, fmBlurFilter.calculateVariance(image, 640, 480), 1e-6)
+    }
 
-        spyFMBlurFilter = spy(fmBlurFilter)
+    @Test
+    fun testSampledLevelKeepsMaxWidth() {
+        // 1920 pixels: the 960 level is sampled with a step of 3, the 240 level would lose resolution
+        val fullHd = FMLuminancePyramid(ByteArray(1920 * 1080), 1920, 1080)
+        assertEquals(1, fmBlurFilter.sampledLevel(fullHd))
+        // 1280 pixels: the 320 level needs no further downsampling
+        val hd = FMLuminancePyramid(ByteArray(1280 * 720), 1280, 720)
+        assertEquals(2, fmBlurFilter.sampledLevel(hd))
     }
 
     @Test
     fun testBlurFilterAccepts() {
-        val frame = mock(FMFrame::class.java)
-        val yuvImage = mock(YuvImage::class.java)
+        assertEquals(
+            null,
+            fmBlurFilter.accepts(makeFrame(10)).getRejectedReason()
+        )
+    }
 
-        testScope.launch(Dispatchers.Default) {
-            doReturn(300.0).`when`(spyFMBlurFilter).calculateVariance(yuvImage)
+    @Test
+    fun testBlurFilterRejects() {
+        repeat(4) { fmBlurFilter.accepts(makeFrame(10)) }
 
-            Assert.assertEquals(
-                null,
-                spyFMBlurFilter.accepts(frame).getRejectedReason()
-            )
-        }
+        assertEquals(
+            FMFrameRejectionReason.IMAGE_TOO_BLURRY,
+            fmBlurFilter.accepts(makeFrame(0)).getRejectedReason()
+        )
     }
 
     @Test
-    fun testBlurFilterRejects() {
-        val frame = mock(FMFrame::class.java)
-        val yuvImage = mock(YuvImage::class.java)
+    fun testBlurFilterRejectsSuddenDrop() {
+        repeat(4) { fmBlurFilter.accepts(makeFrame(10)) }
 
-        testScope.launch(Dispatchers.Default) { // launches coroutine in cpu thread
-            doReturn(250.0).`when`(spyFMBlurFilter).calculateVariance(yuvImage)
-            Assert.assertEquals(
-                FMFrameFilterRejectionReason.IMAGE_TOO_BLURRY,
-                spyFMBlurFilter.accepts(frame).getRejectedReason()
-            )
-        }
+        // still above the variance threshold, but lost half of the sharpness
+        assertEquals(
+            FMFrameRejectionReason.IMAGE_TOO_BLURRY,
+            fmBlurFilter.accepts(makeFrame(7)).getRejectedReason()
+        )
     }
 
-    @After
-    fun cleanUp() {
-        testScope.cleanupTestCoroutines()
+    @Test
+    fun testBlurFilterAcceptsWhenThroughputIsTooLow() {
+        repeat(8) {
+            assertEquals(
+                FMFrameFilterResult.Accepted,
+                fmBlurFilter.accepts(makeFrame(0))
+            )
+        }
     }
-}
\ No newline at end of file
+}
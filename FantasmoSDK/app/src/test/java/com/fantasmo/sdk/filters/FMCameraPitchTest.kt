@@ -5,7 +5,6 @@ import android.view.Display
 import android.view.Surface
 import com.fantasmo.sdk.config.RemoteConfigTest
 import com.fantasmo.sdk.models.FMFrame
-import com.google.ar.core.Camera
 import com.google.ar.core.Pose
 import org.junit.Assert.assertEquals
 import org.junit.Test
@@ -39,10 +38,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -79,10 +76,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -119,10 +114,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -159,10 +152,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -199,10 +190,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -239,10 +228,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -279,10 +266,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -319,10 +304,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -359,10 +342,8 @@ class FMCameraPitchTest {
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
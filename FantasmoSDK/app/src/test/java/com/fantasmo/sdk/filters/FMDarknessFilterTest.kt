@@ -0,0 +1,51 @@
+package com.fantasmo.sdk.filters
+
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameRejectionReason
+import com.fantasmo.sdk.models.FMLuminanceStatistics
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.mockito.Mockito
+import org.mockito.Mockito.`when`
+
+class FMDarknessFilterTest {
+
+    private fun frameWithBrightness(value: Int): FMFrame {
+        val frame = Mockito.mock(FMFrame::class.java)
+        val luminance = ByteArray(64 * 48) { value.toByte() }
+        `when`(frame.luminanceStatistics).thenReturn(FMLuminanceStatistics.compute(luminance, 64, 48))
+        return frame
+    }
+
+    @Test
+    fun testDarknessFilterAccepts() {
+        val filter = FMDarknessFilter(0.03f)
+
+        assertEquals(
+            FMFrameFilterResult.Accepted,
+            filter.accepts(frameWithBrightness(40))
+        )
+    }
+
+    @Test
+    fun testDarknessFilterRejects() {
+        val filter = FMDarknessFilter(0.03f)
+
+        assertEquals(
+            FMFrameRejectionReason.IMAGE_TOO_DARK,
+            filter.accepts(frameWithBrightness(3)).getRejectedReason()
+        )
+    }
+
+    @Test
+    fun testDarknessFilterAcceptsFramesWithoutImage() {
+        val filter = FMDarknessFilter(0.03f)
+        val frame = Mockito.mock(FMFrame::class.java)
+        `when`(frame.luminanceStatistics).thenReturn(null)
+
+        assertEquals(
+            FMFrameFilterResult.Accepted,
+            filter.accepts(frame)
+        )
+    }
+}
@@ -0,0 +1,123 @@
+package com.fantasmo.sdk.filters
+
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameRejectionReason
+import org.junit.Assert.*
+import org.junit.Test
+import org.mockito.Mockito
+
+class FMFrameFilterChainOrderTest {
+
+    private var now = 0L
+    private val clock = { now }
+    private val frame = Mockito.mock(FMFrame::class.java)
+
+    /**
+     * Filter taking `latency` nanoseconds of the fake clock, rejecting one frame out of `rejectEvery`.
+     */
+    private inner class FakeFilter(
+        override val TAG: String,
+        private val latency: Long,
+        private val rejectEvery: Int
+    ) : FMFrameFilter {
+        var calls = 0
+
+        override fun accepts(fmFrame: FMFrame): FMFrameFilterResult {
+            calls++
+            now += latency
+            return if (rejectEvery > 0 && calls % rejectEvery == 0) {
+                FMFrameFilterResult.Rejected(FMFrameRejectionReason.FRAME_ERROR)
+            } else {
+                FMFrameFilterResult.Accepted
+            }
+        }
+    }
+
+    @Test
+    fun testShortCircuitsOnRejection() {
+        val chain = FMFrameFilterChain(1000, clock)
+        val rejecting = FakeFilter("rejecting", 1_000, 1)
+        val last = FakeFilter("last", 1_000, 0)
+        chain.add(rejecting)
+        chain.add(last)
+        var rejectedBy: FMFrameFilter? = null
+
+        val accepted = chain.accepts(frame) { filter, _ -> rejectedBy = filter }
+
+        assertFalse(accepted)
+        assertSame(rejecting, rejectedBy)
+        assertEquals(0, last.calls)
+    }
+
+    @Test
+    fun testCheapSelectiveFiltersMoveFirst() {
+        val chain = FMFrameFilterChain(10, clock)
+        val expensive = FakeFilter("expensive", 5_000_000, 0)
+        val cheap = FakeFilter("cheap", 10_000, 2)
+        chain.add(expensive, isReorderable = true)
+        chain.add(cheap, isReorderable = true)
+
+        repeat(10) { chain.accepts(frame) { _, _ -> } }
+        assertEquals(listOf("cheap", "expensive"), chain.filters.map { it.TAG })
+
+        // half of the frames are now rejected before reaching the expensive filter
+        val expensiveCalls = expensive.calls
+        repeat(100) { chain.accepts(frame) { _, _ -> } }
+        assertEquals(50, expensive.calls - expensiveCalls)
+    }
+
+    @Test
+    fun testEqualCostsKeepRegistrationOrder() {
+        val chain = FMFrameFilterChain(5, clock)
+        chain.add(FakeFilter("first", 1_000, 0), isReorderable = true)
+        chain.add(FakeFilter("second", 1_000, 0), isReorderable = true)
+
+        repeat(20) { chain.accepts(frame) { _, _ -> } }
+
+        assertEquals(listOf("first", "second"), chain.filters.map { it.TAG })
+    }
+
+    @Test
+    fun testFixedFiltersKeepTheirPosition() {
+        val chain = FMFrameFilterChain(10, clock)
+        chain.add(FakeFilter("pinned", 5_000_000, 0))
+        chain.add(FakeFilter("expensive", 5_000_000, 0), isReorderable = true)
+        chain.add(FakeFilter("cheap", 10_000, 2), isReorderable = true)
+        chain.add(FakeFilter("stateful", 10_000, 1))
+
+        repeat(50) { chain.accepts(frame) { _, _ -> } }
+
+        assertEquals(listOf("pinned", "cheap", "expensive", "stateful"), chain.filters.map { it.TAG })
+    }
+
+    @Test
+    fun testFiltersAreNotMovedAcrossFixedOnes() {
+        val chain = FMFrameFilterChain(10, clock)
+        chain.add(FakeFilter("expensive", 5_000_000, 0), isReorderable = true)
+        chain.add(FakeFilter("fixed", 1_000, 0))
+        chain.add(FakeFilter("cheap", 10_000, 2), isReorderable = true)
+
+        repeat(50) { chain.accepts(frame) { _, _ -> } }
+
+        assertEquals(listOf("expensive", "fixed", "cheap"), chain.filters.map { it.TAG })
+    }
+
+    @Test
+    fun testStatistics() {
+        val chain = FMFrameFilterChain(1000, clock)
+        chain.add(FakeFilter("filter", 30_000, 4))
+
+        repeat(8) { chain.accepts(frame) { _, _ -> } }
+
+        val statistics = chain.statistics.single()
+        assertEquals("filter", statistics.filterName)
+        assertEquals(0, statistics.position)
+        assertEquals(8, statistics.runs)
+        assertEquals(2, statistics.rejections)
+        assertEquals(0.25, statistics.rejectionRate, 1e-9)
+        assertEquals(0.03, statistics.averageLatency, 1e-9)
+        // 30 us falls in the bucket up to 50 us
+        assertEquals(8, statistics.latencyHistogram[2])
+        assertEquals(8, statistics.latencyHistogram.sum())
+    }
+}
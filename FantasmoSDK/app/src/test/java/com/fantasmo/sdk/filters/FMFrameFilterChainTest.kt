@@ -9,7 +9,6 @@ import com.fantasmo.sdk.config.RemoteConfig
 import com.fantasmo.sdk.config.RemoteConfigTest
 import com.fantasmo.sdk.evaluators.FMFrameEvaluatorChain
 import com.fantasmo.sdk.models.FMFrame
-import com.google.ar.core.Camera
 import com.google.ar.core.Pose
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import org.junit.Assert.assertEquals
@@ -38,8 +37,6 @@ class FMFrameFilterChainTest {
     @Test
     fun testShouldForceAcceptTrue() {
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
 
         val lastAcceptTime = 1L
         val fieldLastAcceptTime = filter.javaClass.getDeclaredField("lastAcceptTime")
@@ -71,17 +68,14 @@ class FMFrameFilterChainTest {
         fieldLastAcceptTime.isAccessible = true
         fieldLastAcceptTime.set(filter, lastAcceptTime)
 
-        val camera = Mockito.mock(Camera::class.java)
         val pose2 = Mockito.mock(Pose::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.pose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.pose.translation).thenReturn(pose.translation)
         Mockito.`when`(frame.cameraPose).thenReturn(pose2)
+        Mockito.`when`(frame.cameraPose.translation).thenReturn(pose.translation)
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val display = Mockito.mock(Display::class.java)
@@ -113,17 +107,13 @@ class FMFrameFilterChainTest {
 
         val timestamp = 6000000000
         Mockito.`when`(frame.timestamp).thenReturn(timestamp)
-        val camera = Mockito.mock(Camera::class.java)
         val pose2 = Mockito.mock(Pose::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.pose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.pose.translation).thenReturn(pose.translation)
-        Mockito.`when`(frame.cameraPose).thenReturn(pose2)
+        Mockito.`when`(frame.cameraPose.translation).thenReturn(pose.translation)
         Mockito.`when`(frame.cameraPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
-        Mockito.`when`(frame.camera.displayOrientedPose).thenReturn(pose2)
-        Mockito.`when`(frame.camera.displayOrientedPose.rotationQuaternion)
+        Mockito.`when`(frame.displayOrientedPose).thenReturn(pose2)
+        Mockito.`when`(frame.displayOrientedPose.rotationQuaternion)
             .thenReturn(pose.rotationQuaternion)
 
         val context = Mockito.mock(Context::class.java)
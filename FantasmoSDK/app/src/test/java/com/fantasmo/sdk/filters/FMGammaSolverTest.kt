@@ -0,0 +1,102 @@
+package com.fantasmo.sdk.filters
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.math.ceil
+import kotlin.math.log2
+import kotlin.math.pow
+
+class FMGammaSolverTest {
+
+    private val targetBrightness = 0.15f
+
+    @Test
+    fun testBrightImagesAreNotCorrected() {
+        val solver = FMGammaSolver()
+
+        assertNull(solver.solve(GammaTestHistograms.make(100, 20.0), targetBrightness))
+    }
+
+    @Test
+    fun testReachesTargetWithWeakestCorrection() {
+        val solver = FMGammaSolver()
+
+        for (histogram in GammaTestHistograms.darkScenes) {
+            val index = solver.solve(histogram, targetBrightness)!!
+
+            assertTrue(solver.brightness(histogram, index) >= targetBrightness)
+            assertTrue(solver.brightness(histogram, index + 1) < targetBrightness)
+        }
+    }
+
+    @Test
+    fun testMatchesLegacySearch() {
+        val solver = FMGammaSolver()
+
+        for (histogram in GammaTestHistograms.darkScenes) {
+            val gamma = solver.gamma(solver.solve(histogram, targetBrightness)!!)
+            val (legacyGamma, _) = GammaTestHistograms.legacyGamma(histogram, targetBrightness)
+
+            assertEquals(legacyGamma, gamma.toDouble(), 0.02)
+        }
+    }
+
+    @Test
+    fun testSolvesInBoundedHistogramPasses() {
+        val solver = FMGammaSolver()
+        // the mean, the first guess, then a binary search over the gammas
+        val maxPasses = 2 + ceil(log2(solver.gammaCount.toDouble())).toLong()
+
+        for (histogram in GammaTestHistograms.darkScenes) {
+            val before = solver.brightnessEvaluations
+            solver.solve(histogram, targetBrightness)
+            val passes = solver.brightnessEvaluations - before
+
+            assertTrue("$passes passes", passes <= maxPasses)
+        }
+    }
+
+    @Test
+    fun testBlackImageIsBounded() {
+        val solver = FMGammaSolver()
+        val histogram = IntArray(256)
+        histogram[0] = 1000
+
+        assertEquals(0, solver.solve(histogram, targetBrightness))
+    }
+
+    @Test
+    fun testGammasAreQuantized() {
+        val solver = FMGammaSolver(0.1f, 0.01f)
+
+        assertEquals(91, solver.gammaCount)
+        assertEquals(0.1f, solver.gamma(0), 1e-6f)
+        assertEquals(0.5f, solver.gamma(40), 1e-6f)
+        assertEquals(1f, solver.gamma(solver.gammaCount - 1), 0f)
+    }
+
+    @Test
+    fun testLookupTables() {
+        val solver = FMGammaSolver()
+
+        val identity = solver.lut(solver.gammaCount - 1)
+        for (i in 0..255) {
+            assertEquals(i, identity[i].toInt() and 0xFF)
+        }
+        val lut = solver.lut(40)
+        assertEquals((((64 / 256.0).pow(0.5)) * 256).toInt(), lut[64].toInt() and 0xFF)
+        assertSame(lut, solver.lut(40))
+    }
+
+    @Test
+    fun testAppliesToLuminanceOnly() {
+        val solver = FMGammaSolver()
+        val data = ByteArray(12) { 64 }
+
+        solver.apply(40, data, 8)
+
+        val corrected = solver.lut(40)[64]
+        assertTrue(data.take(8).all { it == corrected })
+        assertTrue(data.drop(8).all { it == 64.toByte() })
+    }
+}
@@ -0,0 +1,102 @@
+package com.fantasmo.sdk.filters
+
+import android.graphics.ImageFormat
+import android.graphics.YuvImage
+import android.os.Build
+import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMLuminanceStatistics
+import org.junit.Assert.*
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers
+import org.mockito.Mockito
+import org.mockito.Mockito.`when`
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class FMImageEnhancerTest {
+
+    private val width = 64
+    private val height = 48
+
+    private fun makeFrame(data: ByteArray): FMFrame {
+        val frame = Mockito.mock(FMFrame::class.java)
+        `when`(frame.yuvImage).thenReturn(YuvImage(data, ImageFormat.NV21, width, height, null))
+        `when`(frame.luminanceStatistics).thenReturn(FMLuminanceStatistics.compute(data, width, height))
+        return frame
+    }
+
+    @Test
+    fun testCorrectsDarkImageInPlace() {
+        val data = ByteArray(width * height * 3 / 2)
+        data.fill(20, 0, width * height)
+        data.fill(100, width * height, data.size)
+        val frame = makeFrame(data)
+        val image = frame.yuvImage!!
+
+        FMImageEnhancer(0.15f).enhance(frame)
+
+        // the luminance was brightened in the frame's own buffer, chroma is untouched
+        assertSame(data, image.yuvData)
+        for (i in 0 until width * height) {
+            assertTrue((data[i].toInt() and 0xFF) > 20)
+        }
+        for (i in width * height until data.size) {
+            assertEquals(100.toByte(), data[i])
+        }
+        Mockito.verify(frame).enhancedImageGamma = ArgumentMatchers.anyFloat()
+        Mockito.verify(frame, Mockito.never()).yuvImage = ArgumentMatchers.any()
+    }
+
+    @Test
+    fun testLeavesBrightImage() {
+        val data = ByteArray(width * height * 3 / 2)
+        data.fill(120, 0, width * height)
+        val frame = makeFrame(data)
+
+        FMImageEnhancer(0.15f).enhance(frame)
+
+        assertTrue(data.take(width * height).all { it == 120.toByte() })
+        Mockito.verify(frame, Mockito.never()).enhancedImageGamma = ArgumentMatchers.anyFloat()
+    }
+
+    @Test
+    fun testDoesNotEnhanceTwice() {
+        val data = ByteArray(width * height * 3 / 2)
+        data.fill(20, 0, width * height)
+        val frame = makeFrame(data)
+        `when`(frame.enhancedImageGamma).thenReturn(0.6f)
+
+        FMImageEnhancer(0.15f).enhance(frame)
+
+        assertTrue(data.take(width * height).all { it == 20.toByte() })
+    }
+
+    @Test
+    fun testDeferredEnhancementWorkPerWindow() {
+        val framesPerWindow = 10
+        val makeDarkFrame = {
+            val data = ByteArray(width * height * 3 / 2)
+            data.fill(20, 0, width * height)
+            makeFrame(data)
+        }
+
+        // every evaluated frame is enhanced, as before
+        val eager = FMImageEnhancer(0.15f)
+        repeat(framesPerWindow) { eager.enhance(makeDarkFrame()) }
+
+        // evaluated frames only get their gamma solved, the uploaded one is enhanced
+        val deferred = FMImageEnhancer(0.15f)
+        val frames = List(framesPerWindow) { makeDarkFrame() }
+        val gammas = frames.map { deferred.solveGamma(it) }
+        deferred.enhance(frames.last())
+
+        assertTrue(gammas.all { it != null && it < 1f })
+        assertEquals(framesPerWindow, eager.correctedFrames)
+        assertEquals(framesPerWindow.toLong() * width * height, eager.correctedPixels)
+        assertEquals(1, deferred.correctedFrames)
+        assertEquals(width.toLong() * height, deferred.correctedPixels)
+    }
+}
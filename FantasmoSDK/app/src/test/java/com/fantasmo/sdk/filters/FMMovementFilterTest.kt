@@ -2,8 +2,10 @@ package com.fantasmo.sdk.filters
 
 import com.fantasmo.sdk.config.RemoteConfigTest
 import com.fantasmo.sdk.models.FMFrame
+import com.fantasmo.sdk.models.FMFrameRejectionReason
 import com.google.ar.core.Pose
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
 import org.junit.Test
 import org.mockito.Mockito
 import org.mockito.Mockito.`when`
@@ -39,9 +41,9 @@ class FMMovementFilterTest {
         val frame = Mockito.mock(FMFrame::class.java)
         val pose = Pose(
             floatArrayOf(
-                (-0.001).toFloat(),
-                (-0.001).toFloat(),
-                0.001F
+                (-0.0005).toFloat(),
+                (-0.0005).toFloat(),
+                0.0005F
             ),
             floatArrayOf(
                 0F, 0F, 0F, 1F
@@ -50,8 +52,62 @@ class FMMovementFilterTest {
         `when`(frame.cameraPose).thenReturn(pose)
 
         assertEquals(
-            FMFrameFilterRejectionReason.MOVING_TOO_LITTLE,
+            FMFrameRejectionReason.MOVING_TOO_LITTLE,
             filter.accepts(frame).getRejectedReason()
         )
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testMovementFilterAcceptsRotation() {
+        val filter = FMMovementFilter(0.001f, 0.5f)
+        val position = floatArrayOf(0f, 0f, 0f)
+        // quarter of a degree, then one degree around the vertical axis
+        val smallTurn = Math.toRadians(0.25) / 2
+        val turn = Math.toRadians(1.0) / 2
+
+        assertEquals(
+            FMFrameRejectionReason.MOVING_TOO_LITTLE,
+            filter.accepts(Pose(position, floatArrayOf(0f, Math.sin(smallTurn).toFloat(), 0f, Math.cos(smallTurn).toFloat())))
+                .getRejectedReason()
+        )
+        assertEquals(
+            FMFrameFilterResult.Accepted,
+            filter.accepts(Pose(position, floatArrayOf(0f, Math.sin(turn).toFloat(), 0f, Math.cos(turn).toFloat())))
+        )
+    }
+
+    @Test
+    fun testMovementFilterComparesWithLastAcceptedPose() {
+        val filter = FMMovementFilter(0.01f, 90f)
+        val rotation = floatArrayOf(0f, 0f, 0f, 1f)
+
+        // each step is too small, but they add up since the last accepted pose
+        assertEquals(FMFrameFilterResult.Accepted, filter.accepts(Pose(floatArrayOf(1f, 0f, 0f), rotation)))
+        assertTrue(filter.accepts(Pose(floatArrayOf(1.006f, 0f, 0f), rotation)) is FMFrameFilterResult.Rejected)
+        assertEquals(FMFrameFilterResult.Accepted, filter.accepts(Pose(floatArrayOf(1.012f, 0f, 0f), rotation)))
+    }
+
+    @Test
+    fun testMovementFilterDoesNotAllocate() {
+        val filter = FMMovementFilter(0.001f, 0.06f)
+        val poses = Array(2) { Pose(floatArrayOf(it.toFloat(), 0f, 0f), floatArrayOf(0f, 0f, 0f, 1f)) }
+        val still = Pose(floatArrayOf(1f, 0f, 0f), floatArrayOf(0f, 0f, 0f, 1f))
+        val threadMXBean = java.lang.management.ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+
+        // warm up so the measured loop runs compiled code
+        repeat(20_000) {
+            filter.accepts(poses[it % 2])
+            filter.accepts(still)
+        }
+        val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+        repeat(10_000) {
+            filter.accepts(poses[it % 2])
+            filter.accepts(still)
+        }
+        val allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+        // only the measurement itself may allocate
+        assertTrue("allocated $allocated bytes", allocated < 1024)
+    }
+}
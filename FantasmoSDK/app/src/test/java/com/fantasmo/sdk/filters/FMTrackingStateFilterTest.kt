@@ -1,7 +1,6 @@
 package com.fantasmo.sdk.filters
 
 import com.fantasmo.sdk.models.FMFrame
-import com.google.ar.core.Camera
 import com.google.ar.core.TrackingFailureReason
 import com.google.ar.core.TrackingState
 import org.junit.Assert
@@ -14,9 +13,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterAccepts() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingState).thenReturn(TrackingState.TRACKING)
+        Mockito.`when`(frame.trackingState).thenReturn(TrackingState.TRACKING)
 
         Assert.assertEquals(
             FMFrameFilterResult.Accepted,
@@ -28,9 +25,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsBadState() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.BAD_STATE)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.BAD_STATE)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.MOVING_TOO_FAST,
@@ -42,9 +37,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsExcessiveMotion() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.EXCESSIVE_MOTION)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.EXCESSIVE_MOTION)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.MOVING_TOO_FAST,
@@ -56,9 +49,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsCameraUnavailable() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.CAMERA_UNAVAILABLE)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.CAMERA_UNAVAILABLE)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.MOVING_TOO_LITTLE,
@@ -70,9 +61,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsInsufficientLight() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.INSUFFICIENT_LIGHT)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.INSUFFICIENT_LIGHT)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.INSUFFICIENT_FEATURES,
@@ -84,9 +73,7 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsInsufficientFeatures() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.INSUFFICIENT_FEATURES)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.INSUFFICIENT_FEATURES)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.INSUFFICIENT_FEATURES,
@@ -98,10 +85,8 @@ class FMTrackingStateFilterTest {
     fun testPitchFilterRejectsInitializing() {
         val filter = FMTrackingStateFilter()
         val frame = Mockito.mock(FMFrame::class.java)
-        val camera = Mockito.mock(Camera::class.java)
-        Mockito.`when`(frame.camera).thenReturn(camera)
-        Mockito.`when`(frame.camera.trackingState).thenReturn(TrackingState.PAUSED)
-        Mockito.`when`(frame.camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        Mockito.`when`(frame.trackingState).thenReturn(TrackingState.PAUSED)
+        Mockito.`when`(frame.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
 
         Assert.assertEquals(
             FMFrameFilterRejectionReason.MOVING_TOO_LITTLE,
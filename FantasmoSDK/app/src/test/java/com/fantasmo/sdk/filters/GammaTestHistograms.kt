@@ -0,0 +1,72 @@
+package com.fantasmo.sdk.filters
+
+import kotlin.math.exp
+import kotlin.math.pow
+import kotlin.random.Random
+
+/**
+ * Luminance histograms of typical dark scenes, standing in for histograms recorded on device,
+ * and the gamma search `FMImageEnhancer` used before `FMGammaSolver` as a reference.
+ */
+internal object GammaTestHistograms {
+
+    /**
+     * Histogram of an image whose luminance is spread around `peak` with the given `width`,
+     * plus some pixels spread over the whole range like lights and reflections.
+     */
+    fun make(peak: Int, width: Double, samples: Int = 100_000, seed: Int = peak): IntArray {
+        val random = Random(seed)
+        val weights = DoubleArray(256) { exp(-((it - peak) / width).pow(2) / 2) + 0.002 }
+        val total = weights.sum()
+        return IntArray(256) { (weights[it] / total * samples).toInt() + random.nextInt(3) }
+    }
+
+    val darkScenes: List<IntArray> = listOf(
+        make(8, 4.0),
+        make(15, 8.0),
+        make(20, 12.0),
+        make(25, 6.0),
+        make(30, 20.0),
+        make(35, 10.0)
+    )
+
+    /**
+     * Gamma search of the original `FMImageEnhancer`, bisecting until the mean brightness is
+     * within 1% of the target. Capped at `maxLoops` since it never ends on some histograms.
+     * @return gamma and number of loops
+     */
+    fun legacyGamma(histogram: IntArray, meanT: Float, maxLoops: Int = 64): Pair<Double, Int> {
+        val originalBinValues = DoubleArray(256)
+        for (i in 0..255) {
+            originalBinValues[i] = i / 256.0
+        }
+        val correctedBinValues = originalBinValues.clone()
+        val histogramSum = histogram.sum()
+        var meanBrightness = 0.0
+        for (i in 0..255) {
+            meanBrightness += originalBinValues[i] * histogram[i] / histogramSum
+        }
+        val meanRange: DoubleArray = doubleArrayOf(meanT - meanT / 100.0, meanT + meanT / 100.0)
+        var gamma = 1.0
+        var step = 0.5
+        var numOfLoops = 0
+        while (numOfLoops < maxLoops) {
+            numOfLoops++
+            if (meanBrightness >= meanRange[0] && meanBrightness <= meanRange[1]) {
+                break
+            }
+            if (meanBrightness < meanT) {
+                gamma -= step
+            } else {
+                gamma += step
+            }
+            step /= 2.0
+            meanBrightness = 0.0
+            for (i in 0..255) {
+                correctedBinValues[i] = originalBinValues[i].pow(gamma)
+                meanBrightness += correctedBinValues[i] * histogram[i] / histogramSum
+            }
+        }
+        return Pair(gamma, numOfLoops)
+    }
+}
@@ -0,0 +1,90 @@
+package com.fantasmo.sdk.models
+
+import com.google.ar.core.*
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito.*
+
+class FMFrameCaptureTest {
+
+    private val frame = mock(Frame::class.java)
+    private val camera = mock(Camera::class.java)
+    private val intrinsics = mock(CameraIntrinsics::class.java)
+
+    private val cameraPose = Pose(floatArrayOf(1f, 2f, 3f), floatArrayOf(0f, 0f, 0f, 1f))
+    private val displayOrientedPose =
+        Pose(floatArrayOf(1f, 2f, 3f), floatArrayOf(0f, 0f, 0.70710677f, 0.70710677f))
+    private val sensorPose = Pose(floatArrayOf(0f, 0f, 0f), floatArrayOf(0.5f, 0.5f, 0.5f, 0.5f))
+
+    @Before
+    fun setUp() {
+        `when`(frame.camera).thenReturn(camera)
+        `when`(frame.timestamp).thenReturn(42L)
+        `when`(frame.androidSensorPose).thenReturn(sensorPose)
+        `when`(camera.trackingState).thenReturn(TrackingState.TRACKING)
+        `when`(camera.trackingFailureReason).thenReturn(TrackingFailureReason.NONE)
+        `when`(camera.pose).thenReturn(cameraPose)
+        `when`(camera.displayOrientedPose).thenReturn(displayOrientedPose)
+        `when`(camera.imageIntrinsics).thenReturn(intrinsics)
+        `when`(intrinsics.focalLength).thenReturn(floatArrayOf(1083.4f, 1084.5f))
+        `when`(intrinsics.principalPoint).thenReturn(floatArrayOf(481.0f, 640.5f))
+        `when`(intrinsics.imageDimensions).thenReturn(intArrayOf(1280, 960))
+    }
+
+    @Test
+    fun testCopiesCameraState() {
+        val capture = FMFrameCapture.capture(frame, 1234.5)
+
+        assertEquals(42L, capture.timestamp)
+        assertEquals(1234.5, capture.capturedAt, 0.0)
+        assertEquals(TrackingState.TRACKING, capture.trackingState)
+        assertSame(cameraPose, capture.cameraPose)
+        assertSame(displayOrientedPose, capture.displayOrientedPose)
+        assertSame(sensorPose, capture.androidSensorPose)
+        assertEquals(1280, capture.imageWidth)
+        assertEquals(960, capture.imageHeight)
+
+        val fmIntrinsics = capture.intrinsics
+        assertEquals(1083.4f, fmIntrinsics.fx)
+        assertEquals(1084.5f, fmIntrinsics.fy)
+        assertEquals(640.5f, fmIntrinsics.cx)
+        assertEquals(481.0f, fmIntrinsics.cy)
+
+        val gravity = capture.gravity
+        val expected = FMOrientation(displayOrientedPose.rotationQuaternion)
+        assertEquals(expected.x, gravity.x)
+        assertEquals(expected.y, gravity.y)
+        assertEquals(expected.z, gravity.z)
+        assertEquals(expected.w, gravity.w)
+    }
+
+    @Test
+    fun testIsNotAffectedByLaterCameraUpdates() {
+        val capture = FMFrameCapture.capture(frame, 0.0)
+
+        // ARCore updates the camera in place on the next frame
+        `when`(camera.trackingState).thenReturn(TrackingState.PAUSED)
+        `when`(camera.displayOrientedPose).thenReturn(Pose.IDENTITY)
+        `when`(intrinsics.focalLength).thenReturn(floatArrayOf(0f, 0f))
+        `when`(intrinsics.imageDimensions).thenReturn(intArrayOf(640, 480))
+
+        assertEquals(TrackingState.TRACKING, capture.trackingState)
+        assertSame(displayOrientedPose, capture.displayOrientedPose)
+        assertEquals(1083.4f, capture.intrinsics.fx)
+        assertEquals(1280, capture.imageWidth)
+        verify(camera, times(1)).imageIntrinsics
+    }
+
+    @Test
+    fun testNoPosesWhenNotTracking() {
+        `when`(camera.trackingState).thenReturn(TrackingState.PAUSED)
+
+        val capture = FMFrameCapture.capture(frame, 0.0)
+
+        assertNull(capture.cameraPose)
+        assertNull(capture.androidSensorPose)
+        assertSame(displayOrientedPose, capture.displayOrientedPose)
+        verify(frame, never()).androidSensorPose
+    }
+}
@@ -0,0 +1,65 @@
+package com.fantasmo.sdk.models
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class FMLuminancePyramidTest {
+
+    @Test
+    fun testLevelSizes() {
+        val luminance = ByteArray(1920 * 1080 * 3 / 2)
+        val pyramid = FMLuminancePyramid(luminance, 1920, 1080)
+
+        assertSame(luminance, pyramid.data(0))
+        assertEquals(960, pyramid.width(1))
+        assertEquals(540, pyramid.height(1))
+        assertEquals(480, pyramid.width(2))
+        assertEquals(270, pyramid.height(2))
+        assertEquals(240, pyramid.width(3))
+        assertEquals(135, pyramid.height(3))
+    }
+
+    @Test
+    fun testLevelsAverageBlocks() {
+        val width = 8
+        val height = 8
+        val luminance = ByteArray(width * height)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                luminance[y * width + x] = (if (x < 4) 40 else 200).toByte()
+            }
+        }
+        luminance[0] = 80
+
+        val pyramid = FMLuminancePyramid(luminance, width, height)
+
+        // (80 + 40 + 40 + 40) / 4
+        assertEquals(50, pyramid.data(1)[0].toInt() and 0xFF)
+        assertEquals(40, pyramid.data(1)[1].toInt() and 0xFF)
+        assertEquals(200, pyramid.data(1)[2].toInt() and 0xFF)
+        assertEquals(42, pyramid.data(2)[0].toInt() and 0xFF)
+        assertEquals(120, pyramid.data(3)[0].toInt() and 0xFF)
+    }
+
+    @Test
+    fun testLevelFor() {
+        val pyramid = FMLuminancePyramid(ByteArray(1920 * 1080), 1920, 1080)
+
+        assertEquals(0, pyramid.levelFor(1920))
+        assertEquals(1, pyramid.levelFor(960))
+        assertEquals(3, pyramid.levelFor(320))
+        assertEquals(3, pyramid.levelFor(100))
+    }
+
+    @Test
+    fun testLevelsUseAllocatedBuffers() {
+        val allocated = mutableListOf<Int>()
+        val pyramid = FMLuminancePyramid(ByteArray(64 * 48), 64, 48) { level, size ->
+            allocated.add(level)
+            ByteArray(size)
+        }
+
+        assertEquals(listOf(1, 2, 3), allocated)
+        assertEquals(8 * 6, pyramid.data(3).size)
+    }
+}
@@ -0,0 +1,70 @@
+package com.fantasmo.sdk.models
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class FMLuminanceStatisticsTest {
+
+    @Test
+    fun testUniformImage() {
+        val luminance = ByteArray(64 * 48) { 102 }
+
+        val statistics = FMLuminanceStatistics.compute(luminance, 64, 48, 4)
+
+        assertEquals(16 * 12, statistics.sampleCount)
+        assertEquals(statistics.sampleCount, statistics.histogram[102])
+        assertEquals(0.4f, statistics.mean, 1e-6f)
+        assertEquals(0.4f, statistics.lowPercentile, 1e-6f)
+        assertEquals(0.4f, statistics.highPercentile, 1e-6f)
+    }
+
+    @Test
+    fun testPercentiles() {
+        // one row out of ten is white, the others black
+        val width = 10
+        val height = 100
+        val luminance = ByteArray(width * height)
+        for (y in 0 until height step 10) {
+            luminance.fill(255.toByte(), y * width, (y + 1) * width)
+        }
+
+        val statistics = FMLuminanceStatistics.compute(luminance, width, height, 1)
+
+        assertEquals(1000, statistics.sampleCount)
+        assertEquals(900, statistics.histogram[0])
+        assertEquals(100, statistics.histogram[255])
+        assertEquals(0.1f, statistics.mean, 1e-6f)
+        assertEquals(0f, statistics.lowPercentile, 1e-6f)
+        assertEquals(1f, statistics.highPercentile, 1e-6f)
+    }
+
+    @Test
+    fun testSamplesEveryStepPixels() {
+        val width = 16
+        val height = 8
+        val luminance = ByteArray(width * height)
+        // only the sampled pixels, at the center of each 4x4 block, are bright
+        for (y in 2 until height step 4) {
+            for (x in 2 until width step 4) {
+                luminance[y * width + x] = 200.toByte()
+            }
+        }
+
+        val statistics = FMLuminanceStatistics.compute(luminance, width, height, 4)
+
+        assertEquals(8, statistics.sampleCount)
+        assertEquals(8, statistics.histogram[200])
+    }
+
+    @Test
+    fun testIgnoresChroma() {
+        val width = 8
+        val height = 8
+        val nv21 = ByteArray(width * height * 3 / 2)
+        nv21.fill(255.toByte(), width * height, nv21.size)
+
+        val statistics = FMLuminanceStatistics.compute(nv21, width, height, 2)
+
+        assertEquals(0f, statistics.mean, 1e-6f)
+    }
+}
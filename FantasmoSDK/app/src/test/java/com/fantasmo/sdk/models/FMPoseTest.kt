@@ -0,0 +1,94 @@
+package com.fantasmo.sdk.models
+
+import com.google.ar.core.Pose
+import com.sun.management.ThreadMXBean
+import org.junit.Assert.*
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import kotlin.math.cos
+import kotlin.math.sin
+
+class FMPoseTest {
+
+    private fun assertPoseEquals(expected: FMPose, actual: FMPose, delta: Float) {
+        assertEquals(expected.position.x, actual.position.x, delta)
+        assertEquals(expected.position.y, actual.position.y, delta)
+        assertEquals(expected.position.z, actual.position.z, delta)
+        assertEquals(expected.orientation.x, actual.orientation.x, delta)
+        assertEquals(expected.orientation.y, actual.orientation.y, delta)
+        assertEquals(expected.orientation.z, actual.orientation.z, delta)
+        assertEquals(expected.orientation.w, actual.orientation.w, delta)
+    }
+
+    @Test
+    fun testDiffPoseMatchesComposedPoses() {
+        val poses = PoseTestData.randomPoses(200)
+        val dest = FMPose()
+
+        for (i in 1 until poses.size) {
+            val expected = PoseTestData.legacyDiffPose(poses[i - 1], poses[i])
+
+            val result = FMPose.diffPose(poses[i - 1], poses[i], dest)
+
+            assertSame(dest, result)
+            assertPoseEquals(expected, dest, 1e-4f)
+        }
+    }
+
+    @Test
+    fun testDiffPoseDoesNotAllocate() {
+        val threadMXBean = ManagementFactory.getThreadMXBean() as? ThreadMXBean
+        assumeTrue(threadMXBean?.isThreadAllocatedMemorySupported == true)
+        val threadId = Thread.currentThread().id
+        val poses = PoseTestData.randomPoses(64)
+        val dest = FMPose()
+        val iterations = 10_000
+
+        fun allocatedBy(diff: (Pose, Pose) -> Unit): Long {
+            val before = threadMXBean!!.getThreadAllocatedBytes(threadId)
+            repeat(iterations) { diff(poses[it % poses.size], poses[(it + 1) % poses.size]) }
+            return threadMXBean.getThreadAllocatedBytes(threadId) - before
+        }
+
+        // composing ARCore poses allocates, which shows the measurement sees allocations
+        assertTrue(allocatedBy { anchor, camera -> PoseTestData.legacyDiffPose(anchor, camera) } > 0)
+        // only the measurement itself may allocate
+        val allocated = allocatedBy { anchor, camera -> FMPose.diffPose(anchor, camera, dest) }
+        assertTrue("allocated $allocated B", allocated < 1024)
+    }
+
+    @Test
+    fun testDiffPoseIntoOperand() {
+        val poses = PoseTestData.randomPoses(2).map { FMPose(it) }
+        val expected = poses[0].diffPose(poses[1])
+
+        poses[0].diffPose(poses[1], poses[0])
+
+        assertPoseEquals(expected, poses[0], 0f)
+    }
+
+    @Test
+    fun testOrientationDifference() {
+        // rotations of 0.6 and 0.2 radians around Z, their difference is a rotation of 0.4
+        val rotation = FMOrientation(cos(0.3f), 0f, 0f, sin(0.3f))
+        val other = FMOrientation(cos(0.1f), 0f, 0f, sin(0.1f))
+
+        val difference = rotation.difference(other)
+
+        assertEquals(cos(0.2f), difference.w, 1e-6f)
+        assertEquals(0f, difference.x, 1e-6f)
+        assertEquals(0f, difference.y, 1e-6f)
+        assertEquals(sin(0.2f), difference.z, 1e-6f)
+    }
+
+    @Test
+    fun testInterpolatePosesKeepsCount() {
+        val poses = PoseTestData.randomPoses(10).map { FMPose(it) }
+
+        val interpolated = FMPose.interpolatePoses(poses.first(), poses.last(), poses)
+
+        assertEquals(poses.size, interpolated.size)
+        assertTrue(interpolated.none { it === poses.first() || it === poses.last() })
+    }
+}
@@ -0,0 +1,33 @@
+package com.fantasmo.sdk.models
+
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.utilities.math.Vector3
+import com.google.ar.core.Pose
+import kotlin.math.PI
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+/**
+ * Random ARCore poses and the original anchor delta computation, which composes ARCore poses.
+ */
+internal object PoseTestData {
+
+    fun randomPoses(count: Int, seed: Int = 42): Array<Pose> {
+        val random = Random(seed)
+        return Array(count) {
+            val rotation = FloatArray(4) { random.nextFloat() * 2f - 1f }
+            val norm = sqrt(rotation.sumOf { (it * it).toDouble() }).toFloat()
+            Pose(
+                FloatArray(3) { random.nextFloat() * 10f - 5f },
+                FloatArray(4) { rotation[it] / norm }
+            )
+        }
+    }
+
+    fun legacyDiffPose(anchorTransform: Pose, cameraTransform: Pose): FMPose {
+        val transferToOpenCVAxis = FMUtility.makeRotation(PI.toFloat(), Vector3(0.0f, 0.0f, 1.0f))
+        val openCVAnchorTransform = anchorTransform.compose(transferToOpenCVAxis)
+        val openCVAnchorTransformInCameraCS = cameraTransform.inverse().compose(openCVAnchorTransform)
+        return FMPose(openCVAnchorTransformInCameraCS)
+    }
+}
@@ -0,0 +1,167 @@
+package com.fantasmo.sdk.network
+
+import android.os.Build
+import android.os.Looper
+import androidx.test.platform.app.InstrumentationRegistry
+import com.sun.net.httpserver.HttpServer
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.net.InetSocketAddress
+import java.util.concurrent.atomic.AtomicInteger
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class FMNetworkEstimatorTest {
+
+    private val n2s = 1_000_000_000L
+
+    private var now = 0L
+    private lateinit var estimator: FMNetworkEstimator
+
+    // Local stand-in for the localize endpoint, answers every upload after `responseDelay` milliseconds,
+    // the first `failingUploads` with a server error
+    private lateinit var server: HttpServer
+    @Volatile
+    private var responseDelay = 0L
+    private val failingUploads = AtomicInteger(0)
+
+    private val url: String
+        get() = "http://127.0.0.1:${server.address.port}/v1/image.localize"
+
+    @Before
+    fun setUp() {
+        now = 0L
+        estimator = FMNetworkEstimator(0.5) { now }
+
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/v1/image.localize") { exchange ->
+            exchange.requestBody.readBytes()
+            val status = if (failingUploads.getAndDecrement() > 0) 503 else 200
+            if (status == 200) {
+                Thread.sleep(responseDelay)
+            }
+            val response = "{}".toByteArray()
+            exchange.sendResponseHeaders(status, response.size.toLong())
+            exchange.responseBody.use { it.write(response) }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.stop(0)
+    }
+
+    @Test
+    fun testNoEstimateBeforeFirstSample() {
+        assertNull(estimator.latency)
+        assertNull(estimator.throughput)
+        assertEquals(0, estimator.sampleCount)
+    }
+
+    @Test
+    fun testFirstSampleSetsEstimate() {
+        val start = estimator.startMeasurement()
+        now += 2 * n2s
+        estimator.addSample(start, 100_000)
+
+        assertEquals(2.0, estimator.latency!!, 1e-9)
+        assertEquals(50_000.0, estimator.throughput!!, 1e-9)
+        assertEquals(1, estimator.sampleCount)
+    }
+
+    @Test
+    fun testSamplesAreSmoothed() {
+        var start = estimator.startMeasurement()
+        now += 2 * n2s
+        estimator.addSample(start, 100_000)
+
+        start = estimator.startMeasurement()
+        now += 1 * n2s
+        estimator.addSample(start, 100_000)
+
+        // halfway between the two samples with a smoothing of 0.5
+        assertEquals(1.5, estimator.latency!!, 1e-9)
+        assertEquals(75_000.0, estimator.throughput!!, 1e-9)
+    }
+
+    @Test
+    fun testIgnoresEmptyMeasurement() {
+        estimator.addSample(estimator.startMeasurement(), 100_000)
+
+        assertNull(estimator.latency)
+        assertEquals(0, estimator.sampleCount)
+    }
+
+    @Test
+    fun testReset() {
+        val start = estimator.startMeasurement()
+        now += n2s
+        estimator.addSample(start, 100_000)
+        estimator.reset()
+
+        assertNull(estimator.latency)
+        assertNull(estimator.throughput)
+        assertEquals(0, estimator.sampleCount)
+    }
+
+    // Volley delivers responses on the main looper
+    private fun await(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 10_000
+        while (!condition()) {
+            assertTrue("Timed out waiting for the upload", System.currentTimeMillis() < deadline)
+            shadowOf(Looper.getMainLooper()).idle()
+            Thread.sleep(10)
+        }
+    }
+
+    private fun upload(
+        networkManager: FMNetworkManager,
+        estimator: FMNetworkEstimator,
+        payload: ByteArray,
+        retryPolicy: FMRetryPolicy = FMRetryPolicy.none
+    ) {
+        var isDone = false
+        networkManager.uploadImage(
+            url, payload, hashMapOf(), "API_KEY",
+            { isDone = true },
+            { fail("Upload failed with ${it.message}") },
+            retryPolicy = retryPolicy,
+            estimator = estimator
+        )
+        await { isDone }
+    }
+
+    @Test
+    fun testMeasuresUploadsToServer() {
+        val networkManager = FMNetworkManager(InstrumentationRegistry.getInstrumentation().context)
+        val liveEstimator = FMNetworkEstimator()
+        val payload = ByteArray(200_000)
+        responseDelay = 200
+
+        repeat(3) { upload(networkManager, liveEstimator, payload) }
+
+        assertEquals(3, liveEstimator.sampleCount)
+        assertTrue(liveEstimator.latency!! >= 0.2)
+        assertTrue(liveEstimator.throughput!! <= payload.size / 0.2)
+    }
+
+    @Test
+    fun testMeasuresOnlyTheSuccessfulAttempt() {
+        val networkManager = FMNetworkManager(InstrumentationRegistry.getInstrumentation().context)
+        val liveEstimator = FMNetworkEstimator()
+        failingUploads.set(1)
+
+        // the retry waits at least a second, which must not count as upload time
+        upload(networkManager, liveEstimator, ByteArray(1_000), FMRetryPolicy(1, 2_000, 2_000))
+
+        assertEquals(1, liveEstimator.sampleCount)
+        assertTrue(liveEstimator.latency!! < 1.0)
+    }
+}
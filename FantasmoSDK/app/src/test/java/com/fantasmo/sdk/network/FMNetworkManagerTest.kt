@@ -89,6 +89,16 @@ class FMNetworkManagerTest {
         Assert.assertEquals(fmZone.zoneType, geofence.elementType)
     }
 
+    @Test
+    fun testUploadTimeoutFollowsThroughput() {
+        // unknown or fast network: Volley's default timeout, longer for each retry
+        Assert.assertEquals(2500, fmNetworkManager.uploadTimeoutMillis(100_000, null, 1))
+        Assert.assertEquals(5000, fmNetworkManager.uploadTimeoutMillis(100_000, 1_000_000.0, 2))
+        // 200 kB at 50 kB/s takes 4 s, the attempt gets twice that
+        Assert.assertEquals(8000, fmNetworkManager.uploadTimeoutMillis(200_000, 50_000.0, 1))
+        Assert.assertEquals(30_000, fmNetworkManager.uploadTimeoutMillis(200_000, 10_000.0, 3))
+    }
+
     @Test
     fun testUploadImage() {
         fmNetworkManager.uploadImage(
@@ -0,0 +1,150 @@
+package com.fantasmo.sdk.network
+
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class FMOfflineQueueTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var file: File
+
+    // Uuids of the entries the queue handed to `send`, in order, HTTP replay is covered by `FMOfflineUploaderTest`
+    private val received = mutableListOf<String>()
+    private val failingUuids = mutableSetOf<String>()
+
+    private val url = "https://api.fantasmo.io/v2/session.analytics"
+
+    @Before
+    fun setUp() {
+        file = File(tempFolder.root, "offline_queue.jsonl")
+        received.clear()
+        failingUuids.clear()
+    }
+
+    private fun entry(uuid: String): FMOfflineQueue.Entry {
+        val body = "{\"localizationSessionId\":\"$uuid\"}"
+        return FMOfflineQueue.Entry(uuid, url, body)
+    }
+
+    private fun send(entry: FMOfflineQueue.Entry): Boolean {
+        if (entry.uuid in failingUuids) {
+            return false
+        }
+        received.add(entry.uuid)
+        return true
+    }
+
+    @Test
+    fun testReplaysInOrder() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        val uuids = (1..5).map { "session-$it" }
+        uuids.forEach { assertTrue(queue.enqueue(entry(it))) }
+
+        val sent = queue.drain(2) { send(it) }
+
+        assertEquals(5, sent)
+        assertEquals(uuids, received)
+        assertEquals(0, queue.size)
+        assertEquals(0L, queue.sizeInBytes)
+        assertEquals(0, FMOfflineQueue(file, 64 * 1024L).size)
+    }
+
+    @Test
+    fun testDeduplicatesByUuid() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        assertTrue(queue.enqueue(entry("session-1")))
+        assertFalse(queue.enqueue(entry("session-1")))
+        assertTrue(queue.enqueue(entry("session-2")))
+
+        assertEquals(2, queue.size)
+
+        val reloaded = FMOfflineQueue(file, 64 * 1024L)
+        assertFalse(reloaded.enqueue(entry("session-2")))
+        reloaded.drain(10) { send(it) }
+
+        assertEquals(listOf("session-1", "session-2"), received)
+    }
+
+    @Test
+    fun testReplacesRequestWithSameUuid() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        queue.enqueue(entry("session-1"))
+        queue.enqueue(entry("session-2"))
+
+        val complete = FMOfflineQueue.Entry("session-1", url, "{\"localizationSessionId\":\"session-1\",\"frames\":12}")
+        assertTrue(queue.enqueue(complete))
+
+        assertEquals(listOf(complete, entry("session-2")), queue.peek(10))
+        assertEquals(file.length(), queue.sizeInBytes)
+        assertEquals(listOf(complete, entry("session-2")), FMOfflineQueue(file, 64 * 1024L).peek(10))
+    }
+
+    @Test
+    fun testPersistsAcrossInstances() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        (1..3).forEach { queue.enqueue(entry("session-$it")) }
+
+        val reloaded = FMOfflineQueue(file, 64 * 1024L)
+
+        assertEquals(3, reloaded.size)
+        assertEquals(queue.sizeInBytes, reloaded.sizeInBytes)
+        assertEquals(listOf("session-1", "session-2", "session-3"), reloaded.peek(10).map { it.uuid })
+    }
+
+    @Test
+    fun testSizeCapDropsOldest() {
+        val entrySize = FMOfflineQueue(File(tempFolder.root, "probe.jsonl"), 64 * 1024L).run {
+            enqueue(entry("session-0"))
+            sizeInBytes
+        }
+        val maxBytes = entrySize * 3
+        val queue = FMOfflineQueue(file, maxBytes)
+        (1..5).forEach { queue.enqueue(entry("session-$it")) }
+
+        assertEquals(3, queue.size)
+        assertTrue(queue.sizeInBytes <= maxBytes)
+        assertTrue(file.length() <= maxBytes)
+        assertEquals(listOf("session-3", "session-4", "session-5"), queue.peek(10).map { it.uuid })
+    }
+
+    @Test
+    fun testRejectsEntryLargerThanQueue() {
+        val queue = FMOfflineQueue(file, 16)
+
+        assertFalse(queue.enqueue(entry("session-1")))
+        assertEquals(0, queue.size)
+    }
+
+    @Test
+    fun testStopsAtFailureAndKeepsOrder() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        (1..5).forEach { queue.enqueue(entry("session-$it")) }
+        failingUuids.add("session-3")
+
+        val sent = queue.drain(2) { send(it) }
+
+        assertEquals(2, sent)
+        assertEquals(listOf("session-1", "session-2"), received)
+        assertEquals(listOf("session-3", "session-4", "session-5"), queue.peek(10).map { it.uuid })
+
+        failingUuids.clear()
+        queue.drain(2) { send(it) }
+
+        assertEquals((1..5).map { "session-$it" }, received)
+        assertEquals(0, queue.size)
+    }
+
+    @Test
+    fun testDoesNotPersistApiKey() {
+        val queue = FMOfflineQueue(file, 64 * 1024L)
+        queue.enqueue(entry("session-1"))
+
+        assertFalse(file.readText().contains("token"))
+    }
+}
@@ -0,0 +1,151 @@
+package com.fantasmo.sdk.network
+
+import android.os.Build
+import android.os.Looper
+import androidx.test.platform.app.InstrumentationRegistry
+import com.sun.net.httpserver.HttpServer
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.io.File
+import java.net.InetSocketAddress
+import java.util.Collections
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class FMOfflineUploaderTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var uploader: FMOfflineUploader
+
+    // Local stand-in for the analytics endpoint, records the sessions it accepts and the keys they came with
+    private lateinit var server: HttpServer
+    private val received: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val keys: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val failingUuids: MutableSet<String> = Collections.synchronizedSet(mutableSetOf())
+    private val rejectedUuids: MutableSet<String> = Collections.synchronizedSet(mutableSetOf())
+    @Volatile
+    private var attempts = 0
+
+    private val url: String
+        get() = "http://127.0.0.1:${server.address.port}/v2/session.analytics"
+
+    @Before
+    fun setUp() {
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/v2/session.analytics") { exchange ->
+            val body = JSONObject(String(exchange.requestBody.readBytes()))
+            val uuid = body.getString("localizationSessionId")
+            val status = when (uuid) {
+                in failingUuids -> 503
+                in rejectedUuids -> 400
+                else -> 200
+            }
+            if (status == 200) {
+                received.add(uuid)
+                keys.add(exchange.requestHeaders.getFirst("Fantasmo-Key"))
+            }
+            attempts++
+            val response = "{}".toByteArray()
+            exchange.sendResponseHeaders(status, response.size.toLong())
+            exchange.responseBody.use { it.write(response) }
+        }
+        server.start()
+
+        val context = InstrumentationRegistry.getInstrumentation().context
+        uploader = FMOfflineUploader(context, File(tempFolder.root, "offline_queue.jsonl"))
+    }
+
+    @After
+    fun tearDown() {
+        server.stop(0)
+    }
+
+    private fun enqueue(uuid: String, token: String = "key-1") {
+        uploader.enqueue(uuid, url, "{\"localizationSessionId\":\"$uuid\"}", token)
+    }
+
+    // Volley delivers responses on the main looper, which the blocked replay waits for
+    private fun await(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 10_000
+        while (!condition()) {
+            assertTrue("Timed out waiting for the replay", System.currentTimeMillis() < deadline)
+            shadowOf(Looper.getMainLooper()).idle()
+            Thread.sleep(10)
+        }
+    }
+
+    @Test
+    fun testReplaysInOrderWithCurrentKey() {
+        (1..3).forEach { enqueue("session-$it") }
+
+        uploader.drain("key-2")
+        await { uploader.queuedCount == 0 && received.size == 3 }
+
+        assertEquals((1..3).map { "session-$it" }, received)
+        assertEquals(listOf("key-2", "key-2", "key-2"), keys)
+    }
+
+    @Test
+    fun testKeepsRequestsUntilServerRecovers() {
+        (1..3).forEach { enqueue("session-$it") }
+        failingUuids.add("session-2")
+
+        uploader.drain()
+        await { attempts == 2 }
+        await { uploader.queuedCount == 2 }
+
+        assertEquals(listOf("session-1"), received)
+
+        failingUuids.clear()
+        uploader.drain()
+        await { uploader.queuedCount == 0 && received.size == 3 }
+
+        assertEquals((1..3).map { "session-$it" }, received)
+    }
+
+    @Test
+    fun testDiscardsRejectedRequests() {
+        (1..3).forEach { enqueue("session-$it") }
+        rejectedUuids.add("session-2")
+
+        uploader.drain()
+        await { uploader.queuedCount == 0 && received.size == 2 }
+
+        assertEquals(listOf("session-1", "session-3"), received)
+        assertEquals(3, attempts)
+    }
+
+    @Test
+    fun testWaitsForKeyBeforeReplaying() {
+        val context = InstrumentationRegistry.getInstrumentation().context
+        val file = File(tempFolder.root, "previous_run.jsonl")
+        FMOfflineQueue(file, 64 * 1024L).enqueue(
+            FMOfflineQueue.Entry("session-1", url, "{\"localizationSessionId\":\"session-1\"}")
+        )
+
+        // requests left from a previous run don't keep the key they were queued with
+        val restarted = FMOfflineUploader(context, file)
+        restarted.drain()
+        Thread.sleep(200)
+        shadowOf(Looper.getMainLooper()).idle()
+
+        assertEquals(0, attempts)
+        assertEquals(1, restarted.queuedCount)
+
+        restarted.drain("key-2")
+        await { restarted.queuedCount == 0 && received.size == 1 }
+
+        assertEquals(listOf("key-2"), keys)
+    }
+}
@@ -0,0 +1,72 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.FMUtility
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class FMRetryPolicyTest {
+
+    @Test
+    fun testDelayGrowsExponentiallyWithJitter() {
+        val policy = FMRetryPolicy(5, 100, 1000, Random(42))
+
+        repeat(100) {
+            assertTrue(policy.delayMillis(1) in 50..100)
+            assertTrue(policy.delayMillis(2) in 100..200)
+            assertTrue(policy.delayMillis(3) in 200..400)
+        }
+    }
+
+    @Test
+    fun testDelayIsCapped() {
+        val policy = FMRetryPolicy(50, 100, 1000, Random(42))
+
+        repeat(100) {
+            assertTrue(policy.delayMillis(10) in 500..1000)
+            assertTrue(policy.delayMillis(50) in 500..1000)
+        }
+    }
+
+    @Test
+    fun testJitterSpreadsDelays() {
+        val policy = FMRetryPolicy(2, 1000, 1000, Random(42))
+
+        val delays = List(20) { policy.delayMillis(1) }.toSet()
+
+        assertTrue(delays.size > 1)
+    }
+
+    @Test
+    fun testMakeUsesDefaultsForMissingConfig() {
+        val policy = FMRetryPolicy.make(null, null)
+
+        assertEquals(FMUtility.Constants.LocalizeMaxRetries, policy.maxRetries)
+        assertEquals(FMUtility.Constants.LocalizeRetryBaseDelay, policy.baseDelayMillis)
+
+        val configured = FMRetryPolicy.make(0, 0.5f)
+
+        assertEquals(0, configured.maxRetries)
+        assertEquals(500L, configured.baseDelayMillis)
+    }
+
+    @Test
+    fun testBudgetAllowsRatioOfRequests() {
+        val budget = FMRetryBudget(0.5, 0.0, 10.0)
+
+        assertFalse(budget.tryWithdraw())
+        budget.deposit()
+        assertFalse(budget.tryWithdraw())
+        budget.deposit()
+        assertTrue(budget.tryWithdraw())
+        assertFalse(budget.tryWithdraw())
+    }
+
+    @Test
+    fun testBudgetIsCapped() {
+        val budget = FMRetryBudget(1.0, 2.0, 3.0)
+        repeat(10) { budget.deposit() }
+
+        assertEquals(3.0, budget.balance, 1e-9)
+    }
+}
@@ -0,0 +1,210 @@
+package com.fantasmo.sdk.network
+
+import com.sun.net.httpserver.HttpServer
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.InetSocketAddress
+import java.net.URL
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+
+class FMRetryingCallTest {
+
+    /**
+     * Behavior of the stand-in server for one request.
+     */
+    private class Fault(val status: Int, val delayMillis: Long = 0)
+
+    // Local stand-in for the localize endpoint, answers requests following `faults` in order,
+    // requests past the end of the list succeed right away
+    private lateinit var server: HttpServer
+    private val faults = mutableListOf<Fault>()
+    private val requestCount = AtomicInteger(0)
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor()
+    private val attemptExecutor = Executors.newCachedThreadPool()
+
+    @Before
+    fun setUp() {
+        faults.clear()
+        requestCount.set(0)
+
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.executor = Executors.newCachedThreadPool()
+        server.createContext("/v1/image.localize") { exchange ->
+            val index = requestCount.getAndIncrement()
+            val fault = synchronized(faults) { faults.getOrNull(index) } ?: Fault(200)
+            exchange.requestBody.readBytes()
+            try {
+                Thread.sleep(fault.delayMillis)
+                val response = "{}".toByteArray()
+                exchange.sendResponseHeaders(fault.status, response.size.toLong())
+                exchange.responseBody.use { it.write(response) }
+            } catch (e: Exception) {
+                exchange.close()
+            }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.stop(0)
+        scheduler.shutdownNow()
+        attemptExecutor.shutdownNow()
+    }
+
+    /**
+     * Sends one attempt to the stand-in server, reporting the status code of failed attempts
+     * or -1 if the connection failed.
+     */
+    private fun attempt(onSuccess: (Int) -> Unit, onFailure: (Int) -> Unit): () -> Unit {
+        val connection = URL("http://127.0.0.1:${server.address.port}/v1/image.localize")
+            .openConnection() as HttpURLConnection
+        val future = attemptExecutor.submit {
+            try {
+                connection.requestMethod = "POST"
+                connection.doOutput = true
+                connection.outputStream.use { it.write(ByteArray(1024)) }
+                val status = connection.responseCode
+                if (status == 200) onSuccess(status) else onFailure(status)
+            } catch (e: IOException) {
+                onFailure(-1)
+            }
+        }
+        return {
+            future.cancel(true)
+            connection.disconnect()
+        }
+    }
+
+    private class Outcome {
+        val latch = CountDownLatch(1)
+        var success: Int? = null
+        var failure: Int? = null
+        val callbacks = AtomicInteger(0)
+    }
+
+    private fun run(
+        policy: FMRetryPolicy,
+        budget: FMRetryBudget = FMRetryBudget(1.0, 10.0, 10.0),
+        hedgeAfterMillis: Long? = null
+    ): Pair<FMRetryingCall<Int, Int>, Outcome> {
+        val outcome = Outcome()
+        val call = FMRetryingCall<Int, Int>(
+            policy,
+            budget,
+            scheduler,
+            hedgeAfterMillis,
+            { it < 0 || it >= 500 },
+            { onSuccess, onFailure -> attempt(onSuccess, onFailure) }
+        )
+        call.start(
+            {
+                outcome.success = it
+                outcome.callbacks.incrementAndGet()
+                outcome.latch.countDown()
+            },
+            {
+                outcome.failure = it
+                outcome.callbacks.incrementAndGet()
+                outcome.latch.countDown()
+            })
+        assertTrue(outcome.latch.await(10, TimeUnit.SECONDS))
+        return Pair(call, outcome)
+    }
+
+    @Test
+    fun testRetriesTransientServerErrors() {
+        faults.addAll(listOf(Fault(503), Fault(500)))
+
+        val (call, outcome) = run(FMRetryPolicy(2, 10, 100))
+
+        assertEquals(200, outcome.success)
+        assertEquals(3, call.attempts)
+        assertEquals(1, outcome.callbacks.get())
+    }
+
+    @Test
+    fun testGivesUpAfterMaxRetries() {
+        faults.addAll(listOf(Fault(503), Fault(503), Fault(503), Fault(503)))
+
+        val (call, outcome) = run(FMRetryPolicy(2, 10, 100))
+
+        assertEquals(503, outcome.failure)
+        assertEquals(3, call.attempts)
+    }
+
+    @Test
+    fun testDoesNotRetryClientErrors() {
+        faults.add(Fault(400))
+
+        val (call, outcome) = run(FMRetryPolicy(2, 10, 100))
+
+        assertEquals(400, outcome.failure)
+        assertEquals(1, call.attempts)
+    }
+
+    @Test
+    fun testBudgetLimitsRetries() {
+        faults.addAll(listOf(Fault(503), Fault(503)))
+        val budget = FMRetryBudget(0.0, 1.0, 1.0)
+
+        val (call, outcome) = run(FMRetryPolicy(2, 10, 100), budget)
+
+        assertEquals(503, outcome.failure)
+        assertEquals(2, call.attempts)
+        assertFalse(budget.tryWithdraw())
+    }
+
+    @Test
+    fun testHedgingCutsTailLatency() {
+        faults.add(Fault(200, 2000))
+        var start = System.nanoTime()
+        val (_, slowOutcome) = run(FMRetryPolicy.none)
+        val unhedgedMillis = (System.nanoTime() - start) / 1_000_000
+
+        requestCount.set(0)
+        start = System.nanoTime()
+        val (hedgedCall, hedgedOutcome) = run(FMRetryPolicy.none, hedgeAfterMillis = 100)
+        val hedgedMillis = (System.nanoTime() - start) / 1_000_000
+
+        assertEquals(200, slowOutcome.success)
+        assertEquals(200, hedgedOutcome.success)
+        assertEquals(2, hedgedCall.attempts)
+        assertTrue(unhedgedMillis >= 2000)
+        assertTrue(hedgedMillis < 1000)
+    }
+
+    @Test
+    fun testNoHedgeWhenFirstAttemptIsFast() {
+        val (call, outcome) = run(FMRetryPolicy.none, hedgeAfterMillis = 1000)
+
+        assertEquals(200, outcome.success)
+        assertEquals(1, call.attempts)
+    }
+
+    @Test
+    fun testCancelStopsCallbacks() {
+        faults.add(Fault(200, 1000))
+        var callbacks = 0
+        val call = FMRetryingCall<Int, Int>(
+            FMRetryPolicy(2, 10, 100),
+            FMRetryBudget(1.0, 10.0, 10.0),
+            scheduler,
+            null,
+            { true },
+            { onSuccess, onFailure -> attempt(onSuccess, onFailure) }
+        )
+        call.start({ callbacks++ }, { callbacks++ })
+        call.cancel()
+        Thread.sleep(1500)
+
+        assertEquals(0, callbacks)
+        assertEquals(1, call.attempts)
+    }
+}
@@ -0,0 +1,98 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.FMUtility
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+
+class FMUploadPolicyTest {
+
+    private val n2s = 1_000_000_000L
+
+    private var now = 0L
+    private lateinit var estimator: FMNetworkEstimator
+
+    @Before
+    fun setUp() {
+        now = 0L
+        estimator = FMNetworkEstimator { now }
+    }
+
+    private fun addUpload(seconds: Double, bytes: Int = 300_000) {
+        val start = estimator.startMeasurement()
+        now += (seconds * n2s).toLong()
+        estimator.addSample(start, bytes)
+    }
+
+    @Test
+    fun testWifiUsesDefaultPolicy() {
+        val policy = FMUploadPolicy.make(FMNetworkClass.WIFI, estimator)
+
+        assertEquals(FMUploadPolicy.default, policy)
+        assertEquals(FMUtility.Constants.JpegCompressionRatio, policy.jpegQuality)
+    }
+
+    @Test
+    fun testMeteredNetworkUploadsLess() {
+        val wifi = FMUploadPolicy.make(FMNetworkClass.WIFI, estimator)
+        val cellular = FMUploadPolicy.make(FMNetworkClass.CELLULAR, estimator)
+        val metered = FMUploadPolicy.make(FMNetworkClass.METERED, estimator)
+
+        assertTrue(cellular.jpegQuality < wifi.jpegQuality)
+        assertTrue(cellular.windowTimeScale > wifi.windowTimeScale)
+        assertTrue(metered.jpegQuality <= cellular.jpegQuality)
+        assertEquals(1, metered.maxConcurrentUploads)
+        assertTrue(metered.windowTimeScale > cellular.windowTimeScale)
+    }
+
+    @Test
+    fun testHedgingOnlyOnUnmeteredNetworks() {
+        assertTrue(FMUploadPolicy.make(FMNetworkClass.WIFI, estimator).allowsHedging)
+        assertFalse(FMUploadPolicy.make(FMNetworkClass.CELLULAR, estimator).allowsHedging)
+        assertFalse(FMUploadPolicy.make(FMNetworkClass.METERED, estimator).allowsHedging)
+    }
+
+    @Test
+    fun testSlowUploadsDowngradePolicy() {
+        addUpload(4.0)
+
+        val policy = FMUploadPolicy.make(FMNetworkClass.WIFI, estimator)
+
+        assertEquals(1, policy.maxConcurrentUploads)
+        assertTrue(policy.jpegQuality < FMUtility.Constants.JpegCompressionRatio)
+        assertTrue(policy.windowTimeScale > 1.0f)
+    }
+
+    @Test
+    fun testHighLatencyKeepsImageQuality() {
+        // slow server but fast network, 400 KB/s
+        addUpload(2.5, 1_000_000)
+
+        val policy = FMUploadPolicy.make(FMNetworkClass.WIFI, estimator)
+
+        assertEquals(1, policy.maxConcurrentUploads)
+        assertTrue(policy.windowTimeScale > 1.0f)
+        assertEquals(FMUtility.Constants.JpegCompressionRatio, policy.jpegQuality)
+    }
+
+    @Test
+    fun testLowThroughputReducesImageQuality() {
+        // quick answer for a small image, but only 100 KB/s
+        addUpload(1.0, 100_000)
+
+        val policy = FMUploadPolicy.make(FMNetworkClass.WIFI, estimator)
+
+        assertTrue(policy.jpegQuality < FMUtility.Constants.JpegCompressionRatio)
+        assertEquals(FMUtility.Constants.MaxConcurrentUploads, policy.maxConcurrentUploads)
+        assertEquals(1.0f, policy.windowTimeScale)
+    }
+
+    @Test
+    fun testFastUploadsKeepPolicy() {
+        addUpload(0.5)
+
+        val policy = FMUploadPolicy.make(FMNetworkClass.CELLULAR, estimator)
+
+        assertEquals(FMUtility.Constants.MaxConcurrentUploads, policy.maxConcurrentUploads)
+    }
+}
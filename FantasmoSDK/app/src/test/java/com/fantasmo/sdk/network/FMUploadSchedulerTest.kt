@@ -0,0 +1,148 @@
+package com.fantasmo.sdk.network
+
+import com.fantasmo.sdk.models.FMFrame
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+
+class FMUploadSchedulerTest {
+
+    private val n2s = 1_000_000_000L
+
+    private var now = 0L
+    private val started = mutableListOf<FMFrame>()
+    private val cancelled = mutableListOf<FMFrame>()
+    private val droppedFrames = mutableListOf<FMFrame>()
+    private var lastStatus: FMUploadStatus? = null
+
+    private lateinit var scheduler: FMUploadScheduler
+
+    private val listener = object : FMUploadSchedulerListener {
+        override fun startUpload(frame: FMFrame) {
+            started.add(frame)
+        }
+
+        override fun cancelUpload(frame: FMFrame) {
+            cancelled.add(frame)
+        }
+
+        override fun dropFrame(frame: FMFrame) {
+            droppedFrames.add(frame)
+        }
+
+        override fun didUpdateUploadStatus(status: FMUploadStatus) {
+            lastStatus = status
+        }
+    }
+
+    private fun makeFrames(count: Int): List<FMFrame> {
+        return List(count) { index ->
+            val frame = mock(FMFrame::class.java)
+            `when`(frame.timestamp).thenReturn(index.toLong() + 1)
+            frame
+        }
+    }
+
+    @Before
+    fun setUp() {
+        now = 0L
+        started.clear()
+        cancelled.clear()
+        droppedFrames.clear()
+        lastStatus = null
+        scheduler = FMUploadScheduler(2, 5.0, listener) { now }
+    }
+
+    @Test
+    fun testStartsUploadsUpToLimit() {
+        val frames = makeFrames(3)
+        frames.forEach { scheduler.submit(it) }
+
+        assertEquals(frames.take(2), started)
+        assertEquals(FMUploadStatus(2, 1, 0), lastStatus)
+    }
+
+    @Test
+    fun testLatestQueuedFrameWins() {
+        val frames = makeFrames(4)
+        frames.forEach { scheduler.submit(it) }
+        assertEquals(FMUploadStatus(2, 1, 1), lastStatus)
+
+        assertTrue(scheduler.finish(frames[0]))
+
+        assertEquals(listOf(frames[0], frames[1], frames[3]), started)
+        assertEquals(listOf(frames[2]), droppedFrames)
+        assertEquals(FMUploadStatus(2, 0, 1), lastStatus)
+    }
+
+    @Test
+    fun testExpiresStaleUploads() {
+        val frames = makeFrames(3)
+        frames.forEach { scheduler.submit(it) }
+
+        now = 6 * n2s
+        scheduler.expireStaleUploads()
+
+        assertEquals(frames.take(2).toSet(), cancelled.toSet())
+        // queued frame waited past the deadline too, so it is dropped instead of uploaded
+        assertEquals(frames.take(2), started)
+        assertEquals(listOf(frames[2]), droppedFrames)
+        assertEquals(FMUploadStatus(0, 0, 3), lastStatus)
+        assertFalse(scheduler.finish(frames[0]))
+    }
+
+    @Test
+    fun testQueuedFrameStartsWithinDeadline() {
+        val frames = makeFrames(3)
+        frames.forEach { scheduler.submit(it) }
+
+        now = 2 * n2s
+        scheduler.finish(frames[1])
+
+        assertEquals(frames, started)
+        assertEquals(listOf(frames[0], frames[2]), scheduler.inFlightFrames)
+    }
+
+    @Test
+    fun testConcurrentSubmitAndFinishKeepsLimit() {
+        var maxObserved = 0
+        val concurrentScheduler = FMUploadScheduler(2, 5.0, object : FMUploadSchedulerListener {
+            override fun startUpload(frame: FMFrame) {}
+            override fun cancelUpload(frame: FMFrame) {}
+            override fun dropFrame(frame: FMFrame) {}
+            override fun didUpdateUploadStatus(status: FMUploadStatus) {
+                synchronized(this) { maxObserved = maxOf(maxObserved, status.inFlight) }
+            }
+        }) { now }
+        val frames = makeFrames(400)
+        val threads = frames.chunked(100).map { chunk ->
+            Thread {
+                chunk.forEach {
+                    concurrentScheduler.submit(it)
+                    concurrentScheduler.finish(it)
+                }
+            }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertTrue(maxObserved <= 2)
+        assertTrue(concurrentScheduler.inFlightCount <= 2)
+    }
+
+    @Test
+    fun testReset() {
+        val frames = makeFrames(3)
+        frames.forEach { scheduler.submit(it) }
+        scheduler.reset()
+
+        // every frame the scheduler held is handed back so it can be released
+        assertEquals(frames.toSet(), droppedFrames.toSet())
+        assertFalse(scheduler.finish(frames[0]))
+        assertEquals(0, scheduler.inFlightCount)
+        assertEquals(0, scheduler.queuedCount)
+        assertEquals(0, scheduler.droppedCount)
+    }
+}
@@ -0,0 +1,84 @@
+package com.fantasmo.sdk.utilities
+
+import android.media.Image
+import android.os.Build
+import com.google.ar.core.Frame
+import com.google.ar.core.exceptions.NotYetAvailableException
+import org.junit.Assert.*
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.*
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.nio.ByteBuffer
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class CameraImageReaderTest {
+
+    private val reader = CameraImageReader(2)
+
+    private fun plane(size: Int): Image.Plane {
+        val plane = mock(Image.Plane::class.java)
+        `when`(plane.buffer).thenReturn(ByteBuffer.allocate(size))
+        return plane
+    }
+
+    private fun frameWithImage(image: Image): Frame {
+        val frame = mock(Frame::class.java)
+        `when`(frame.acquireCameraImage()).thenReturn(image)
+        return frame
+    }
+
+    @Test
+    fun testReleasesAcquiredImage() {
+        val image = mock(Image::class.java)
+        val planes = arrayOf(plane(16), plane(8), plane(8))
+        `when`(image.planes).thenReturn(planes)
+        `when`(image.width).thenReturn(4)
+        `when`(image.height).thenReturn(4)
+
+        val yuvImage = reader.read(frameWithImage(image))
+
+        verify(image).close()
+        val statistics = reader.statistics
+        assertEquals(1, statistics.attempts)
+        assertEquals(1, statistics.acquired)
+        assertEquals(1, statistics.retainedImages)
+        assertTrue(statistics.maxLatency >= statistics.averageLatency)
+
+        reader.releaseBuffer(yuvImage!!.yuvData)
+        assertEquals(0, reader.statistics.retainedImages)
+    }
+
+    @Test
+    fun testReleasesImageWhenCopyFails() {
+        val image = mock(Image::class.java)
+        `when`(image.planes).thenThrow(IllegalStateException("Image is already closed"))
+
+        assertThrows(IllegalStateException::class.java) {
+            reader.read(frameWithImage(image))
+        }
+
+        verify(image).close()
+    }
+
+    @Test
+    fun testCountsUnavailableImages() {
+        val frame = mock(Frame::class.java)
+        `when`(frame.acquireCameraImage()).thenThrow(NotYetAvailableException())
+
+        assertNull(reader.read(frame))
+        assertNull(reader.read(frame))
+
+        val statistics = reader.statistics
+        assertEquals(2, statistics.attempts)
+        assertEquals(0, statistics.acquired)
+        assertEquals(2, statistics.notYetAvailable)
+        assertEquals(1.0, statistics.notYetAvailableRate, 0.0)
+        assertEquals(0.0, statistics.averageLatency, 0.0)
+
+        reader.reset()
+        assertEquals(0, reader.statistics.attempts)
+    }
+}
@@ -0,0 +1,47 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class ConcurrentRingBufferTest {
+
+    @Test
+    fun testKeepsLastElements() {
+        val buffer = ConcurrentRingBuffer<Int>(3)
+        assertNull(buffer.last)
+
+        (1..5).forEach { buffer.add(it) }
+
+        assertEquals(listOf(3, 4, 5), buffer.toList())
+        assertEquals(3, buffer.size)
+        assertEquals(5, buffer.totalCount)
+        assertEquals(5, buffer.last)
+    }
+
+    @Test
+    fun testClear() {
+        val buffer = ConcurrentRingBuffer<Int>(3)
+        (1..2).forEach { buffer.add(it) }
+        buffer.clear()
+
+        assertEquals(0, buffer.totalCount)
+        assertTrue(buffer.toList().isEmpty())
+    }
+
+    @Test
+    fun testConcurrentWriters() {
+        val buffer = ConcurrentRingBuffer<Int>(16)
+        val threads = List(4) { thread ->
+            Thread {
+                for (i in 0 until 1000) {
+                    buffer.add(thread * 1000 + i)
+                }
+            }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertEquals(4000, buffer.totalCount)
+        assertEquals(16, buffer.toList().size)
+    }
+}
@@ -0,0 +1,85 @@
+package com.fantasmo.sdk.utilities
+
+import android.content.Context
+import android.hardware.camera2.CameraManager
+import android.hardware.display.DisplayManager
+import android.view.Display
+import android.view.Surface
+import android.view.WindowManager
+import com.fantasmo.sdk.views.common.helpers.DisplayRotationHelper
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.*
+
+class DisplayRotationStateTest {
+
+    private val context = mock(Context::class.java)
+    private val windowManager = mock(WindowManager::class.java)
+    private val display = mock(Display::class.java)
+
+    @Before
+    fun setUp() {
+        DisplayRotationState.invalidate()
+        `when`(context.getSystemService(Context.WINDOW_SERVICE)).thenReturn(windowManager)
+        `when`(context.getSystemService(Context.DISPLAY_SERVICE))
+            .thenReturn(mock(DisplayManager::class.java))
+        `when`(context.getSystemService(Context.CAMERA_SERVICE))
+            .thenReturn(mock(CameraManager::class.java))
+        `when`(windowManager.defaultDisplay).thenReturn(display)
+        `when`(display.rotation).thenReturn(Surface.ROTATION_90)
+    }
+
+    @After
+    fun tearDown() {
+        DisplayRotationState.invalidate()
+    }
+
+    @Test
+    fun testQueriesSystemUntilRotationIsPublished() {
+        repeat(3) {
+            assertEquals(Surface.ROTATION_90, DisplayRotationState.getRotation(context))
+        }
+
+        verify(context, times(3)).getSystemService(Context.WINDOW_SERVICE)
+    }
+
+    @Test
+    fun testNoSystemServiceCallsPerFrame() {
+        val helper = DisplayRotationHelper(context)
+        helper.onResume()
+        clearInvocations(context, windowManager, display)
+
+        repeat(1000) {
+            assertEquals(Surface.ROTATION_90, DisplayRotationState.getRotation(context))
+        }
+
+        verify(context, never()).getSystemService(anyString())
+        verifyNoInteractions(windowManager)
+        verifyNoInteractions(display)
+    }
+
+    @Test
+    fun testDisplayChangeUpdatesRotation() {
+        val helper = DisplayRotationHelper(context)
+        helper.onResume()
+
+        `when`(display.rotation).thenReturn(Surface.ROTATION_270)
+        helper.onDisplayChanged(0)
+
+        assertEquals(Surface.ROTATION_270, DisplayRotationState.getRotation(context))
+    }
+
+    @Test
+    fun testPauseFallsBackToSystem() {
+        val helper = DisplayRotationHelper(context)
+        helper.onResume()
+        helper.onPause()
+
+        `when`(display.rotation).thenReturn(Surface.ROTATION_180)
+
+        assertEquals(Surface.ROTATION_180, DisplayRotationState.getRotation(context))
+    }
+}
@@ -0,0 +1,71 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class ImageBufferPoolTest {
+
+    @Test
+    fun testBufferIsNotReusedBeforeRelease() {
+        val pool = ImageBufferPool(2)
+        val buffer = pool.acquire(16)
+        val other = pool.acquire(16)
+
+        assertEquals(2, pool.allocations)
+        assertEquals(2, pool.outstanding)
+        assertNotSame(buffer, other)
+        assertEquals(16, buffer.size)
+    }
+
+    @Test
+    fun testReleasedBufferIsReused() {
+        val pool = ImageBufferPool(2)
+        val buffer = pool.acquire(16)
+
+        pool.release(buffer)
+
+        assertEquals(0, pool.outstanding)
+        assertSame(buffer, pool.acquire(16))
+        assertEquals(1, pool.allocations)
+        assertEquals(1, pool.outstanding)
+    }
+
+    @Test
+    fun testBuffersAreReusedForTheirSizeOnly() {
+        val pool = ImageBufferPool(2)
+        val image = pool.acquire(16)
+        val copy = pool.acquire(4)
+        pool.release(image)
+        pool.release(copy)
+
+        assertSame(copy, pool.acquire(4))
+        assertSame(image, pool.acquire(16))
+        assertEquals(32, pool.acquire(32).size)
+        assertEquals(3, pool.allocations)
+    }
+
+    @Test
+    fun testFreeBuffersAreCapped() {
+        val pool = ImageBufferPool(1)
+        val first = pool.acquire(16)
+        val second = pool.acquire(16)
+        pool.release(first)
+        pool.release(second)
+
+        pool.acquire(16)
+        pool.acquire(16)
+
+        assertEquals(3, pool.allocations)
+    }
+
+    @Test
+    fun testTrimDropsFreeBuffers() {
+        val pool = ImageBufferPool(2)
+        pool.release(pool.acquire(16))
+
+        pool.trim()
+        pool.acquire(16)
+
+        assertEquals(2, pool.allocations)
+    }
+}
@@ -0,0 +1,121 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class QRCodeRegionExtractorTest {
+
+    // NV21 image whose luminance encodes the pixel position, y * width + x truncated to a byte
+    private fun makeImage(width: Int, height: Int): ByteArray {
+        val data = ByteArray(width * height * 3 / 2)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                data[y * width + x] = (y * width + x).toByte()
+            }
+        }
+        data.fill(7, width * height, data.size)
+        return data
+    }
+
+    @Test
+    fun testCropsCenter() {
+        val extractor = QRCodeRegionExtractor(0.5f, 1000, 750)
+        val image = makeImage(40, 20)
+
+        extractor.extract(image, 40, 20)
+
+        assertEquals(20, extractor.width)
+        assertEquals(10, extractor.height)
+        assertEquals(1, extractor.step)
+        assertEquals(10, extractor.left)
+        assertEquals(5, extractor.top)
+        for (y in 0 until extractor.height) {
+            for (x in 0 until extractor.width) {
+                assertEquals(
+                    image[(y + 5) * 40 + x + 10],
+                    extractor.data[y * extractor.width + x]
+                )
+            }
+        }
+    }
+
+    @Test
+    fun testDownscalesWideRegions() {
+        val extractor = QRCodeRegionExtractor(1.0f, 16, 12)
+        val image = makeImage(64, 32)
+
+        extractor.extract(image, 64, 32)
+
+        assertEquals(4, extractor.step)
+        assertEquals(16, extractor.width)
+        assertEquals(8, extractor.height)
+        assertEquals(image[4 * 64 + 8], extractor.data[1 * 16 + 2])
+    }
+
+    @Test
+    fun testChromaIsNeutral() {
+        val extractor = QRCodeRegionExtractor(0.5f, 1000, 750)
+
+        extractor.extract(makeImage(40, 20), 40, 20)
+
+        val lumaSize = extractor.width * extractor.height
+        for (i in lumaSize until lumaSize * 3 / 2) {
+            assertEquals(128.toByte(), extractor.data[i])
+        }
+    }
+
+    @Test
+    fun testDownscalesTallRegions() {
+        val extractor = QRCodeRegionExtractor(1.0f, 16, 12)
+
+        extractor.extract(makeImage(64, 64), 64, 0, 0, 24, 48)
+
+        assertEquals(4, extractor.step)
+        assertEquals(6, extractor.width)
+        assertEquals(12, extractor.height)
+    }
+
+    @Test
+    fun testDimensionsAreEven() {
+        val extractor = QRCodeRegionExtractor(0.75f, 1000, 750)
+
+        extractor.extract(makeImage(42, 22), 42, 22)
+
+        assertEquals(0, extractor.width % 2)
+        assertEquals(0, extractor.height % 2)
+    }
+
+    @Test
+    fun testReusesBufferForAnyRegion() {
+        val extractor = QRCodeRegionExtractor(0.5f, 1000, 750)
+        val image = makeImage(40, 20)
+        val buffer = extractor.data
+        assertEquals(1000 * 750 * 3 / 2, buffer.size)
+
+        extractor.extract(image, 40, 20)
+        extractor.extract(image, 40, 2, 3, 12, 8)
+
+        assertSame(buffer, extractor.data)
+        // the luminance of the larger region written before must not leak into the chroma
+        val lumaSize = extractor.width * extractor.height
+        for (i in lumaSize until lumaSize * 3 / 2) {
+            assertEquals(128.toByte(), extractor.data[i])
+        }
+        assertEquals(image[3 * 40 + 2], extractor.data[0])
+    }
+
+    @Test
+    fun testExtractsGivenRegion() {
+        val extractor = QRCodeRegionExtractor(0.5f, 1000, 750)
+        val image = makeImage(40, 20)
+
+        extractor.extract(image, 40, 2, 3, 12, 8)
+
+        assertEquals(12, extractor.width)
+        assertEquals(8, extractor.height)
+        assertEquals(2, extractor.left)
+        assertEquals(3, extractor.top)
+        assertEquals(image[3 * 40 + 2], extractor.data[0])
+        assertEquals(image[10 * 40 + 13], extractor.data[7 * 12 + 11])
+    }
+}
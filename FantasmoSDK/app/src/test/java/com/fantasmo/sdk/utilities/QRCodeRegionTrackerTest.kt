@@ -0,0 +1,80 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class QRCodeRegionTrackerTest {
+
+    @Test
+    fun testNoRegionUntilTracking() {
+        val tracker = QRCodeRegionTracker(0.5f, 10, 3)
+
+        assertNull(tracker.region(1920, 1080))
+    }
+
+    @Test
+    fun testRegionIsPaddedAndClamped() {
+        val tracker = QRCodeRegionTracker(0.5f, 10, 3)
+
+        tracker.update(100, 200, 300, 400)
+        assertArrayEquals(intArrayOf(0, 100, 400, 400), tracker.region(1920, 1080))
+
+        tracker.update(1800, 1000, 1900, 1050)
+        assertArrayEquals(intArrayOf(1750, 975, 170, 100), tracker.region(1920, 1080))
+    }
+
+    @Test
+    fun testMinimumPadding() {
+        val tracker = QRCodeRegionTracker(0.5f, 40, 3)
+
+        tracker.update(500, 500, 520, 520)
+
+        assertArrayEquals(intArrayOf(460, 460, 100, 100), tracker.region(1920, 1080))
+    }
+
+    @Test
+    fun testFallsBackAfterMisses() {
+        val tracker = QRCodeRegionTracker(0.5f, 10, 3)
+        tracker.update(100, 200, 300, 400)
+
+        tracker.miss()
+        tracker.miss()
+        assertTrue(tracker.isTracking)
+        tracker.update(100, 200, 300, 400)
+        tracker.miss()
+        tracker.miss()
+        assertTrue(tracker.isTracking)
+        tracker.miss()
+        assertFalse(tracker.isTracking)
+        assertNull(tracker.region(1920, 1080))
+    }
+
+    @Test
+    fun testTrackedRegionDecodesWithFewerPixels() {
+        val width = 1920
+        val height = 1080
+        val image = SyntheticQRImage.make("fantasmo-tracking", width, height, 240, 700, 300)
+        val decoder = ZXingQRDecoder()
+        val extractor = QRCodeRegionExtractor(0.75f, 960, 720)
+        val tracker = QRCodeRegionTracker(0.5f, 48, 5)
+
+        extractor.extract(image, width, height)
+        val centerPixels = extractor.width * extractor.height
+        var results: List<QRCodeResult> = emptyList()
+        decoder.decode(extractor.data, extractor.width, extractor.height) { results = it }
+        val found = results.single()
+        tracker.update(
+            extractor.left + found.left * extractor.step,
+            extractor.top + found.top * extractor.step,
+            extractor.left + found.right * extractor.step,
+            extractor.top + found.bottom * extractor.step
+        )
+
+        val region = tracker.region(width, height)!!
+        extractor.extract(image, width, region[0], region[1], region[2], region[3])
+        decoder.decode(extractor.data, extractor.width, extractor.height) { results = it }
+
+        assertEquals("fantasmo-tracking", results.single().rawValue)
+        assertTrue(extractor.width * extractor.height * 2 < centerPixels)
+    }
+}
@@ -0,0 +1,94 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.math.cos
+import kotlin.math.sin
+
+class QRScanCadenceTest {
+
+    private val frameInterval = 33_000_000L
+    private val identity = floatArrayOf(0f, 0f, 0f, 1f)
+
+    // Rotation around the vertical axis
+    private fun rotationY(degrees: Double): FloatArray {
+        val half = Math.toRadians(degrees) / 2
+        return floatArrayOf(0f, sin(half).toFloat(), 0f, cos(half).toFloat())
+    }
+
+    @Test
+    fun testFirstFrameIsScanned() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+
+        assertFalse(cadence.isMovingTooFast(floatArrayOf(0f, 0f, 0f), identity, 0L))
+    }
+
+    @Test
+    fun testSkipsFastTranslation() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        cadence.isMovingTooFast(floatArrayOf(0f, 0f, 0f), identity, 0L)
+
+        // 5 mm in a frame is 0.15 m/s
+        assertFalse(cadence.isMovingTooFast(floatArrayOf(0.005f, 0f, 0f), identity, frameInterval))
+        // 10 cm in a frame is 3 m/s
+        assertTrue(cadence.isMovingTooFast(floatArrayOf(0.105f, 0f, 0f), identity, 2 * frameInterval))
+    }
+
+    @Test
+    fun testSkipsFastRotation() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        val position = floatArrayOf(0f, 0f, 0f)
+        cadence.isMovingTooFast(position, identity, 0L)
+
+        // 1 degree in a frame is 30 degrees per second
+        assertFalse(cadence.isMovingTooFast(position, rotationY(1.0), frameInterval))
+        // 10 degrees in a frame is 300 degrees per second
+        assertTrue(cadence.isMovingTooFast(position, rotationY(11.0), 2 * frameInterval))
+    }
+
+    @Test
+    fun testSpeedAccountsForSkippedFrames() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        cadence.isMovingTooFast(floatArrayOf(0f, 0f, 0f), identity, 0L)
+
+        // 5 cm over one second is slow even if it is a large step between two checked frames
+        assertFalse(cadence.isMovingTooFast(floatArrayOf(0.05f, 0f, 0f), identity, 1_000_000_000L))
+    }
+
+    @Test
+    fun testLostTrackingIsNotMotion() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        cadence.isMovingTooFast(floatArrayOf(0f, 0f, 0f), identity, 0L)
+
+        assertFalse(cadence.isMovingTooFast(null, null, frameInterval))
+        // tracking restarted somewhere else, there is no previous pose to compare with
+        assertFalse(cadence.isMovingTooFast(floatArrayOf(2f, 0f, 0f), identity, 2 * frameInterval))
+    }
+
+    @Test
+    fun testSkipsDarkImages() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        val width = 320
+        val height = 240
+        val dark = ByteArray(width * height * 3 / 2)
+        dark.fill(10, 0, width * height)
+
+        assertTrue(cadence.isTooDark(dark, width, height))
+        assertFalse(cadence.isTooDark(SyntheticQRImage.make("fantasmo", width, height, 120), width, height))
+    }
+
+    @Test
+    fun testSkipsMostFramesOfAFastSweep() {
+        val cadence = QRScanCadence(0.5f, 90f, 0.08f)
+        var scanned = 0
+        // one second sweeping at 1 m/s, then one second holding still
+        for (frame in 0 until 60) {
+            val x = if (frame < 30) frame / 30f else 1f
+            if (!cadence.isMovingTooFast(floatArrayOf(x, 0f, 0f), identity, frame * frameInterval)) {
+                scanned++
+            }
+        }
+
+        assertEquals(30, scanned)
+    }
+}
@@ -0,0 +1,66 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.concurrent.thread
+
+class SpscRingBufferTest {
+
+    @Test
+    fun testPollsInOrder() {
+        val buffer = SpscRingBuffer<Int>(3)
+        assertNull(buffer.poll())
+
+        assertTrue(buffer.offer(1))
+        assertTrue(buffer.offer(2))
+        assertEquals(2, buffer.size)
+
+        assertEquals(1, buffer.poll())
+        assertTrue(buffer.offer(3))
+        assertTrue(buffer.offer(4))
+        assertEquals(2, buffer.poll())
+        assertEquals(3, buffer.poll())
+        assertEquals(4, buffer.poll())
+        assertNull(buffer.poll())
+        assertEquals(0, buffer.size)
+    }
+
+    @Test
+    fun testOfferFailsWhenFull() {
+        val buffer = SpscRingBuffer<Int>(2)
+        assertTrue(buffer.offer(1))
+        assertTrue(buffer.offer(2))
+
+        assertFalse(buffer.offer(3))
+        assertEquals(1, buffer.poll())
+        assertTrue(buffer.offer(3))
+        assertEquals(2, buffer.poll())
+        assertEquals(3, buffer.poll())
+    }
+
+    @Test
+    fun testHandsOffBetweenThreads() {
+        val buffer = SpscRingBuffer<Int>(4)
+        val count = 100_000
+
+        val producer = thread {
+            var next = 0
+            while (next < count) {
+                if (buffer.offer(next)) next++ else Thread.yield()
+            }
+        }
+        var expected = 0
+        while (expected < count) {
+            val element = buffer.poll()
+            if (element == null) {
+                Thread.yield()
+            } else {
+                assertEquals(expected, element)
+                expected++
+            }
+        }
+        producer.join()
+
+        assertNull(buffer.poll())
+    }
+}
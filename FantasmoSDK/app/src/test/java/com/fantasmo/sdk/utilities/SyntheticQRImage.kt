@@ -0,0 +1,45 @@
+package com.fantasmo.sdk.utilities
+
+import com.google.zxing.BarcodeFormat
+import com.google.zxing.qrcode.QRCodeWriter
+import kotlin.random.Random
+
+/**
+ * Builds NV21 camera-like images containing a QR code, for decoder tests and benchmarks.
+ */
+internal object SyntheticQRImage {
+
+    /**
+     * @param content text encoded in the QR code
+     * @param width width of the image
+     * @param height height of the image
+     * @param qrSize side of the QR code in pixels, quiet zone included
+     * @param left position of the QR code in the image
+     * @param top position of the QR code in the image
+     */
+    fun make(
+        content: String,
+        width: Int,
+        height: Int,
+        qrSize: Int,
+        left: Int = (width - qrSize) / 2,
+        top: Int = (height - qrSize) / 2
+    ): ByteArray {
+        val random = Random(7)
+        val data = ByteArray(width * height * 3 / 2)
+        // mid gray background with some sensor-like noise
+        for (i in 0 until width * height) {
+            data[i] = (110 + random.nextInt(20)).toByte()
+        }
+        data.fill(128.toByte(), width * height, data.size)
+
+        val matrix = QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, qrSize, qrSize)
+        for (y in 0 until matrix.height) {
+            for (x in 0 until matrix.width) {
+                val value = if (matrix.get(x, y)) 25 else 225
+                data[(top + y) * width + left + x] = value.toByte()
+            }
+        }
+        return data
+    }
+}
@@ -0,0 +1,109 @@
+package com.fantasmo.sdk.utilities
+
+import com.google.ar.core.Pose
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.math.cos
+import kotlin.math.sin
+
+class TrajectoryBufferTest {
+
+    private val identity = floatArrayOf(0f, 0f, 0f, 1f)
+
+    // Rotation around the Y axis
+    private fun yRotation(degrees: Float): FloatArray {
+        val half = Math.toRadians(degrees / 2.0)
+        return floatArrayOf(0f, sin(half).toFloat(), 0f, cos(half).toFloat())
+    }
+
+    @Test
+    fun testKeepsLastPoses() {
+        val trajectory = TrajectoryBuffer(4)
+        for (i in 1..6) {
+            trajectory.add(i * 10L, Pose(floatArrayOf(i.toFloat(), 0f, 0f), identity))
+        }
+
+        assertEquals(4, trajectory.size)
+        assertEquals(30L, trajectory.firstTimestamp)
+        assertEquals(60L, trajectory.lastTimestamp)
+        assertEquals(3f, trajectory.totalTranslation(), 1e-6f)
+    }
+
+    @Test
+    fun testIgnoresOlderPoses() {
+        val trajectory = TrajectoryBuffer(4)
+        trajectory.add(20L, Pose(floatArrayOf(0f, 0f, 0f), identity))
+        trajectory.add(20L, Pose(floatArrayOf(1f, 0f, 0f), identity))
+        trajectory.add(10L, Pose(floatArrayOf(2f, 0f, 0f), identity))
+
+        assertEquals(1, trajectory.size)
+    }
+
+    @Test
+    fun testInterpolatesBetweenPoses() {
+        val trajectory = TrajectoryBuffer(8)
+        trajectory.add(100L, Pose(floatArrayOf(0f, 0f, 0f), yRotation(0f)))
+        trajectory.add(200L, Pose(floatArrayOf(2f, 4f, 0f), yRotation(90f)))
+        val translation = FloatArray(3)
+        val rotation = FloatArray(4)
+
+        assertTrue(trajectory.interpolate(150L, translation, rotation))
+
+        assertArrayEquals(floatArrayOf(1f, 2f, 0f), translation, 1e-5f)
+        assertArrayEquals(yRotation(45f), rotation, 1e-5f)
+
+        assertTrue(trajectory.interpolate(200L, translation, rotation))
+        assertArrayEquals(floatArrayOf(2f, 4f, 0f), translation, 1e-5f)
+
+        assertFalse(trajectory.interpolate(99L, translation, rotation))
+        assertFalse(trajectory.interpolate(201L, translation, rotation))
+    }
+
+    @Test
+    fun testTranslationAndSpreadSinceTimestamp() {
+        val trajectory = TrajectoryBuffer(8)
+        trajectory.add(100L, Pose(floatArrayOf(0f, 0f, 0f), yRotation(-30f)))
+        trajectory.add(200L, Pose(floatArrayOf(1f, 0f, 0f), yRotation(0f)))
+        trajectory.add(300L, Pose(floatArrayOf(1f, 2f, 0f), yRotation(20f)))
+        val spread = FloatArray(3)
+
+        assertEquals(3f, trajectory.totalTranslation(), 1e-6f)
+        assertEquals(2f, trajectory.totalTranslation(200L), 1e-6f)
+
+        trajectory.rotationSpread(spread)
+        assertEquals(50f, spread[1], 1e-3f)
+        assertEquals(0f, spread[0], 1e-3f)
+
+        trajectory.rotationSpread(spread, 200L)
+        assertEquals(20f, spread[1], 1e-3f)
+    }
+
+    @Test
+    fun testQueriesDoNotAllocate() {
+        val trajectory = TrajectoryBuffer(64)
+        val poses = Array(64) { Pose(floatArrayOf(it.toFloat(), 0f, 0f), yRotation(it.toFloat())) }
+        val translation = FloatArray(3)
+        val rotation = FloatArray(4)
+        val spread = FloatArray(3)
+        val threadMXBean = java.lang.management.ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        var timestamp = 0L
+
+        fun frame() {
+            timestamp += 10
+            trajectory.add(timestamp, poses[(timestamp / 10 % poses.size).toInt()])
+            trajectory.interpolate(timestamp - 25, translation, rotation)
+            trajectory.totalTranslation()
+            trajectory.rotationSpread(spread)
+        }
+
+        // warm up so the measured loop runs compiled code
+        repeat(20_000) { frame() }
+        val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+        repeat(5_000) { frame() }
+        val allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+        // only the measurement itself may allocate
+        assertTrue("allocated $allocated bytes", allocated < 1024)
+    }
+}
@@ -0,0 +1,45 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class YuvDownsamplerTest {
+
+    @Test
+    fun testFactor() {
+        assertEquals(1, YuvDownsampler.factor(640, 960))
+        assertEquals(1, YuvDownsampler.factor(960, 960))
+        assertEquals(2, YuvDownsampler.factor(1920, 960))
+        assertEquals(3, YuvDownsampler.factor(2560, 960))
+    }
+
+    @Test
+    fun testOutputIsEven() {
+        assertEquals(852, YuvDownsampler.outputWidth(2560, 3))
+        assertEquals(480, YuvDownsampler.outputHeight(1440, 3))
+        assertEquals(6, YuvDownsampler.outputHeight(14, 2))
+    }
+
+    @Test
+    fun testAveragesLuminanceAndSubsamplesChroma() {
+        val width = 4
+        val height = 4
+        val nv21 = ByteArray(width * height * 3 / 2)
+        for (i in 0 until width * height) {
+            nv21[i] = (i * 10).toByte()
+        }
+        // VU pairs of the top left and top right 2x2 blocks, then of the bottom ones
+        byteArrayOf(1, 2, 3, 4, 5, 6, 7, 8).copyInto(nv21, width * height)
+        val output = ByteArray(2 * 2 * 3 / 2)
+
+        YuvDownsampler.downsample(nv21, width, height, 2, output)
+
+        // (0 + 10 + 40 + 50) / 4 and so on
+        assertEquals(25, output[0].toInt() and 0xFF)
+        assertEquals(45, output[1].toInt() and 0xFF)
+        assertEquals(105, output[2].toInt() and 0xFF)
+        assertEquals(125, output[3].toInt() and 0xFF)
+        assertEquals(1, output[4].toInt())
+        assertEquals(2, output[5].toInt())
+    }
+}
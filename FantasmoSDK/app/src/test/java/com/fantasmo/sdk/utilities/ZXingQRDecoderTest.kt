@@ -0,0 +1,79 @@
+package com.fantasmo.sdk.utilities
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class ZXingQRDecoderTest {
+
+    private fun decode(nv21: ByteArray, width: Int, height: Int): List<QRCodeResult> {
+        var results: List<QRCodeResult>? = null
+        ZXingQRDecoder().decode(nv21, width, height) { results = it }
+        return results!!
+    }
+
+    @Test
+    fun testDecodesQRCode() {
+        val image = SyntheticQRImage.make("fantasmo-parking-42", 640, 480, 200)
+
+        val results = decode(image, 640, 480)
+
+        assertEquals(1, results.size)
+        assertEquals("fantasmo-parking-42", results[0].rawValue)
+        assertNull(results[0].barcode)
+    }
+
+    @Test
+    fun testBoundingBoxIsInsideQRCode() {
+        val image = SyntheticQRImage.make("fantasmo", 640, 480, 200, 100, 150)
+
+        val result = decode(image, 640, 480).single()
+
+        assertTrue(result.left >= 100 && result.right <= 300)
+        assertTrue(result.top >= 150 && result.bottom <= 350)
+        assertTrue(result.right > result.left && result.bottom > result.top)
+    }
+
+    @Test
+    fun testNoQRCode() {
+        val image = ByteArray(640 * 480 * 3 / 2) { 120 }
+
+        assertTrue(decode(image, 640, 480).isEmpty())
+    }
+
+    @Test
+    fun testDecodesExtractedRegion() {
+        val image = SyntheticQRImage.make("fantasmo-roi", 1920, 1080, 300)
+        val extractor = QRCodeRegionExtractor(0.75f, 960, 720)
+        extractor.extract(image, 1920, 1080)
+
+        val results = decode(extractor.data, extractor.width, extractor.height)
+
+        assertEquals("fantasmo-roi", results.single().rawValue)
+    }
+
+    @Test
+    fun testTrackedRegionDecodesFewerPixels() {
+        val width = 1920
+        val height = 1080
+        val image = SyntheticQRImage.make("fantasmo-tracked", width, height, 240)
+        val extractor = QRCodeRegionExtractor(0.75f, 960, 720)
+        extractor.extract(image, width, height)
+        val centerPixels = extractor.width * extractor.height
+        val found = decode(extractor.data, extractor.width, extractor.height).single()
+
+        val tracker = QRCodeRegionTracker(0.5f, 48, 5)
+        tracker.update(
+            extractor.left + found.left * extractor.step,
+            extractor.top + found.top * extractor.step,
+            extractor.left + found.right * extractor.step,
+            extractor.top + found.bottom * extractor.step
+        )
+        val region = tracker.region(width, height)!!
+        extractor.extract(image, width, region[0], region[1], region[2], region[3])
+
+        // decoding time grows with the pixels decoded, the center region is a quarter of the frame at most
+        assertEquals("fantasmo-tracked", decode(extractor.data, extractor.width, extractor.height).single().rawValue)
+        assertTrue(centerPixels <= width * height / 4)
+        assertTrue(extractor.width * extractor.height < centerPixels)
+    }
+}
@@ -0,0 +1,106 @@
+package com.fantasmo.sdk.utilities.math
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class QuaternionTest {
+
+    private val random = Random(42)
+
+    private fun randomQuaternion(): Quaternion {
+        return Quaternion(
+            random.nextFloat() * 2f - 1f,
+            random.nextFloat() * 2f - 1f,
+            random.nextFloat() * 2f - 1f,
+            random.nextFloat() * 2f - 1f
+        )
+    }
+
+    private fun assertSameValues(expected: Quaternion, actual: Quaternion) {
+        assertEquals(expected.x, actual.x, 1e-6f)
+        assertEquals(expected.y, actual.y, 1e-6f)
+        assertEquals(expected.z, actual.z, 1e-6f)
+        assertEquals(expected.w, actual.w, 1e-6f)
+    }
+
+    @Test
+    fun testMultiplyIntoOperand() {
+        repeat(100) {
+            val lhs = randomQuaternion()
+            val rhs = randomQuaternion()
+            val expected = Quaternion.multiply(lhs, rhs)
+
+            val result = Quaternion.multiply(lhs, rhs, lhs)
+
+            assertSame(lhs, result)
+            assertSameValues(expected, lhs)
+        }
+    }
+
+    @Test
+    fun testSlerpIntoOperand() {
+        repeat(100) {
+            val start = randomQuaternion()
+            val end = randomQuaternion()
+            val t = random.nextFloat()
+            val expected = Quaternion.slerp(start, end, t)
+
+            Quaternion.slerp(start, end, t, end)
+
+            assertSameValues(expected, end)
+        }
+    }
+
+    @Test
+    fun testRotateVectorIntoSource() {
+        repeat(100) {
+            val q = randomQuaternion()
+            val v = Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat())
+            val original = Vector3(v)
+            val expected = Quaternion.rotateVector(q, v)
+
+            Quaternion.rotateVector(q, v, v)
+            assertEquals(expected.x, v.x, 1e-6f)
+            assertEquals(expected.y, v.y, 1e-6f)
+            assertEquals(expected.z, v.z, 1e-6f)
+
+            Quaternion.inverseRotateVector(q, v, v)
+            assertEquals(original.x, v.x, 1e-5f)
+            assertEquals(original.y, v.y, 1e-5f)
+            assertEquals(original.z, v.z, 1e-5f)
+        }
+    }
+
+    @Test
+    fun testInPlaceMatchesCopies() {
+        val q = randomQuaternion()
+        val inverted = q.inverted()
+        val negated = q.negated()
+
+        assertSameValues(inverted, Quaternion(q).invert())
+        assertSameValues(negated, Quaternion(q).negate())
+
+        val v = Vector3(1f, 2f, 3f)
+        val scaled = v.scaled(2f)
+        assertTrue(Vector3().equals(scaled, v.scale(2f)))
+    }
+
+    @Test
+    fun testPoolReusesReleasedInstances() {
+        val pool = MathPool.get()
+        val quaternion = pool.acquireQuaternion()
+        val vector = pool.acquireVector3()
+        pool.release(vector)
+        pool.release(quaternion)
+
+        assertSame(quaternion, pool.acquireQuaternion())
+        assertSame(vector, pool.acquireVector3())
+
+        var otherThreadPool: MathPool? = null
+        val thread = Thread { otherThreadPool = MathPool.get() }
+        thread.start()
+        thread.join()
+        assertNotSame(pool, otherThreadPool)
+    }
+}
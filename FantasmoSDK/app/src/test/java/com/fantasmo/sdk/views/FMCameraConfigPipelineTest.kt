@@ -0,0 +1,61 @@
+package com.fantasmo.sdk.views
+
+import com.fantasmo.sdk.FMUtility
+import com.fantasmo.sdk.filters.FMBlurFilter
+import com.fantasmo.sdk.models.FMLuminancePyramid
+import com.fantasmo.sdk.utilities.QRCodeRegionExtractor
+import com.fantasmo.sdk.utilities.QRCodeResult
+import com.fantasmo.sdk.utilities.SyntheticQRImage
+import com.fantasmo.sdk.utilities.YuvDownsampler
+import com.fantasmo.sdk.utilities.ZXingQRDecoder
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Work done on each admitted frame for the CPU image sizes the camera config policies pick.
+ * Apart from the copy of the camera image and its luminance pyramid, the blur filter, the evaluation
+ * image and the QR scan read a view at most `EvaluationImageMaxWidth` pixels wide, so a larger
+ * CPU image only costs the copy and the pyramid.
+ */
+class FMCameraConfigPipelineTest {
+
+    private val maxWidth = FMUtility.Constants.EvaluationImageMaxWidth
+
+    private fun assertWorkIsCapped(width: Int, height: Int) {
+        val image = SyntheticQRImage.make("fantasmo-config", width, height, height / 3)
+        val pyramid = FMLuminancePyramid(image, width, height)
+
+        val blurLevel = FMBlurFilter(250f, 0.4f, 0.25f).sampledLevel(pyramid)
+        assertTrue(pyramid.width(blurLevel) <= maxWidth)
+
+        val factor = YuvDownsampler.factor(width, maxWidth)
+        assertTrue(YuvDownsampler.outputWidth(width, factor) <= maxWidth)
+
+        val qrLevel = pyramid.levelFor(maxWidth)
+        assertTrue(pyramid.width(qrLevel) <= maxWidth)
+        val extractor = QRCodeRegionExtractor(
+            FMUtility.Constants.QRScanCropFraction,
+            FMUtility.Constants.QRScanMaxWidth,
+            FMUtility.Constants.QRScanMaxHeight
+        )
+        extractor.extract(pyramid.data(qrLevel), pyramid.width(qrLevel), pyramid.height(qrLevel))
+        var results: List<QRCodeResult> = emptyList()
+        ZXingQRDecoder().decode(extractor.data, extractor.width, extractor.height) { results = it }
+        assertEquals("fantasmo-config", results.single().rawValue)
+    }
+
+    @Test
+    fun testUploadConfig() {
+        assertWorkIsCapped(1920, 1080)
+    }
+
+    @Test
+    fun testBalancedConfig() {
+        assertWorkIsCapped(1280, 720)
+    }
+
+    @Test
+    fun testLowPowerConfig() {
+        assertWorkIsCapped(640, 480)
+    }
+}
@@ -0,0 +1,49 @@
+package com.fantasmo.sdk.views
+
+import android.os.Build
+import android.util.Size
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+@RunWith(RobolectricTestRunner::class)
+class FMCameraConfigSelectorTest {
+
+    private val imageSizes = listOf(
+        Size(640, 480),
+        Size(1920, 1080),
+        Size(1280, 720),
+        Size(2560, 1440),
+        Size(720, 480)
+    )
+
+    @Test
+    fun testUploadPolicyIsTheDefault() {
+        assertEquals(FMCameraConfigSelector.UPLOAD, FMCameraConfigSelector(null).policy)
+        assertEquals(FMCameraConfigSelector.UPLOAD, FMCameraConfigSelector("unknown").policy)
+        assertEquals(1, FMCameraConfigSelector(null).select(imageSizes))
+    }
+
+    @Test
+    fun testBalancedPolicy() {
+        assertEquals(2, FMCameraConfigSelector(FMCameraConfigSelector.BALANCED).select(imageSizes))
+    }
+
+    @Test
+    fun testLowPowerPolicy() {
+        val selector = FMCameraConfigSelector(FMCameraConfigSelector.LOW_POWER)
+        assertEquals(0, selector.select(imageSizes))
+
+        // Nothing high enough, the largest image is the closest
+        assertEquals(1, selector.select(listOf(Size(320, 240), Size(640, 360))))
+    }
+
+    @Test
+    fun testFirstConfigWhenNoneFits() {
+        val selector = FMCameraConfigSelector(FMCameraConfigSelector.BALANCED)
+        assertEquals(0, selector.select(listOf(Size(1920, 1080), Size(2560, 1440))))
+    }
+}
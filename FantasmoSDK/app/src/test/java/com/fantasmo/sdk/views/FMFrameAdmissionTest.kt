@@ -0,0 +1,48 @@
+package com.fantasmo.sdk.views
+
+import com.fantasmo.sdk.models.FMFrameDemand
+import com.google.ar.core.TrackingState
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class FMFrameAdmissionTest {
+
+    private val admission = FMFrameAdmission()
+
+    @Test
+    fun testAdmitsWhatConsumersWant() {
+        assertEquals(FMFrameDemand.IMAGE, admission.admit(1L, TrackingState.TRACKING, FMFrameDemand.IMAGE))
+        assertEquals(FMFrameDemand.POSE, admission.admit(2L, TrackingState.PAUSED, FMFrameDemand.POSE))
+
+        assertEquals(2, admission.framesAdmitted)
+        assertEquals(1, admission.imagesAdmitted)
+    }
+
+    @Test
+    fun testDropsRepeatedFrames() {
+        admission.admit(2L, TrackingState.TRACKING, FMFrameDemand.IMAGE)
+
+        assertEquals(FMFrameDemand.NONE, admission.admit(2L, TrackingState.TRACKING, FMFrameDemand.IMAGE))
+        assertEquals(FMFrameDemand.NONE, admission.admit(1L, TrackingState.TRACKING, FMFrameDemand.IMAGE))
+        assertEquals(FMFrameDemand.NONE, admission.admit(0L, TrackingState.TRACKING, FMFrameDemand.IMAGE))
+        assertEquals(4, admission.framesSeen)
+        assertEquals(1, admission.framesAdmitted)
+    }
+
+    @Test
+    fun testDropsUnwantedFrames() {
+        assertEquals(FMFrameDemand.NONE, admission.admit(1L, TrackingState.TRACKING, FMFrameDemand.NONE))
+        assertEquals(FMFrameDemand.NONE, admission.admit(2L, TrackingState.STOPPED, FMFrameDemand.IMAGE))
+
+        // A dropped frame doesn't hold back the next one
+        assertEquals(FMFrameDemand.POSE, admission.admit(2L, TrackingState.TRACKING, FMFrameDemand.POSE))
+        assertEquals(0, admission.imagesAdmitted)
+    }
+
+    @Test
+    fun testUnionOfDemands() {
+        assertEquals(FMFrameDemand.POSE, FMFrameDemand.NONE.union(FMFrameDemand.POSE))
+        assertEquals(FMFrameDemand.IMAGE, FMFrameDemand.IMAGE.union(FMFrameDemand.POSE))
+        assertEquals(FMFrameDemand.NONE, FMFrameDemand.NONE.union(FMFrameDemand.NONE))
+    }
+}